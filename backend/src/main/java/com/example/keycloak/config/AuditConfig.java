@@ -0,0 +1,62 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.AuditJournal;
+import com.example.keycloak.security.AuditLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Access audit log, shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Records who reached the user, protected and admin routes, with their authorities and the outcome
+ * - Writes the records through a lock-free queue to a rolling memory-mapped journal under {@code app.audit.directory}
+ * - Is opt-in with {@code app.audit.enabled=true}, and then requires an explicit {@code app.audit.directory}
+ *   so that records never silently land somewhere cleared on reboot
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.audit.enabled")
+public class AuditConfig {
+
+    @Value("${app.audit.directory:}")
+    private String directory;
+
+    @Value("${app.audit.paths:/api/user/profile,/api/protected/**,/api/admin/**}")
+    private List<String> paths;
+
+    @Value("${app.audit.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${app.audit.max-segments:16}")
+    private int maxSegments;
+
+    @Value("${app.audit.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${app.audit.batch-size:256}")
+    private int batchSize;
+
+    @Value("${app.audit.force-interval-ms:1000}")
+    private long forceIntervalMs;
+
+    /**
+     * Queue and writer thread in front of the journal; stopped after draining the queue.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public AuditLog auditLog(MeterRegistry meterRegistry) throws IOException {
+        if (directory.isBlank()) {
+            throw new IllegalStateException("app.audit.enabled=true requires app.audit.directory to be set "
+                    + "to a persistent directory");
+        }
+        AuditJournal journal = new AuditJournal(Path.of(directory), segmentSizeMb * 1024 * 1024, maxSegments);
+        return new AuditLog(journal, paths, queueCapacity, batchSize, Duration.ofMillis(forceIntervalMs), meterRegistry);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.example.keycloak.security.InvalidTokenGuard;
+import com.example.keycloak.security.KeycloakAuthorityExtractor;
+import com.example.keycloak.security.KeycloakJwtAuthenticationConverter;
+import com.example.keycloak.security.SubjectActivityIndex;
+import com.example.keycloak.security.TokenPrecheck;
+import com.example.keycloak.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Token authentication beans shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Sets up role mapping from Keycloak
+ * - Caches verified tokens so repeated requests skip signature checks
+ * - Rejects malformed, expired and recently rejected tokens before any signature check
+ * - Records decoding and conversion time and token rejection reasons
+ * - Indexes recently seen subjects for the admin API
+ */
+@Configuration
+public class AuthenticationConfig {
+
+    @Value("${app.security.token-cache.max-size:10000}")
+    private long tokenCacheMaxSize;
+
+    @Value("${app.security.token-cache.max-ttl-seconds:300}")
+    private long tokenCacheMaxTtlSeconds;
+
+    @Value("${app.security.rejected-token-cache.max-size:10000}")
+    private long rejectedTokenCacheMaxSize;
+
+    @Value("${app.security.rejected-token-cache.ttl-seconds:60}")
+    private long rejectedTokenCacheTtlSeconds;
+
+    @Value("${app.security.token-precheck.clock-skew-seconds:60}")
+    private long precheckClockSkewSeconds;
+
+    @Value("${app.security.subject-index.retention-seconds:3600}")
+    private long subjectIndexRetentionSeconds;
+
+    @Value("${app.security.subject-index.max-subjects:200000}")
+    private int subjectIndexMaxSubjects;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    @Value("${keycloak.client-id:}")
+    private String clientId;
+
+    /**
+     * Cache of already verified bearer tokens, bounded by size and token lifetime.
+     */
+    @Bean
+    public VerifiedTokenCache verifiedTokenCache(MeterRegistry meterRegistry) {
+        return new VerifiedTokenCache(tokenCacheMaxSize, Duration.ofSeconds(tokenCacheMaxTtlSeconds), meterRegistry);
+    }
+
+    /**
+     * Fast-reject path: structural prechecks and a negative cache of rejected tokens.
+     * Only RS256 is accepted, matching the JWT decoder.
+     */
+    @Bean
+    public InvalidTokenGuard invalidTokenGuard(AuthenticationMetrics authenticationMetrics,
+                                               MeterRegistry meterRegistry) {
+        TokenPrecheck precheck = new TokenPrecheck(Set.of("RS256"), issuerUri,
+                Duration.ofSeconds(precheckClockSkewSeconds));
+        return new InvalidTokenGuard(precheck, rejectedTokenCacheMaxSize,
+                Duration.ofSeconds(rejectedTokenCacheTtlSeconds), authenticationMetrics, meterRegistry);
+    }
+
+    /**
+     * Subjects seen recently, with request counts, roles and token expiry, for the admin API.
+     */
+    @Bean
+    public SubjectActivityIndex subjectActivityIndex(MeterRegistry meterRegistry) {
+        return new SubjectActivityIndex(Duration.ofSeconds(subjectIndexRetentionSeconds), subjectIndexMaxSubjects,
+                Clock.systemUTC(), meterRegistry);
+    }
+
+    /**
+     * Authentication stage timers and rejection counters.
+     */
+    @Bean
+    public AuthenticationMetrics authenticationMetrics(MeterRegistry meterRegistry) {
+        return new AuthenticationMetrics(meterRegistry);
+    }
+
+    /**
+     * Extracts Keycloak realm, client and custom roles once per token. Only roles of this
+     * application's client ({@code keycloak.client-id}) count alongside realm roles.
+     */
+    @Bean
+    public KeycloakAuthorityExtractor keycloakAuthorityExtractor() {
+        return new KeycloakAuthorityExtractor(StringUtils.hasText(clientId) ? clientId : null);
+    }
+
+    /**
+     * Configures JWT authentication converter to map Keycloak roles to Spring Security authorities.
+     */
+    @Bean
+    public KeycloakJwtAuthenticationConverter jwtAuthenticationConverter() {
+        return new KeycloakJwtAuthenticationConverter(keycloakAuthorityExtractor());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.ClusterBus;
+import com.example.keycloak.security.ClusterSync;
+import com.example.keycloak.security.HazelcastClusterBus;
+import com.example.keycloak.security.JwksKeyStore;
+import com.example.keycloak.security.TokenRevocations;
+import com.example.keycloak.security.VerifiedTokenCache;
+import com.hazelcast.core.Hazelcast;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cluster-wide token state, shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Runs standalone by default ({@code app.cluster.mode=none})
+ * - With {@code app.cluster.mode=hazelcast}, starts an embedded Hazelcast member that joins
+ *   the peers listed in {@code app.cluster.members}; members are trusted, so the cluster must
+ *   only run on a private, authenticated network
+ * - Shares verified tokens and revocations between the nodes, and tells them about key rotations
+ * - Retains revocations for {@code app.security.revocation.retention-seconds}
+ */
+@Configuration
+public class ClusterConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterConfig.class);
+
+    @Value("${app.cluster.mode:none}")
+    private String mode;
+
+    @Value("${app.cluster.name:keycloak-backend}")
+    private String name;
+
+    @Value("${app.cluster.port:5701}")
+    private int port;
+
+    @Value("${app.cluster.members:}")
+    private String[] members;
+
+    @Value("${app.cluster.lookup-timeout-ms:20}")
+    private long lookupTimeoutMs;
+
+    @Value("${app.cluster.share-verified-tokens:true}")
+    private boolean shareVerifiedTokens;
+
+    @Value("${app.security.token-cache.max-size:10000}")
+    private int tokenCacheMaxSize;
+
+    @Value("${app.security.revocation.retention-seconds:3600}")
+    private long revocationRetentionSeconds;
+
+    /**
+     * Connection to the other nodes, selected by {@code app.cluster.mode}.
+     */
+    @Bean(destroyMethod = "close")
+    public ClusterBus clusterBus() {
+        return switch (mode) {
+            case "none" -> ClusterBus.standalone();
+            case "hazelcast" -> {
+                List<String> memberList = Arrays.stream(members).map(String::trim).filter(m -> !m.isEmpty()).toList();
+                if (memberList.isEmpty()) {
+                    throw new IllegalStateException("app.cluster.members must list the cluster members");
+                }
+                logger.info("Starting Hazelcast member of cluster {} on port {} with members {}", name, port, memberList);
+                yield new HazelcastClusterBus(Hazelcast.newHazelcastInstance(
+                        HazelcastClusterBus.config(name, port, memberList, tokenCacheMaxSize)),
+                        Duration.ofSeconds(revocationRetentionSeconds));
+            }
+            default -> throw new IllegalStateException("Unknown app.cluster.mode: " + mode);
+        };
+    }
+
+    /**
+     * Revocations known to this node.
+     */
+    @Bean
+    public TokenRevocations tokenRevocations(MeterRegistry meterRegistry) {
+        return new TokenRevocations(Duration.ofSeconds(revocationRetentionSeconds), meterRegistry);
+    }
+
+    /**
+     * Keeps the verified token cache, JWKS key set and revocations in step with the other nodes.
+     */
+    @Bean(initMethod = "start")
+    public ClusterSync clusterSync(ClusterBus clusterBus, VerifiedTokenCache verifiedTokenCache,
+                                   TokenRevocations tokenRevocations, JwksKeyStore jwksKeyStore) {
+        return new ClusterSync(clusterBus, verifiedTokenCache, tokenRevocations, jwksKeyStore,
+                Duration.ofMillis(lookupTimeoutMs), shareVerifiedTokens && !"none".equals(mode));
+    }
+}
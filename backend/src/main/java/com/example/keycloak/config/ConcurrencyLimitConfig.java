@@ -0,0 +1,50 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adaptive concurrency limit for the API, shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Limits the {@code /api/**} requests handled at once, learning the limit from their latency
+ * - Gives {@code /api/health} a fixed limit of its own and keeps part of the limit for admins
+ * - Is turned off with {@code app.concurrency-limit.enabled=false}
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Value("${app.concurrency-limit.initial-limit:50}")
+    private int initialLimit;
+
+    @Value("${app.concurrency-limit.min-limit:10}")
+    private int minLimit;
+
+    @Value("${app.concurrency-limit.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${app.concurrency-limit.admin-reserve:0.1}")
+    private double adminReserve;
+
+    @Value("${app.concurrency-limit.health-limit:8}")
+    private int healthLimit;
+
+    @Value("${app.concurrency-limit.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    /**
+     * Limiter built from the {@code app.concurrency-limit.*} properties.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter("/api/**", "/api/health",
+                new AdaptiveConcurrencyLimiter.Limits(initialLimit, minLimit, maxLimit, adminReserve, healthLimit,
+                        retryAfterSeconds),
+                meterRegistry);
+    }
+}
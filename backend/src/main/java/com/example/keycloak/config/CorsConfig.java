@@ -0,0 +1,111 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.CorsPreflightCache;
+import com.example.keycloak.security.CorsPreflightFilter;
+import com.example.keycloak.security.CorsPreflightWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.Arrays;
+
+/**
+ * CORS rules for the React frontend, shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Builds the CORS rules from the {@code app.cors.*} properties
+ * - Answers allowed preflight requests from precomputed headers ahead of every other filter,
+ *   unless {@code app.cors.preflight-fast-path.enabled=false}
+ * - Times preflights answered on the fast path and through the filter chain
+ */
+@Configuration
+public class CorsConfig {
+
+    @Value("${app.cors.allowed-origins}")
+    private String allowedOrigins;
+
+    @Value("${app.cors.allowed-methods}")
+    private String allowedMethods;
+
+    @Value("${app.cors.allowed-headers}")
+    private String allowedHeaders;
+
+    @Value("${app.cors.allow-credentials}")
+    private boolean allowCredentials;
+
+    @Value("${app.cors.max-age-seconds:86400}")
+    private long maxAgeSeconds;
+
+    @Value("${app.cors.preflight-fast-path.enabled:true}")
+    private boolean preflightFastPathEnabled;
+
+    @Value("${app.cors.preflight-fast-path.max-entries:1000}")
+    private long preflightFastPathMaxEntries;
+
+    /**
+     * Builds the CORS configuration from the {@code app.cors.*} properties.
+     */
+    @Bean
+    public CorsConfiguration corsConfiguration() {
+        CorsConfiguration configuration = new CorsConfiguration();
+
+        // Set allowed origins
+        configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
+
+        // Set allowed methods
+        configuration.setAllowedMethods(Arrays.asList(allowedMethods.split(",")));
+
+        // Set allowed headers
+        if ("*".equals(allowedHeaders)) {
+            configuration.setAllowedHeaders(Arrays.asList("*"));
+        } else {
+            configuration.setAllowedHeaders(Arrays.asList(allowedHeaders.split(",")));
+        }
+
+        // Set credentials
+        configuration.setAllowCredentials(allowCredentials);
+
+        // Set max age for preflight requests
+        configuration.setMaxAge(maxAgeSeconds);
+
+        return configuration;
+    }
+
+    /**
+     * Preflight responses computed from the CORS configuration, keyed by origin and
+     * requested method and headers.
+     */
+    @Bean
+    public CorsPreflightCache corsPreflightCache(CorsConfiguration corsConfiguration, MeterRegistry meterRegistry) {
+        return new CorsPreflightCache(corsConfiguration, preflightFastPathEnabled, preflightFastPathMaxEntries,
+                meterRegistry);
+    }
+
+    /**
+     * Preflight fast path for the servlet stack, ahead of the security chain and request observation.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<CorsPreflightFilter> corsPreflightFilter(CorsPreflightCache corsPreflightCache) {
+        FilterRegistrationBean<CorsPreflightFilter> registration =
+                new FilterRegistrationBean<>(new CorsPreflightFilter(corsPreflightCache));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Preflight fast path for the reactive stack, ahead of the security chain and request observation.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public CorsPreflightWebFilter corsPreflightWebFilter(CorsPreflightCache corsPreflightCache) {
+        return new CorsPreflightWebFilter(corsPreflightCache);
+    }
+}
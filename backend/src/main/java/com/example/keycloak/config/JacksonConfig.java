@@ -0,0 +1,137 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.dto.BatchRequest;
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response serialization for the API.
+ *
+ * This configuration:
+ * - Times JSON response serialization as the {@code response.serialize} request stage
+ * - Serves Smile ({@code application/x-jackson-smile}) when a caller asks for it in the Accept header
+ * - Builds the Smile mapper from the same {@code spring.jackson.*} settings as the JSON one
+ * - Keeps JSON as the default for browsers and other callers
+ * - Builds the serializers of the API types during startup rather than on the first requests
+ */
+@Configuration
+public class JacksonConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonConfig.class);
+
+    // Passed explicitly: the codec constructors fall back to JSON types when given none
+    private static final MimeType[] SMILE_MIME_TYPES = {
+        new MimeType("application", "x-jackson-smile"),
+        new MimeType("application", "*+x-jackson-smile")
+    };
+
+    /**
+     * JSON message converter for the servlet stack that records serialization time.
+     * Replaces the converter Spring Boot would otherwise create from the same ObjectMapper.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   MeterRegistry meterRegistry) {
+        return new TimedJackson2HttpMessageConverter(objectMapper,
+                AuthenticationMetrics.stageTimer(meterRegistry, "response.serialize"));
+    }
+
+    /**
+     * Smile message converter for the servlet stack. It takes the place of Spring MVC's
+     * default Smile converter, which sits after the JSON one.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper(builder));
+    }
+
+    /**
+     * Smile encoder and decoder for the reactive stack, in the default Smile codec slots
+     * after the JSON ones.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper objectMapper = smileObjectMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(objectMapper, SMILE_MIME_TYPES));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(objectMapper, SMILE_MIME_TYPES));
+        };
+    }
+
+    /**
+     * Serializes and parses each API type once while the context starts, so Jackson's
+     * introspection and serializer caches are ready before traffic arrives. The CDS
+     * training run stops after this point, so the archive also holds the classes it loads.
+     */
+    @Bean
+    public SmartInitializingSingleton jacksonWarmUp(ObjectMapper objectMapper) {
+        return () -> {
+            try {
+                objectMapper.writeValueAsBytes(ApiResponse.success("warm-up",
+                        new UserProfileDto("warm-up", "warm-up", null)));
+                objectMapper.writeValueAsBytes(ApiResponse.success("warm-up", Map.of("warm-up", true)));
+                objectMapper.writeValueAsBytes(ImmutableApiResponse.error("warm-up"));
+                objectMapper.readValue("{\"requests\":[{\"path\":\"/api/health\"}]}", BatchRequest.class);
+            } catch (IOException e) {
+                logger.debug("Jackson warm-up failed", e);
+            }
+        };
+    }
+
+    private static ObjectMapper smileObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).indentOutput(false).build();
+    }
+
+    /**
+     * JSON converter that records how long writing each response body takes.
+     */
+    static class TimedJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+        private final Timer serializeTimer;
+
+        TimedJackson2HttpMessageConverter(ObjectMapper objectMapper, Timer serializeTimer) {
+            super(objectMapper);
+            this.serializeTimer = serializeTimer;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                throws IOException, HttpMessageNotWritableException {
+            long start = System.nanoTime();
+            try {
+                super.writeInternal(object, type, outputMessage);
+            } finally {
+                serializeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.ClaimProjection;
+import com.example.keycloak.security.JwksKeyStore;
+import com.example.keycloak.security.KeycloakJwtDecoders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * JWT decoder configuration backed by a local, refresh-ahead JWKS key store.
+ *
+ * This configuration:
+ * - Replaces the Spring Boot decoder that fetches the JWKS on demand
+ * - Loads keys from {@code app.security.jwks.file} when set, otherwise from the JWK Set URI
+ * - Validates the issuer and token timestamps the same way the default decoder does
+ * - Decodes only the claims the application reads when {@code app.security.jwt.decoding}
+ *   is {@code projected} (the default), plus {@code app.security.jwt.extra-claims}
+ * - Provides a non-blocking decoder over the same keys for the reactive stack
+ */
+@Configuration
+public class JwtDecoderConfig {
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+
+    @Value("${app.security.jwks.file:}")
+    private String jwksFile;
+
+    @Value("${app.security.jwks.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.security.jwks.refresh-ahead-seconds:60}")
+    private long refreshAheadSeconds;
+
+    @Value("${app.security.jwks.unknown-kid-wait-ms:2000}")
+    private long unknownKidWaitMs;
+
+    @Value("${app.security.jwks.min-refresh-interval-seconds:10}")
+    private long minRefreshIntervalSeconds;
+
+    @Value("${app.security.jwks.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.security.jwks.read-timeout-ms:3000}")
+    private int readTimeoutMs;
+
+    @Value("${app.security.jwt.decoding:projected}")
+    private String decoding;
+
+    @Value("${app.security.jwt.extra-claims:}")
+    private List<String> extraClaims;
+
+    /**
+     * JWKS key store, loaded in the background as soon as the application starts.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public JwksKeyStore jwksKeyStore() {
+        Supplier<String> loader;
+        String source;
+        if (StringUtils.hasText(jwksFile)) {
+            loader = JwksKeyStore.fileLoader(Path.of(jwksFile));
+            source = jwksFile;
+        } else {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setConnectTimeout(connectTimeoutMs);
+            requestFactory.setReadTimeout(readTimeoutMs);
+            RestTemplate restTemplate = new RestTemplate(requestFactory);
+            loader = () -> restTemplate.getForObject(jwkSetUri, String.class);
+            source = jwkSetUri;
+        }
+
+        return new JwksKeyStore(loader, source,
+                Duration.ofSeconds(ttlSeconds),
+                Duration.ofSeconds(refreshAheadSeconds),
+                Duration.ofMillis(unknownKidWaitMs),
+                Duration.ofSeconds(minRefreshIntervalSeconds));
+    }
+
+    /**
+     * Decodes and validates RS256 JWTs using keys from the local key store.
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(JwksKeyStore jwksKeyStore) {
+        if (isProjected()) {
+            return KeycloakJwtDecoders.projected(jwksKeyStore, issuerUri, projection());
+        }
+        return KeycloakJwtDecoders.withKeyStore(jwksKeyStore, issuerUri);
+    }
+
+    /**
+     * Non-blocking decoder for the reactive stack, backed by the same key store.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveJwtDecoder reactiveJwtDecoder(JwksKeyStore jwksKeyStore) {
+        if (isProjected()) {
+            return KeycloakJwtDecoders.reactiveProjected(jwksKeyStore, issuerUri, projection());
+        }
+        return KeycloakJwtDecoders.reactiveWithKeyStore(jwksKeyStore, issuerUri);
+    }
+
+    private boolean isProjected() {
+        return switch (decoding) {
+            case "projected" -> true;
+            case "full" -> false;
+            default -> throw new IllegalStateException("Unknown app.security.jwt.decoding: " + decoding);
+        };
+    }
+
+    private ClaimProjection projection() {
+        return KeycloakJwtDecoders.APPLICATION_CLAIMS.with(extraClaims);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.SubjectRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-subject rate limits, shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Limits each user (or client, for tokens without a subject) per route pattern
+ * - Mirrors the protected route patterns of {@link SecurityConfig}; other routes are not limited
+ * - Disables all limits when {@code app.rate-limit.enabled=false}
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.idle-timeout-seconds:300}")
+    private long idleTimeoutSeconds;
+
+    @Value("${app.rate-limit.max-subjects:100000}")
+    private long maxSubjects;
+
+    @Value("${app.rate-limit.user.permits-per-second:20}")
+    private double userPermitsPerSecond;
+
+    @Value("${app.rate-limit.user.burst:40}")
+    private int userBurst;
+
+    @Value("${app.rate-limit.protected.permits-per-second:50}")
+    private double protectedPermitsPerSecond;
+
+    @Value("${app.rate-limit.protected.burst:100}")
+    private int protectedBurst;
+
+    /**
+     * Token buckets per route and subject, built from the {@code app.rate-limit.*} properties.
+     */
+    @Bean
+    public SubjectRateLimiter subjectRateLimiter(MeterRegistry meterRegistry) {
+        List<SubjectRateLimiter.Rule> rules = !enabled ? List.of() : List.of(
+                new SubjectRateLimiter.Rule("/api/user/**", userPermitsPerSecond, userBurst),
+                new SubjectRateLimiter.Rule("/api/protected/**", protectedPermitsPerSecond, protectedBurst));
+        return new SubjectRateLimiter(rules, Duration.ofSeconds(idleTimeoutSeconds), maxSubjects, meterRegistry);
+    }
+}
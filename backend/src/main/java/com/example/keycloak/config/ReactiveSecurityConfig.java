@@ -0,0 +1,130 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.dto.ApiRuntimeHints;
+import com.example.keycloak.security.AccessAuditWebFilter;
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter;
+import com.example.keycloak.security.AuditLog;
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.example.keycloak.security.CachingReactiveJwtAuthenticationManager;
+import com.example.keycloak.security.ClusterSync;
+import com.example.keycloak.security.ConcurrencyLimitWebFilter;
+import com.example.keycloak.security.InvalidTokenGuard;
+import com.example.keycloak.security.KeycloakJwtAuthenticationConverter;
+import com.example.keycloak.security.RateLimitWebFilter;
+import com.example.keycloak.security.ReactiveRouteAuthorizationManager;
+import com.example.keycloak.security.RouteAuthorizationTable;
+import com.example.keycloak.security.SubjectActivityIndex;
+import com.example.keycloak.security.SubjectRateLimiter;
+import com.example.keycloak.security.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.lang.Nullable;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+/**
+ * Reactive (WebFlux) security configuration, selected with
+ * {@code spring.main.web-application-type=reactive}.
+ *
+ * Mirrors {@link SecurityConfig}: the same public and protected endpoints, CORS rules,
+ * role mapping, verified token cache, rate limits, access audit and concurrency limit,
+ * with non-blocking JWT validation.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ImportRuntimeHints(ApiRuntimeHints.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    /**
+     * Configures the reactive security filter chain.
+     */
+    @Bean
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http,
+                                                            CorsConfigurationSource reactiveCorsConfigurationSource,
+                                                            CachingReactiveJwtAuthenticationManager reactiveJwtAuthenticationManager,
+                                                            SubjectRateLimiter subjectRateLimiter,
+                                                            RouteAuthorizationTable routeAuthorizationTable,
+                                                            @Nullable AuditLog auditLog,
+                                                            @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                                            ObjectMapper objectMapper) {
+        http
+            // Disable CSRF for stateless API
+            .csrf(csrf -> csrf.disable())
+
+            // Configure CORS
+            .cors(cors -> cors.configurationSource(reactiveCorsConfigurationSource))
+
+            // Never store the security context between requests
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+
+            // Configure authorization rules, compiled into one table (see RouteAuthorizationConfig)
+            .authorizeExchange(exchanges -> exchanges
+                .anyExchange().access(new ReactiveRouteAuthorizationManager(routeAuthorizationTable))
+            )
+
+            // Configure OAuth2 Resource Server
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .jwt(jwt -> jwt
+                    .authenticationManager(reactiveJwtAuthenticationManager)
+                )
+            );
+
+        // Audit exchanges from before authentication, so rejected tokens and rate limited
+        // exchanges are recorded too; the caller is captured once authenticated
+        if (auditLog != null) {
+            AccessAuditWebFilter auditFilter = new AccessAuditWebFilter(auditLog);
+            http.addFilterBefore(auditFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAfter(auditFilter.callerCapture(), SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+
+        // Rate limit authenticated requests
+        http.addFilterAfter(new RateLimitWebFilter(subjectRateLimiter, objectMapper), SecurityWebFiltersOrder.AUTHENTICATION);
+
+        // Shed exchanges over the concurrency limit
+        if (concurrencyLimiter != null) {
+            http.addFilterAfter(new ConcurrencyLimitWebFilter(concurrencyLimiter, objectMapper),
+                    SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+
+        return http.build();
+    }
+
+    /**
+     * Authenticates bearer tokens through the verified token cache, decoding them
+     * without blocking on a miss.
+     */
+    @Bean
+    public CachingReactiveJwtAuthenticationManager reactiveJwtAuthenticationManager(
+            ReactiveJwtDecoder reactiveJwtDecoder,
+            KeycloakJwtAuthenticationConverter jwtAuthenticationConverter,
+            VerifiedTokenCache verifiedTokenCache,
+            InvalidTokenGuard invalidTokenGuard,
+            AuthenticationMetrics authenticationMetrics,
+            ClusterSync clusterSync,
+            SubjectActivityIndex subjectActivityIndex) {
+        return new CachingReactiveJwtAuthenticationManager(reactiveJwtDecoder, jwtAuthenticationConverter, verifiedTokenCache,
+                invalidTokenGuard, authenticationMetrics, clusterSync, subjectActivityIndex);
+    }
+
+    /**
+     * Configures CORS for the application.
+     */
+    @Bean
+    public CorsConfigurationSource reactiveCorsConfigurationSource(CorsConfiguration corsConfiguration) {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration);
+
+        return source;
+    }
+}
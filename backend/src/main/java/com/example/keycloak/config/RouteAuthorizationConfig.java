@@ -0,0 +1,45 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.RouteAuthorizationTable;
+import com.example.keycloak.security.RouteRule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+
+import java.util.List;
+
+/**
+ * URL authorization rules shared by the servlet and reactive security chains.
+ *
+ * This configuration:
+ * - Defines protected and public endpoints, earliest matching rule first
+ * - Compiles them once at startup into a {@link RouteAuthorizationTable}
+ * - Requires authentication for every request no rule matches
+ */
+@Configuration
+public class RouteAuthorizationConfig {
+
+    /**
+     * The authorization rules, in precedence order.
+     */
+    static List<RouteRule> routeRules() {
+        return List.of(
+                // Public endpoints
+                RouteRule.permitAll("/api/health"),
+                RouteRule.permitAll("/actuator/**"),
+                RouteRule.permitAll("/error"),
+
+                // Protected endpoints
+                RouteRule.hasAnyRole("/api/user/**", "USER"),
+                RouteRule.authenticated("/api/protected/**"),
+                RouteRule.hasAnyRole("/api/admin/**", "ADMIN"),
+
+                // Batch calls; each sub-request is authorized against the rules above
+                RouteRule.authenticated(HttpMethod.POST, "/api/batch"));
+    }
+
+    @Bean
+    public RouteAuthorizationTable routeAuthorizationTable() {
+        return new RouteAuthorizationTable(routeRules(), RouteRule.authenticated("/**"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.keycloak.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback turbo filter that keeps one in every {@code rate} DEBUG and TRACE events of
+ * the configured loggers and their children, counted per logger.
+ *
+ * Turbo filters run before the event is created or its message formatted, so a dropped
+ * event costs one counter increment. Level checks such as {@code isDebugEnabled()} are
+ * not sampled; the log call inside the guarded block is. Configured in
+ * {@code logback-spring.xml} from {@code app.logging.debug-sample-rate} and
+ * {@code app.logging.sampled-loggers}.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final AtomicLong NOT_SAMPLED = new AtomicLong();
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private List<String> loggers = List.of();
+    private int rate = 1;
+
+    /**
+     * Comma-separated logger names whose DEBUG and TRACE events are sampled.
+     */
+    public void setLoggers(String loggers) {
+        this.loggers = Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+        counters.clear();
+    }
+
+    /**
+     * Keep one event in {@code rate}; 1 keeps every event.
+     */
+    public void setRate(int rate) {
+        this.rate = Math.max(rate, 1);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        // A null format is a level check, not an event
+        if (rate == 1 || format == null || level == null || level.levelInt > Level.DEBUG_INT || !isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+        // Events below the logger's level are dropped anyway and do not count
+        if (level.levelInt < logger.getEffectiveLevel().levelInt) {
+            return FilterReply.NEUTRAL;
+        }
+        AtomicLong counter = counters.computeIfAbsent(logger.getName(), this::counterFor);
+        if (counter == NOT_SAMPLED) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private AtomicLong counterFor(String name) {
+        for (String sampled : loggers) {
+            if (name.equals(sampled) || name.startsWith(sampled + ".")) {
+                return new AtomicLong();
+            }
+        }
+        return NOT_SAMPLED;
+    }
+}
@@ -1,132 +1,134 @@
 package com.example.keycloak.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.example.keycloak.dto.ApiRuntimeHints;
+import com.example.keycloak.security.AccessAuditFilter;
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter;
+import com.example.keycloak.security.AuditLog;
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.example.keycloak.security.CachingJwtAuthenticationManager;
+import com.example.keycloak.security.ClusterSync;
+import com.example.keycloak.security.ConcurrencyLimitFilter;
+import com.example.keycloak.security.InvalidTokenGuard;
+import com.example.keycloak.security.KeycloakJwtAuthenticationConverter;
+import com.example.keycloak.security.RateLimitFilter;
+import com.example.keycloak.security.RouteAuthorizationManager;
+import com.example.keycloak.security.RouteAuthorizationTable;
+import com.example.keycloak.security.SubjectActivityIndex;
+import com.example.keycloak.security.SubjectRateLimiter;
+import com.example.keycloak.security.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.lang.Nullable;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
-import java.util.Arrays;
-
 /**
  * Security configuration for OAuth2 Resource Server with Keycloak integration.
- * 
+ *
  * This configuration:
  * - Enables JWT token validation
+ * - Caches verified tokens so repeated requests skip signature checks
  * - Configures CORS for React frontend
  * - Sets up role mapping from Keycloak
- * - Defines protected and public endpoints
+ * - Authorizes requests against the compiled route table ({@link RouteAuthorizationConfig})
+ * - Rate limits authenticated requests per subject and route ({@link RateLimitConfig})
+ * - Records access to the audited routes ({@link AuditConfig})
+ * - Sheds API requests over the adaptive concurrency limit ({@link ConcurrencyLimitConfig})
+ * - Registers reflection hints for the JSON bodies written outside MVC, for AOT and native builds
+ *
+ * Active for the servlet stack; see {@link ReactiveSecurityConfig} for the reactive variant.
  */
 @Configuration
 @EnableWebSecurity
+@ImportRuntimeHints(ApiRuntimeHints.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig {
 
-    @Value("${app.cors.allowed-origins}")
-    private String allowedOrigins;
-
-    @Value("${app.cors.allowed-methods}")
-    private String allowedMethods;
-
-    @Value("${app.cors.allowed-headers}")
-    private String allowedHeaders;
-
-    @Value("${app.cors.allow-credentials}")
-    private boolean allowCredentials;
-
     /**
      * Configures the security filter chain.
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           CorsConfigurationSource corsConfigurationSource,
+                                           CachingJwtAuthenticationManager jwtAuthenticationManager,
+                                           SubjectRateLimiter subjectRateLimiter,
+                                           RouteAuthorizationTable routeAuthorizationTable,
+                                           @Nullable AuditLog auditLog,
+                                           @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                           ObjectMapper objectMapper) throws Exception {
         http
             // Disable CSRF for stateless API
             .csrf(csrf -> csrf.disable())
-            
+
             // Configure CORS
-            .cors(cors -> cors.configurationSource(corsConfigurationSource()))
-            
+            .cors(cors -> cors.configurationSource(corsConfigurationSource))
+
             // Configure session management
-            .sessionManagement(session -> 
+            .sessionManagement(session ->
                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-            
-            // Configure authorization rules
+
+            // Configure authorization rules, compiled into one table (see RouteAuthorizationConfig)
             .authorizeHttpRequests(authz -> authz
-                // Public endpoints
-                .requestMatchers("/api/health", "/actuator/**").permitAll()
-                .requestMatchers("/error").permitAll()
-                
-                // Protected endpoints
-                .requestMatchers("/api/user/**").hasRole("USER")
-                .requestMatchers("/api/protected/**").authenticated()
-                .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                
-                // All other requests require authentication
-                .anyRequest().authenticated()
+                .anyRequest().access(new RouteAuthorizationManager(routeAuthorizationTable))
             )
-            
+
             // Configure OAuth2 Resource Server
             .oauth2ResourceServer(oauth2 -> oauth2
                 .jwt(jwt -> jwt
-                    .jwtAuthenticationConverter(jwtAuthenticationConverter())
+                    .authenticationManager(jwtAuthenticationManager)
                 )
-            );
+            )
+
+            // Rate limit authenticated requests (not registered as a bean, so it only runs in this chain)
+            .addFilterAfter(new RateLimitFilter(subjectRateLimiter, objectMapper), BearerTokenAuthenticationFilter.class);
+
+        // Audit requests from before authentication, so rejected tokens and rate limited requests are recorded too
+        if (auditLog != null) {
+            http.addFilterBefore(new AccessAuditFilter(auditLog), BearerTokenAuthenticationFilter.class);
+        }
+
+        // Shed requests over the concurrency limit
+        if (concurrencyLimiter != null) {
+            http.addFilterAfter(new ConcurrencyLimitFilter(concurrencyLimiter, objectMapper), RateLimitFilter.class);
+        }
 
         return http.build();
     }
 
     /**
-     * Configures CORS for the application.
+     * Authenticates bearer tokens through the verified token cache, falling back to
+     * full JWT decoding and role conversion on a miss.
      */
     @Bean
-    public CorsConfigurationSource corsConfigurationSource() {
-        CorsConfiguration configuration = new CorsConfiguration();
-        
-        // Set allowed origins
-        configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
-        
-        // Set allowed methods
-        configuration.setAllowedMethods(Arrays.asList(allowedMethods.split(",")));
-        
-        // Set allowed headers
-        if ("*".equals(allowedHeaders)) {
-            configuration.setAllowedHeaders(Arrays.asList("*"));
-        } else {
-            configuration.setAllowedHeaders(Arrays.asList(allowedHeaders.split(",")));
-        }
-        
-        // Set credentials
-        configuration.setAllowCredentials(allowCredentials);
-        
-        // Set max age for preflight requests
-        configuration.setMaxAge(3600L);
-        
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", configuration);
-        
-        return source;
+    public CachingJwtAuthenticationManager jwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                                                    KeycloakJwtAuthenticationConverter jwtAuthenticationConverter,
+                                                                    VerifiedTokenCache verifiedTokenCache,
+                                                                    InvalidTokenGuard invalidTokenGuard,
+                                                                    AuthenticationMetrics authenticationMetrics,
+                                                                    ClusterSync clusterSync,
+                                                                    SubjectActivityIndex subjectActivityIndex) {
+        return new CachingJwtAuthenticationManager(jwtDecoder, jwtAuthenticationConverter, verifiedTokenCache,
+                invalidTokenGuard, authenticationMetrics, clusterSync, subjectActivityIndex);
     }
 
     /**
-     * Configures JWT authentication converter to map Keycloak roles to Spring Security authorities.
+     * Configures CORS for the application.
      */
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
-        
-        // Configure how authorities are extracted from JWT
-        authoritiesConverter.setAuthorityPrefix("ROLE_");
-        authoritiesConverter.setAuthoritiesClaimName("roles");
-        
-        JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
-        authenticationConverter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
-        
-        return authenticationConverter;
+    public CorsConfigurationSource corsConfigurationSource(CorsConfiguration corsConfiguration) {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration);
+
+        return source;
     }
 }
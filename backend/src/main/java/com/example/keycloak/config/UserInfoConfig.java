@@ -0,0 +1,72 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.service.OidcUserInfoSource;
+import com.example.keycloak.service.UserInfoCache;
+import com.example.keycloak.service.UserInfoSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * User profile enrichment from the identity provider, shared by the servlet and reactive stacks.
+ *
+ * This configuration:
+ * - Fills in profile claims missing from access tokens with the {@code openid} scope from the
+ *   OIDC userinfo endpoint; other tokens, such as service accounts', keep their own claims only
+ * - Caches them per subject with refresh-ahead, one in-flight fetch per subject and stale fallback
+ * - Is opt-in with {@code app.user-info.enabled=true}; otherwise profiles come from the token claims
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.user-info.enabled")
+public class UserInfoConfig {
+
+    @Value("${app.user-info.uri}")
+    private String userInfoUri;
+
+    @Value("${app.user-info.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.user-info.refresh-after-seconds:300}")
+    private long refreshAfterSeconds;
+
+    @Value("${app.user-info.max-stale-seconds:3600}")
+    private long maxStaleSeconds;
+
+    @Value("${app.user-info.retry-after-seconds:10}")
+    private long retryAfterSeconds;
+
+    @Value("${app.user-info.timeout-ms:500}")
+    private long timeoutMs;
+
+    @Value("${app.user-info.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    /**
+     * Calls the userinfo endpoint with the user's own access token.
+     */
+    @Bean
+    public UserInfoSource userInfoSource(ObjectMapper objectMapper) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(requestTimeoutMs))
+                .build();
+        return new OidcUserInfoSource(httpClient, URI.create(userInfoUri), Duration.ofMillis(requestTimeoutMs),
+                objectMapper);
+    }
+
+    /**
+     * Cached user info per subject; a miss waits at most {@code app.user-info.timeout-ms}.
+     */
+    @Bean
+    public UserInfoCache userInfoCache(UserInfoSource userInfoSource, MeterRegistry meterRegistry) {
+        return new UserInfoCache(userInfoSource, maxSize, Duration.ofSeconds(refreshAfterSeconds),
+                Duration.ofSeconds(maxStaleSeconds), Duration.ofSeconds(retryAfterSeconds),
+                Duration.ofMillis(timeoutMs), meterRegistry);
+    }
+}
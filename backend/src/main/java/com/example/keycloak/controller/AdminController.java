@@ -0,0 +1,84 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.dto.RevocationRequest;
+import com.example.keycloak.dto.SubjectActivityPage;
+import com.example.keycloak.security.Revocation;
+import com.example.keycloak.service.RevocationService;
+import com.example.keycloak.service.SubjectActivityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Controller for administrative operations.
+ * All endpoints require the ADMIN role.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdminController {
+
+    private final RevocationService revocationService;
+    private final SubjectActivityService subjectActivityService;
+
+    @Autowired
+    public AdminController(RevocationService revocationService, SubjectActivityService subjectActivityService) {
+        this.revocationService = revocationService;
+        this.subjectActivityService = subjectActivityService;
+    }
+
+    /**
+     * Revoke tokens by subject, session or token id on every node.
+     *
+     * @param request Identifiers of the tokens to revoke
+     * @param authentication Spring Security authentication object
+     * @return API response with the applied revocation
+     */
+    @PostMapping("/revocations")
+    public ApiResponse<Revocation> revoke(@RequestBody RevocationRequest request, Authentication authentication) {
+        return ApiResponse.success("Tokens revoked", revocationService.revoke(request, authentication.getName()));
+    }
+
+    /**
+     * List recently seen subjects, one page at a time.
+     *
+     * @param cursor Cursor from the previous page, or absent for the first page
+     * @param limit Maximum number of subjects per page
+     * @return API response with the page
+     */
+    @GetMapping("/subjects")
+    public ApiResponse<SubjectActivityPage> listSubjects(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        return ApiResponse.success("Subjects retrieved", subjectActivityService.page(cursor, limit));
+    }
+
+    /**
+     * Stream all recently seen subjects as newline-delimited JSON.
+     *
+     * @return One JSON line per subject, in subject order
+     */
+    @GetMapping(path = "/subjects/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSubjects() {
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<byte[]> lines = subjectActivityService.ndjson()) {
+                for (Iterator<byte[]> it = lines.iterator(); it.hasNext(); ) {
+                    outputStream.write(it.next());
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
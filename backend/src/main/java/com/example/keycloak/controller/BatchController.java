@@ -0,0 +1,103 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.BatchItemResponse;
+import com.example.keycloak.dto.BatchRequest;
+import com.example.keycloak.service.BatchService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller for batch calls: several GET sub-requests under one authentication.
+ */
+@RestController
+@RequestMapping("/api/batch")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BatchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+
+    private final BatchService batchService;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.batch.max-requests:20}")
+    private int maxRequests;
+
+    @Autowired
+    public BatchController(BatchService batchService, ObjectMapper objectMapper) {
+        this.batchService = batchService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Execute a batch of sub-requests - requires authentication.
+     * Each sub-request is authorized as if it had been sent on its own. Results are streamed
+     * as a JSON array in completion order, each with its id, path, status and API response.
+     * Sub-requests that do not finish within {@code app.batch.timeout-seconds} are answered with 504.
+     *
+     * @param batchRequest The sub-requests
+     * @param authentication Spring Security authentication object
+     * @param request Current request, used for authorizing the sub-requests
+     * @return Streamed array of sub-request results
+     */
+    @PostMapping
+    public ResponseEntity<StreamingResponseBody> executeBatch(@RequestBody BatchRequest batchRequest,
+                                                              Authentication authentication,
+                                                              HttpServletRequest request) {
+        List<BatchRequest.Item> items = batchRequest.requests();
+        if (items == null || items.isEmpty() || items.size() > maxRequests) {
+            throw new IllegalArgumentException("a batch must contain between 1 and " + maxRequests + " requests");
+        }
+        logger.debug("Batch of {} requests from: {}", items.size(), authentication.getName());
+
+        List<CompletableFuture<BatchItemResponse>> results =
+                batchService.execute(items, request.getContextPath(), authentication);
+        BlockingQueue<BatchItemResponse> completed = new LinkedBlockingQueue<>();
+        results.forEach(result -> result.thenAccept(completed::add));
+
+        // Every result completes within the batch timeout; the wait only guards against a result that never arrives
+        long waitNanos = batchService.getTimeout().plusSeconds(1).toNanos();
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                 SequenceWriter writer = objectMapper.writer().writeValuesAsArray(generator)) {
+                for (int i = 0; i < results.size(); i++) {
+                    BatchItemResponse result = completed.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (result == null) {
+                        logger.error("Batch from {} ended with {} of {} results", authentication.getName(), i,
+                                results.size());
+                        break;
+                    }
+                    writer.write(result);
+                    writer.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for batch results");
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
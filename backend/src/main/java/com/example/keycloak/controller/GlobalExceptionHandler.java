@@ -4,15 +4,18 @@ import com.example.keycloak.dto.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import org.springframework.web.context.request.WebRequest;
 
 /**
  * Global exception handler for the application.
+ * Used by both the servlet and reactive controllers.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -24,7 +27,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(InsufficientAuthenticationException.class)
     public ResponseEntity<ApiResponse<String>> handleAuthenticationException(
-            InsufficientAuthenticationException ex, WebRequest request) {
+            InsufficientAuthenticationException ex) {
         
         logger.warn("Authentication exception: {}", ex.getMessage());
         
@@ -32,12 +35,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
     }
 
+    /**
+     * Handle other authentication failures, such as rejected bearer tokens.
+     * These are expected under load from misbehaving clients, so no stack trace is logged.
+     */
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<ApiResponse<String>> handleAuthenticationFailure(
+            AuthenticationException ex) {
+        
+        logger.debug("Authentication failed: {}", ex.getMessage());
+        
+        ApiResponse<String> response = ApiResponse.error("Authentication failed");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
     /**
      * Handle access denied exceptions.
      */
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<ApiResponse<String>> handleAccessDeniedException(
-            AccessDeniedException ex, WebRequest request) {
+            AccessDeniedException ex) {
         
         logger.warn("Access denied: {}", ex.getMessage());
         
@@ -50,7 +67,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiResponse<String>> handleIllegalArgumentException(
-            IllegalArgumentException ex, WebRequest request) {
+            IllegalArgumentException ex) {
         
         logger.warn("Illegal argument: {}", ex.getMessage());
         
@@ -60,11 +77,19 @@ public class GlobalExceptionHandler {
 
     /**
      * Handle general exceptions.
+     * Framework exceptions that carry their own status, such as unknown paths (404) or
+     * unsupported methods (405), keep it instead of becoming a 500.
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<String>> handleGenericException(
-            Exception ex, WebRequest request) {
+            Exception ex) {
         
+        if (ex instanceof ErrorResponse errorResponse && errorResponse.getStatusCode().is4xxClientError()) {
+            HttpStatusCode status = errorResponse.getStatusCode();
+            logger.debug("Request rejected with {}: {}", status.value(), ex.getMessage());
+            return ResponseEntity.status(status).body(ApiResponse.error(ex.getMessage()));
+        }
+
         logger.error("Unexpected error occurred", ex);
         
         ApiResponse<String> response = ApiResponse.error("An internal error occurred");
@@ -1,14 +1,15 @@
 package com.example.keycloak.controller;
 
 import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.service.HealthService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -16,12 +17,17 @@ import java.util.Map;
  */
 @RestController
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class HealthController {
     
     private static final Logger logger = LoggerFactory.getLogger(HealthController.class);
     
-    @Value("${spring.application.name}")
-    private String applicationName;
+    private final HealthService healthService;
+
+    @Autowired
+    public HealthController(HealthService healthService) {
+        this.healthService = healthService;
+    }
 
     /**
      * Health check endpoint - publicly accessible.
@@ -32,12 +38,6 @@ public class HealthController {
     public ApiResponse<Map<String, Object>> health() {
         logger.debug("Health check requested");
         
-        Map<String, Object> healthData = new HashMap<>();
-        healthData.put("status", "UP");
-        healthData.put("application", applicationName);
-        healthData.put("timestamp", System.currentTimeMillis());
-        healthData.put("version", "1.0.0");
-        
-        return ApiResponse.success("Application is healthy", healthData);
+        return ApiResponse.success("Application is healthy", healthService.getHealth());
     }
 }
@@ -1,15 +1,23 @@
 package com.example.keycloak.controller;
 
 import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.service.ProtectedDataService;
+import com.example.keycloak.service.ProtectedDataStreamService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -17,42 +25,47 @@ import java.util.Map;
  */
 @RestController
 @RequestMapping("/api/protected")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ProtectedController {
     
     private static final Logger logger = LoggerFactory.getLogger(ProtectedController.class);
+    
+    // Let browsers keep the body but revalidate it with If-None-Match on every poll
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private final ProtectedDataService protectedDataService;
+    
+    private final ProtectedDataStreamService protectedDataStreamService;
+
+    @Autowired
+    public ProtectedController(ProtectedDataService protectedDataService,
+                               ProtectedDataStreamService protectedDataStreamService) {
+        this.protectedDataService = protectedDataService;
+        this.protectedDataStreamService = protectedDataStreamService;
+    }
 
     /**
      * Get protected data - requires authentication.
+     * Answers 304 Not Modified without building the payload when the client's
+     * If-None-Match matches the current entity tag.
      * 
      * @param authentication Spring Security authentication object
-     * @return API response with protected data
+     * @param request Current request, used for the conditional GET check
+     * @return API response with protected data, or null if not modified
      */
     @GetMapping("/data")
-    public ApiResponse<Map<String, Object>> getProtectedData(Authentication authentication) {
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getProtectedData(Authentication authentication,
+                                                                             WebRequest request) {
         logger.debug("Protected data requested by: {}", authentication.getName());
         
-        Map<String, Object> data = new HashMap<>();
-        data.put("message", "This is protected data from the backend!");
-        data.put("user", authentication.getName());
-        data.put("timestamp", LocalDateTime.now().toString());
-        data.put("authorities", authentication.getAuthorities());
-        data.put("accessLevel", "AUTHENTICATED_USER");
-        
-        // Add some sample data
-        Map<String, Object> sampleData = new HashMap<>();
-        sampleData.put("dashboardStats", Map.of(
-            "totalUsers", 1250,
-            "activeUsers", 850,
-            "systemHealth", "Excellent"
-        ));
-        sampleData.put("notifications", java.util.Arrays.asList(
-            "Welcome to the Keycloak Demo Application",
-            "Your authentication was successful",
-            "All systems are operational"
-        ));
-        data.put("sampleData", sampleData);
+        if (request.checkNotModified(protectedDataService.getProtectedDataETag(authentication))) {
+            return null;
+        }
         
-        return ApiResponse.success("Protected data retrieved successfully", data);
+        Map<String, Object> data = protectedDataService.getProtectedData(authentication);
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .body(ApiResponse.success("Protected data retrieved successfully", data));
     }
 
     /**
@@ -65,11 +78,21 @@ public class ProtectedController {
     public ApiResponse<Map<String, Object>> getServerTime(Authentication authentication) {
         logger.debug("Server time requested by: {}", authentication.getName());
         
-        Map<String, Object> timeData = new HashMap<>();
-        timeData.put("serverTime", LocalDateTime.now().toString());
-        timeData.put("timezone", java.time.ZoneId.systemDefault().toString());
-        timeData.put("requestedBy", authentication.getName());
-        
+        Map<String, Object> timeData = protectedDataService.getServerTime(authentication);
         return ApiResponse.success("Server time retrieved successfully", timeData);
     }
+
+    /**
+     * Stream protected data and server time as Server-Sent Events - requires authentication.
+     * Starts with a full snapshot, then pushes only what changes, and ends when the token expires.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Server-Sent Events stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamProtectedData(Authentication authentication) {
+        logger.debug("Protected data stream requested by: {}", authentication.getName());
+        
+        return protectedDataStreamService.stream(authentication);
+    }
 }
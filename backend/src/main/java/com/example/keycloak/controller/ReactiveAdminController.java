@@ -0,0 +1,78 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.dto.RevocationRequest;
+import com.example.keycloak.dto.SubjectActivityPage;
+import com.example.keycloak.security.Revocation;
+import com.example.keycloak.service.RevocationService;
+import com.example.keycloak.service.SubjectActivityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link AdminController}.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdminController {
+
+    private final RevocationService revocationService;
+    private final SubjectActivityService subjectActivityService;
+
+    @Autowired
+    public ReactiveAdminController(RevocationService revocationService, SubjectActivityService subjectActivityService) {
+        this.revocationService = revocationService;
+        this.subjectActivityService = subjectActivityService;
+    }
+
+    /**
+     * Revoke tokens by subject, session or token id on every node.
+     *
+     * @param request Identifiers of the tokens to revoke
+     * @param authentication Spring Security authentication object
+     * @return Mono emitting the API response with the applied revocation
+     */
+    @PostMapping("/revocations")
+    public Mono<ImmutableApiResponse<Revocation>> revoke(@RequestBody RevocationRequest request,
+                                                         Authentication authentication) {
+        return Mono.fromCallable(() -> ImmutableApiResponse.success("Tokens revoked",
+                revocationService.revoke(request, authentication.getName())));
+    }
+
+    /**
+     * List recently seen subjects, one page at a time.
+     *
+     * @param cursor Cursor from the previous page, or absent for the first page
+     * @param limit Maximum number of subjects per page
+     * @return Mono emitting the API response with the page
+     */
+    @GetMapping("/subjects")
+    public Mono<ImmutableApiResponse<SubjectActivityPage>> listSubjects(@RequestParam(required = false) String cursor,
+                                                                      @RequestParam(required = false) Integer limit) {
+        return Mono.fromCallable(() -> ImmutableApiResponse.success("Subjects retrieved",
+                subjectActivityService.page(cursor, limit)));
+    }
+
+    /**
+     * Stream all recently seen subjects as newline-delimited JSON.
+     *
+     * @return Flux emitting one JSON line per subject, in subject order
+     */
+    @GetMapping(path = "/subjects/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DataBuffer> streamSubjects() {
+        return Flux.fromStream(subjectActivityService::ndjson).map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+}
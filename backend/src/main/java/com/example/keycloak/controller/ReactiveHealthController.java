@@ -0,0 +1,45 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.service.HealthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Reactive counterpart of {@link HealthController}.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHealthController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveHealthController.class);
+    
+    private final HealthService healthService;
+
+    @Autowired
+    public ReactiveHealthController(HealthService healthService) {
+        this.healthService = healthService;
+    }
+
+    /**
+     * Health check endpoint - publicly accessible.
+     * 
+     * @return Mono emitting the API response with health status
+     */
+    @GetMapping("/health")
+    public Mono<ImmutableApiResponse<Map<String, Object>>> health() {
+        logger.debug("Health check requested");
+        
+        return Mono.fromSupplier(() -> ImmutableApiResponse.success("Application is healthy",
+                healthService.getHealth()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.service.ProtectedDataService;
+import com.example.keycloak.service.ProtectedDataStreamService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Reactive counterpart of {@link ProtectedController}.
+ */
+@RestController
+@RequestMapping("/api/protected")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProtectedController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProtectedController.class);
+    
+    private final ProtectedDataService protectedDataService;
+    
+    private final ProtectedDataStreamService protectedDataStreamService;
+
+    @Autowired
+    public ReactiveProtectedController(ProtectedDataService protectedDataService,
+                                       ProtectedDataStreamService protectedDataStreamService) {
+        this.protectedDataService = protectedDataService;
+        this.protectedDataStreamService = protectedDataStreamService;
+    }
+
+    /**
+     * Get protected data - requires authentication.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Mono emitting the API response with protected data
+     */
+    @GetMapping("/data")
+    public Mono<ImmutableApiResponse<Map<String, Object>>> getProtectedData(Authentication authentication) {
+        logger.debug("Protected data requested by: {}", authentication.getName());
+        
+        return Mono.fromSupplier(() -> ImmutableApiResponse.success("Protected data retrieved successfully",
+                protectedDataService.getProtectedData(authentication)));
+    }
+
+    /**
+     * Get server time - requires authentication.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Mono emitting the API response with server time
+     */
+    @GetMapping("/time")
+    public Mono<ImmutableApiResponse<Map<String, Object>>> getServerTime(Authentication authentication) {
+        logger.debug("Server time requested by: {}", authentication.getName());
+        
+        return Mono.fromSupplier(() -> ImmutableApiResponse.success("Server time retrieved successfully",
+                protectedDataService.getServerTime(authentication)));
+    }
+
+    /**
+     * Stream protected data and server time as Server-Sent Events - requires authentication.
+     * Starts with a full snapshot, then pushes only what changes, and ends when the token expires.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Server-Sent Events stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamProtectedData(Authentication authentication) {
+        logger.debug("Protected data stream requested by: {}", authentication.getName());
+        
+        return protectedDataStreamService.stream(authentication);
+    }
+}
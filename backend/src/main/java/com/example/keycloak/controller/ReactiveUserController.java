@@ -0,0 +1,50 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.service.ReactiveUserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link UserController}.
+ */
+@RestController
+@RequestMapping("/api/user")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+    
+    private final ReactiveUserService userService;
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Get current user's profile information.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Mono emitting the API response with user profile data
+     */
+    @GetMapping("/profile")
+    public Mono<ImmutableApiResponse<UserProfileDto>> getUserProfile(Authentication authentication) {
+        logger.debug("User profile requested for: {}", authentication.getName());
+        
+        return userService.getUserProfile(authentication)
+                .map(profile -> ImmutableApiResponse.success("User profile retrieved successfully", profile))
+                .onErrorResume(e -> {
+                    logger.error("Error retrieving user profile for: {}", authentication.getName(), e);
+                    return Mono.just(ImmutableApiResponse.error("Failed to retrieve user profile"));
+                });
+    }
+}
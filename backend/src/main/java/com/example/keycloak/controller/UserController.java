@@ -2,14 +2,19 @@ package com.example.keycloak.controller;
 
 import com.example.keycloak.dto.ApiResponse;
 import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.service.UserInfo;
 import com.example.keycloak.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Controller for user-related operations.
@@ -17,10 +22,14 @@ import org.springframework.web.bind.annotation.RestController;
  */
 @RestController
 @RequestMapping("/api/user")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
     
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
     
+    // Let browsers keep the body but revalidate it with If-None-Match on every poll
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
     private final UserService userService;
 
     @Autowired
@@ -30,20 +39,33 @@ public class UserController {
 
     /**
      * Get current user's profile information.
+     * Answers 304 Not Modified without building the profile when the client's
+     * If-None-Match matches the current entity tag.
      * 
      * @param authentication Spring Security authentication object
-     * @return API response with user profile data
+     * @param request Current request, used for the conditional GET check
+     * @return API response with user profile data, or null if not modified
      */
     @GetMapping("/profile")
-    public ApiResponse<UserProfileDto> getUserProfile(Authentication authentication) {
+    public ResponseEntity<ApiResponse<UserProfileDto>> getUserProfile(Authentication authentication,
+                                                                      WebRequest request) {
         logger.debug("User profile requested for: {}", authentication.getName());
         
         try {
-            UserProfileDto profile = userService.getUserProfile(authentication);
-            return ApiResponse.success("User profile retrieved successfully", profile);
+            // Resolved once, so the entity tag always describes the body sent with it
+            UserInfo userInfo = userService.getUserInfo(authentication);
+            String etag = userService.getUserProfileETag(authentication, userInfo);
+            if (etag != null && request.checkNotModified(etag)) {
+                return null;
+            }
+            
+            UserProfileDto profile = userService.getUserProfile(authentication, userInfo);
+            return ResponseEntity.ok()
+                    .cacheControl(REVALIDATE)
+                    .body(ApiResponse.success("User profile retrieved successfully", profile));
         } catch (Exception e) {
             logger.error("Error retrieving user profile for: {}", authentication.getName(), e);
-            return ApiResponse.error("Failed to retrieve user profile");
+            return ResponseEntity.ok(ApiResponse.error("Failed to retrieve user profile"));
         }
     }
 }
@@ -2,13 +2,16 @@ package com.example.keycloak.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Generic API response wrapper for consistent response format.
+ * Serialized by {@link ApiResponseSerializer}; see {@link ImmutableApiResponse} for the immutable variant.
  * 
  * @param <T> The type of data being returned
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonSerialize(using = ApiResponseSerializer.ForBean.class)
 public class ApiResponse<T> {
     
     @JsonProperty("success")
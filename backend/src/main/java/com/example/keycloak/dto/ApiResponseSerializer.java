@@ -0,0 +1,75 @@
+package com.example.keycloak.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Streaming serializers for {@link ApiResponse} and {@link ImmutableApiResponse}.
+ *
+ * The envelope is written field by field straight to the generator with pre-encoded
+ * field names, skipping bean introspection; only {@code data} goes through Jackson's
+ * regular serializers. Output matches the annotated bean: {@code success}, then
+ * {@code message}, {@code data} and {@code timestamp} when they are not null.
+ * Works for JSON and for binary formats such as Smile.
+ */
+public final class ApiResponseSerializer {
+
+    private static final SerializableString SUCCESS = new SerializedString("success");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString DATA = new SerializedString("data");
+    private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+
+    private ApiResponseSerializer() {
+    }
+
+    static void write(Object value, boolean success, String message, Object data, Long timestamp,
+                      JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(success);
+        if (message != null) {
+            gen.writeFieldName(MESSAGE);
+            gen.writeString(message);
+        }
+        if (data != null) {
+            gen.writeFieldName(DATA);
+            provider.defaultSerializeValue(data, gen);
+        }
+        if (timestamp != null) {
+            gen.writeFieldName(TIMESTAMP);
+            gen.writeNumber(timestamp);
+        }
+        gen.writeEndObject();
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class ForBean extends StdSerializer<ApiResponse> {
+
+        ForBean() {
+            super(ApiResponse.class);
+        }
+
+        @Override
+        public void serialize(ApiResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(value, value.isSuccess(), value.getMessage(), value.getData(), value.getTimestamp(), gen, provider);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class ForRecord extends StdSerializer<ImmutableApiResponse> {
+
+        ForRecord() {
+            super(ImmutableApiResponse.class);
+        }
+
+        @Override
+        public void serialize(ImmutableApiResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(value, value.success(), value.message(), value.data(), value.timestamp(), gen, provider);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.keycloak.dto;
+
+import com.example.keycloak.security.Revocation;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints for the API's JSON types, used by AOT-processed and native builds.
+ *
+ * Spring AOT registers controller return types on its own. These hints also cover bodies
+ * written straight through the ObjectMapper (security error and rate limit responses,
+ * batch results, stream events) and the serializers Jackson creates from
+ * {@code @JsonSerialize(using = ...)}.
+ */
+public class ApiRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                ApiResponse.class,
+                ImmutableApiResponse.class,
+                UserProfileDto.class,
+                CachedJsonObject.class,
+                BatchRequest.class,
+                BatchItemResponse.class,
+                RevocationRequest.class,
+                SubjectActivity.class,
+                SubjectActivityPage.class,
+                Revocation.class);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.keycloak.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Result of one batch sub-request.
+ *
+ * @param id Identifier of the sub-request
+ * @param path Path of the sub-request
+ * @param status HTTP status the endpoint would have answered with on its own
+ * @param body The endpoint's API response, or an error response
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResponse(String id, String path, int status, ApiResponse<?> body) {
+}
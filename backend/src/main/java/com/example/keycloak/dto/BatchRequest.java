@@ -0,0 +1,21 @@
+package com.example.keycloak.dto;
+
+import java.util.List;
+
+/**
+ * Body of a batch call: sub-requests executed under the caller's authentication.
+ *
+ * @param requests The sub-requests, answered in completion order
+ */
+public record BatchRequest(List<Item> requests) {
+
+    /**
+     * One sub-request.
+     *
+     * @param id Caller-chosen identifier echoed in the response; defaults to the item's index
+     * @param method HTTP method; only GET is supported, and is assumed when absent
+     * @param path Path of the endpoint, e.g. {@code /api/user/profile}
+     */
+    public record Item(String id, String method, String path) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.keycloak.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON object made of pre-encoded invariant fields and per-request fields.
+ *
+ * The invariant fields are serialized once into UTF-8 bytes (see {@link Fragment}) and
+ * copied verbatim into the output; only the per-request fields go through Jackson.
+ * The object still behaves as a read-only {@link Map} of all its fields.
+ */
+@JsonSerialize(using = CachedJsonObject.Serializer.class)
+public class CachedJsonObject extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> dynamicFields;
+    private final Fragment fragment;
+
+    public CachedJsonObject(Map<String, Object> dynamicFields, Fragment fragment) {
+        this.dynamicFields = dynamicFields;
+        this.fragment = fragment;
+    }
+
+    public Map<String, Object> getDynamicFields() {
+        return dynamicFields;
+    }
+
+    public Fragment getFragment() {
+        return fragment;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = dynamicFields.get(key);
+        return value != null ? value : fragment.fields().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return dynamicFields.containsKey(key) || fragment.fields().containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> dynamic = dynamicFields.entrySet().iterator();
+                Iterator<Entry<String, Object>> invariant = fragment.fields().entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return dynamic.hasNext() || invariant.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        return dynamic.hasNext() ? dynamic.next() : invariant.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return dynamicFields.size() + fragment.fields().size();
+            }
+        };
+    }
+
+    /**
+     * Invariant object fields together with their pre-encoded JSON form
+     * ({@code "name":value} pairs without the surrounding braces).
+     *
+     * @param fields The invariant fields
+     * @param encoded The fields encoded as UTF-8 JSON
+     * @param hash Content hash of the encoded bytes, used for ETags
+     */
+    public record Fragment(Map<String, Object> fields, SerializableString encoded, long hash) {
+
+        public static Fragment of(Map<String, Object> fields, String encodedFields) {
+            SerializedString encoded = new SerializedString(encodedFields);
+            // Encode eagerly so the bytes are ready before the first request
+            byte[] utf8 = encoded.asUnquotedUTF8();
+            return new Fragment(fields, encoded, ContentHash.create().add(utf8).value());
+        }
+    }
+
+    /**
+     * Writes per-request fields through Jackson, then the pre-encoded fragment as raw bytes.
+     * Generators that cannot take raw JSON (binary formats, token buffers) get the
+     * invariant fields serialized normally.
+     */
+    static class Serializer extends StdSerializer<CachedJsonObject> {
+
+        Serializer() {
+            super(CachedJsonObject.class);
+        }
+
+        @Override
+        public void serialize(CachedJsonObject value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            for (Map.Entry<String, Object> field : value.dynamicFields.entrySet()) {
+                gen.writeFieldName(field.getKey());
+                provider.defaultSerializeValue(field.getValue(), gen);
+            }
+
+            Fragment fragment = value.fragment;
+            if (gen instanceof JsonGeneratorImpl) {
+                writeRaw(fragment, !value.dynamicFields.isEmpty(), gen);
+            } else {
+                for (Map.Entry<String, Object> field : fragment.fields().entrySet()) {
+                    gen.writeFieldName(field.getKey());
+                    provider.defaultSerializeValue(field.getValue(), gen);
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        private static void writeRaw(Fragment fragment, boolean separator, JsonGenerator gen) throws IOException {
+            if (fragment.fields().isEmpty()) {
+                return;
+            }
+            if (separator) {
+                gen.writeRaw(',');
+            }
+            gen.writeRaw(fragment.encoded());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.keycloak.dto;
+
+/**
+ * Incremental 64-bit FNV-1a hash of response content, used to derive ETags.
+ *
+ * Values are length-prefixed so that e.g. ("ab", "c") and ("a", "bc") hash differently.
+ */
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    public static ContentHash create() {
+        return new ContentHash();
+    }
+
+    public ContentHash add(String value) {
+        if (value == null) {
+            return add(-1L);
+        }
+        add(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            mix(value.charAt(i));
+        }
+        return this;
+    }
+
+    public ContentHash add(long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            mix((int) (value >>> shift) & 0xff);
+        }
+        return this;
+    }
+
+    public ContentHash add(byte[] value) {
+        add(value.length);
+        for (byte b : value) {
+            mix(b & 0xff);
+        }
+        return this;
+    }
+
+    public long value() {
+        return hash;
+    }
+
+    /**
+     * Returns the hash as a weak entity tag. The tag is weak because the responses
+     * it describes also carry a timestamp that is left out of the hash.
+     */
+    public String toWeakETag() {
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    private void mix(int value) {
+        hash = (hash ^ value) * PRIME;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.keycloak.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Immutable variant of {@link ApiResponse} with the same JSON form.
+ * Safe to build on one thread and serialize on another, as the reactive controllers do.
+ * 
+ * @param success Whether the operation succeeded
+ * @param message Human readable outcome, may be null
+ * @param data The payload, may be null
+ * @param timestamp Creation time in epoch milliseconds
+ * @param <T> The type of data being returned
+ */
+@JsonSerialize(using = ApiResponseSerializer.ForRecord.class)
+public record ImmutableApiResponse<T>(boolean success, String message, T data, long timestamp) {
+
+    // Static factory methods for common responses; there is no no-arg success() as it
+    // would clash with the success() accessor
+    public static <T> ImmutableApiResponse<T> success(T data) {
+        return of(true, "Operation completed successfully", data);
+    }
+
+    public static <T> ImmutableApiResponse<T> success(String message, T data) {
+        return of(true, message, data);
+    }
+
+    public static <T> ImmutableApiResponse<T> error(String message) {
+        return of(false, message, null);
+    }
+
+    public static <T> ImmutableApiResponse<T> error(String message, T data) {
+        return of(false, message, data);
+    }
+
+    private static <T> ImmutableApiResponse<T> of(boolean success, String message, T data) {
+        return new ImmutableApiResponse<>(success, message, data, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.keycloak.dto;
+
+/**
+ * Body of a revocation call; at least one identifier is required.
+ *
+ * @param subject Revokes the subject's tokens issued until now
+ * @param sessionId Revokes the tokens of a Keycloak session ({@code sid} claim) issued until now
+ * @param tokenId Revokes a single token ({@code jti} claim)
+ */
+public record RevocationRequest(String subject, String sessionId, String tokenId) {
+}
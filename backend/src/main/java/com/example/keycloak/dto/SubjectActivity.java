@@ -0,0 +1,17 @@
+package com.example.keycloak.dto;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Snapshot of a subject seen recently by the authentication path.
+ *
+ * @param subject Token subject, or client id for tokens without one
+ * @param lastAccess Last authenticated request
+ * @param requests Authenticated requests since the subject was first seen
+ * @param roles Roles of the most recent token
+ * @param tokenExpiresAt Latest expiry among the subject's tokens, null if unknown
+ */
+public record SubjectActivity(String subject, Instant lastAccess, long requests, Set<String> roles,
+                              Instant tokenExpiresAt) {
+}
@@ -0,0 +1,12 @@
+package com.example.keycloak.dto;
+
+import java.util.List;
+
+/**
+ * One page of {@link SubjectActivity} in subject order.
+ *
+ * @param items Subjects on this page
+ * @param nextCursor Cursor for the next page, null on the last page
+ */
+public record SubjectActivityPage(List<SubjectActivity> items, String nextCursor) {
+}
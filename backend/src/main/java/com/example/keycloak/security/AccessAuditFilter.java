@@ -0,0 +1,103 @@
+package com.example.keycloak.security;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Records requests to the audited routes in the {@link AuditLog}.
+ *
+ * Runs before authentication and wraps the rest of the chain, so each event carries the
+ * final status, including {@code 401} for rejected tokens, {@code 429} from rate limiting
+ * and {@code 403} from the authorization rules. The caller is read once the chain has run,
+ * and is absent when the token was rejected.
+ *
+ * Asynchronous requests, such as the protected data stream, are recorded when the async
+ * processing completes, with the status and duration of the whole exchange.
+ */
+public class AccessAuditFilter extends OncePerRequestFilter {
+
+    private final AuditLog auditLog;
+
+    public AccessAuditFilter(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String pathInfo = request.getPathInfo();
+        String path = pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+        if (!auditLog.audits(PathContainer.parsePath(path))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+            async = request.isAsyncStarted();
+        } finally {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (async) {
+                request.getAsyncContext().addListener(
+                        new AsyncCompletionListener(request.getMethod(), path, response, authentication, start));
+            } else {
+                auditLog.record(request.getMethod(), path, status, authentication, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Records an asynchronous request once it completes, on whichever thread completes it.
+     */
+    private final class AsyncCompletionListener implements AsyncListener {
+
+        private final String method;
+        private final String path;
+        private final HttpServletResponse response;
+        private final Authentication authentication;
+        private final long start;
+
+        AsyncCompletionListener(String method, String path, HttpServletResponse response,
+                                Authentication authentication, long start) {
+            this.method = method;
+            this.path = path;
+            this.response = response;
+            this.authentication = authentication;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            auditLog.record(method, path, response.getStatus(), authentication, System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when async processing restarts on a later dispatch
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
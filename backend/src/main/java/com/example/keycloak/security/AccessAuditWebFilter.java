@@ -0,0 +1,72 @@
+package com.example.keycloak.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records exchanges with the audited routes in the {@link AuditLog}.
+ *
+ * Reactive counterpart of {@link AccessAuditFilter}: runs before authentication and records
+ * the final status once the exchange completes. The authenticated caller only exists in the
+ * Reactor context downstream of authentication, so {@link #callerCapture()} hands it back
+ * through an exchange attribute.
+ */
+public class AccessAuditWebFilter implements WebFilter {
+
+    private static final String CALLER_ATTRIBUTE = AccessAuditWebFilter.class.getName() + ".CALLER";
+
+    private final AuditLog auditLog;
+
+    public AccessAuditWebFilter(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!auditLog.audits(path)) {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        AtomicReference<Authentication> caller = new AtomicReference<>();
+        exchange.getAttributes().put(CALLER_ATTRIBUTE, caller);
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, path, caller.get(), signal, start));
+    }
+
+    /**
+     * Filter to register after authentication, passing the authenticated caller of audited
+     * exchanges to this filter.
+     */
+    public WebFilter callerCapture() {
+        return (exchange, chain) -> {
+            AtomicReference<Authentication> caller = exchange.getAttribute(CALLER_ATTRIBUTE);
+            if (caller == null) {
+                return chain.filter(exchange);
+            }
+            return ReactiveSecurityContextHolder.getContext()
+                    .doOnNext(context -> caller.set(context.getAuthentication()))
+                    .then(Mono.defer(() -> chain.filter(exchange)));
+        };
+    }
+
+    private void record(ServerWebExchange exchange, PathContainer path, Authentication authentication,
+                        SignalType signal, long start) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        int code = status != null ? status.value()
+                : signal == SignalType.ON_ERROR ? HttpStatus.INTERNAL_SERVER_ERROR.value() : HttpStatus.OK.value();
+        auditLog.record(exchange.getRequest().getMethod().name(), path.value(), code, authentication,
+                System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.keycloak.security;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on the number of API requests handled at once, with priority lanes.
+ *
+ * This limiter:
+ * - Learns the limit from request latency (a gradient algorithm): after each sample window
+ *   the limit is scaled by the ratio of the long-term to the window's average latency, so it
+ *   shrinks as soon as requests start to queue, and grows by about the square root of the
+ *   limit while latency holds
+ * - Only grows the limit when at least half of it was in use during the window, so idle
+ *   periods do not inflate it
+ * - Sheds requests over the limit instead of queueing them: the user lane may use the limit
+ *   minus a reserve kept for the admin lane, and the health lane has a fixed limit of its own
+ *   so health checks are never shed behind user traffic
+ * - Publishes the {@value #LIMIT} and {@value #IN_FLIGHT} gauges and {@value #SHED} counters
+ *   tagged with the lane
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public static final String LIMIT = "keycloak.concurrency.limit";
+    public static final String IN_FLIGHT = "keycloak.concurrency.in-flight";
+    public static final String SHED = "keycloak.concurrency.shed";
+
+    /**
+     * Returned by {@link #tryAcquire(Lane)} when the request is shed.
+     */
+    public static final long REJECTED = Long.MIN_VALUE;
+
+    private static final String ADMIN_AUTHORITY = KeycloakAuthorityExtractor.AUTHORITY_PREFIX + "ADMIN";
+
+    // Latency may grow this much over the long-term average before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    // Weight of each new window in the limit, to damp oscillation
+    private static final double SMOOTHING = 0.2;
+    // Windows averaged into the long-term latency
+    private static final int LONG_WINDOWS = 600;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    public enum Lane {
+        HEALTH, USER, ADMIN
+    }
+
+    /**
+     * Limits of the lanes.
+     *
+     * @param initial Limit before any latency has been observed
+     * @param min Lowest limit the algorithm may settle on
+     * @param max Highest limit the algorithm may settle on
+     * @param adminReserve Fraction of the limit only the admin lane may use
+     * @param health Fixed limit of the health lane
+     * @param retryAfterSeconds {@code Retry-After} sent with shed requests
+     */
+    public record Limits(int initial, int min, int max, double adminReserve, int health, int retryAfterSeconds) {
+
+        public Limits {
+            if (min < 1 || initial < min || max < initial) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+            }
+            if (adminReserve < 0 || adminReserve >= 1) {
+                throw new IllegalArgumentException("Admin reserve must be at least 0 and below 1");
+            }
+        }
+    }
+
+    private final PathPattern limitedPattern;
+    private final PathPattern healthPattern;
+    private final Limits limits;
+    private final Ticker ticker;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger healthInFlight = new AtomicInteger();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private final LongAdder windowNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowEnd;
+    private final Counter[] shed;
+    private volatile double limit;
+    private volatile double longLatencyNanos;
+
+    public AdaptiveConcurrencyLimiter(String limitedPattern, String healthPattern, Limits limits,
+                                      MeterRegistry meterRegistry) {
+        this(limitedPattern, healthPattern, limits, meterRegistry, Ticker.systemTicker());
+    }
+
+    public AdaptiveConcurrencyLimiter(String limitedPattern, String healthPattern, Limits limits,
+                                      MeterRegistry meterRegistry, Ticker ticker) {
+        this.limitedPattern = PathPatternParser.defaultInstance.parse(limitedPattern);
+        this.healthPattern = PathPatternParser.defaultInstance.parse(healthPattern);
+        this.limits = limits;
+        this.ticker = ticker;
+        this.limit = limits.initial();
+        this.windowEnd = new AtomicLong(ticker.read() + WINDOW_NANOS);
+
+        Gauge.builder(LIMIT, this, AdaptiveConcurrencyLimiter::limit)
+                .description("Requests the API currently handles at once before shedding")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("API requests being handled, health checks excluded")
+                .register(meterRegistry);
+        Lane[] lanes = Lane.values();
+        this.shed = new Counter[lanes.length];
+        for (Lane lane : lanes) {
+            shed[lane.ordinal()] = Counter.builder(SHED)
+                    .description("Requests rejected because the concurrency limit was reached")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Whether requests to the path are limited at all.
+     */
+    public boolean limits(PathContainer path) {
+        return limitedPattern.matches(path);
+    }
+
+    /**
+     * Returns the lane of a request to a limited path.
+     *
+     * @param path Request path within the application
+     * @param authentication The caller, or null if not authenticated
+     */
+    public Lane laneOf(PathContainer path, Authentication authentication) {
+        if (healthPattern.matches(path)) {
+            return Lane.HEALTH;
+        }
+        return isAdmin(authentication) ? Lane.ADMIN : Lane.USER;
+    }
+
+    /**
+     * Admits a request if its lane is below the limit.
+     *
+     * @return The start time to pass to {@link #release(Lane, long)}, or {@link #REJECTED}
+     */
+    public long tryAcquire(Lane lane) {
+        if (lane == Lane.HEALTH) {
+            if (!increment(healthInFlight, limits.health())) {
+                shed[lane.ordinal()].increment();
+                return REJECTED;
+            }
+            return ticker.read();
+        }
+        int current = limit();
+        int laneLimit = lane == Lane.ADMIN ? current
+                : Math.max(1, (int) (current * (1 - limits.adminReserve())));
+        if (!increment(inFlight, laneLimit)) {
+            shed[lane.ordinal()].increment();
+            return REJECTED;
+        }
+        return ticker.read();
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire(Lane)} and learns from its latency.
+     */
+    public void release(Lane lane, long start) {
+        release(lane);
+        if (lane != Lane.HEALTH) {
+            sample(ticker.read() - start);
+        }
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire(Lane)} whose latency says nothing about
+     * the load, e.g. one that failed or continues asynchronously.
+     */
+    public void release(Lane lane) {
+        (lane == Lane.HEALTH ? healthInFlight : inFlight).decrementAndGet();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int retryAfterSeconds() {
+        return limits.retryAfterSeconds();
+    }
+
+    private boolean increment(AtomicInteger counter, int max) {
+        for (;;) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                if (counter == inFlight && current + 1 > windowMaxInFlight.get()) {
+                    windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void sample(long latencyNanos) {
+        windowNanos.add(latencyNanos);
+        windowSamples.increment();
+        long end = windowEnd.get();
+        long now = ticker.read();
+        if (now - end >= 0 && windowSamples.sum() >= MIN_WINDOW_SAMPLES
+                && windowEnd.compareAndSet(end, now + WINDOW_NANOS)) {
+            // Samples added between the two resets land in the next window; that skew is harmless
+            long samples = windowSamples.sumThenReset();
+            long nanos = windowNanos.sumThenReset();
+            update((double) nanos / samples, windowMaxInFlight.getAndSet(inFlight.get()));
+        }
+    }
+
+    /**
+     * Adjusts the limit after a window; only called by the thread that closed the window.
+     */
+    private void update(double shortLatency, int maxInFlight) {
+        double longLatency = longLatencyNanos == 0 ? shortLatency
+                : longLatencyNanos + (shortLatency - longLatencyNanos) / LONG_WINDOWS;
+        if (longLatency > 2 * shortLatency) {
+            // Latency is back to normal after an overload: forget the overload faster than the average would
+            longLatency *= 0.95;
+        }
+        longLatencyNanos = longLatency;
+
+        double current = limit;
+        if (maxInFlight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(limits.min(), Math.min(limits.max(), next));
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        if (authentication instanceof KeycloakAuthenticationToken token) {
+            return token.getRoles().contains("ADMIN");
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (ADMIN_AUTHORITY.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.keycloak.security;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * One audited request: who reached which route, holding which authorities, and the outcome.
+ *
+ * @param timestamp Epoch milliseconds when the request completed
+ * @param method HTTP method
+ * @param path Path within the application
+ * @param status Response status
+ * @param subject Token subject (or client id), null for unauthenticated requests
+ * @param authorities Authorities held by the caller
+ * @param durationMicros Time spent in the security chain and controller
+ */
+public record AuditEvent(long timestamp, String method, String path, int status, String subject,
+                         Collection<String> authorities, int durationMicros) {
+
+    public Instant instant() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return instant() + " " + method + " " + path + " " + status + " "
+                + (subject != null ? subject : "-") + " " + authorities + " " + durationMicros + "us";
+    }
+}
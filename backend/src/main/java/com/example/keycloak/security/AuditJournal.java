@@ -0,0 +1,259 @@
+package com.example.keycloak.security;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit journal in memory-mapped segment files of fixed size.
+ *
+ * Each segment starts with a 16-byte header (magic, format version, creation time) followed
+ * by records of {@code [int length][int CRC32C][body]}. The body is written before its length,
+ * so a reader stops at the first zero length and never sees half a record; records are in the
+ * page cache, and survive a crash of the process, as soon as they are appended, and survive an
+ * operating system crash once {@link #force()} has run. A record that does not fit starts a
+ * new segment; the oldest segments beyond the retained count are deleted. On opening, appending
+ * resumes after the last intact record of the newest segment, so restarts do not leave
+ * mostly empty segments behind.
+ *
+ * Not thread-safe: appended to by a single writer thread, see {@link AuditLog}.
+ * JDK-only, like {@link AuditJournalReader}.
+ */
+public class AuditJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x41554454;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final int MAX_STRING_BYTES = 4096;
+
+    static final String[] METHODS = {null, "GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ByteBuffer scratch;
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer segment;
+    private long sequence;
+    private boolean dirty;
+
+    /**
+     * Opens the journal, appending to the newest segment if it has the same size, or starting
+     * a new segment after the existing ones otherwise.
+     *
+     * @param directory Directory of the segment files, created if missing
+     * @param segmentSize Size of each segment file in bytes
+     * @param maxSegments Segments kept, including the current one
+     */
+    public AuditJournal(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + 1024) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(maxSegments, 1);
+        this.scratch = ByteBuffer.allocate(Math.min(segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE, 1 << 20));
+
+        Files.createDirectories(directory);
+        List<Path> existing = AuditJournalReader.segments(directory);
+        if (existing.isEmpty()) {
+            roll();
+            return;
+        }
+        Path last = existing.get(existing.size() - 1);
+        this.sequence = sequenceOf(last);
+        if (!reopen(last)) {
+            roll();
+        }
+    }
+
+    /**
+     * Appends one record, starting a new segment if it does not fit.
+     *
+     * @return false if the record is larger than a segment and was skipped
+     * @throws UncheckedIOException if a new segment cannot be created
+     */
+    public boolean append(AuditEvent event) {
+        scratch.clear();
+        if (!encode(event, scratch)) {
+            return false;
+        }
+        scratch.flip();
+        int length = scratch.remaining();
+        if (segment.remaining() < RECORD_HEADER_SIZE + length) {
+            try {
+                roll();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        int position = segment.position();
+        segment.position(position + RECORD_HEADER_SIZE);
+        segment.put(scratch);
+        segment.putInt(position + 4, (int) crc.getValue());
+        // The length goes last: a zero length marks the end of the segment
+        segment.putInt(position, length);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Writes appended records through to the storage device.
+     */
+    public void force() {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            force();
+        }
+        sequence++;
+        Path file = directory.resolve(segmentName(sequence));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+        dirty = true;
+
+        List<Path> segments = AuditJournalReader.segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    /**
+     * Maps an existing segment and positions it after its last intact record.
+     *
+     * @return false if the segment has another size or format, and a new one must be started
+     */
+    private boolean reopen(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != segmentSize) {
+                return false;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return false;
+        }
+        buffer.getLong();
+
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(position);
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(buffer.position(), length));
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(position);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+        }
+
+        // Clear what a crash left of a partly written record, which readers stop at anyway
+        if (buffer.remaining() >= 4 && buffer.getInt(buffer.position()) != 0) {
+            int end = buffer.position();
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+            buffer.position(end);
+            dirty = true;
+        }
+        segment = buffer;
+        return true;
+    }
+
+    private static boolean encode(AuditEvent event, ByteBuffer out) {
+        try {
+            out.putLong(event.timestamp());
+            out.putInt(event.durationMicros());
+            out.putShort((short) event.status());
+            int method = methodCode(event.method());
+            out.put((byte) method);
+            if (method == 0) {
+                putString(out, event.method());
+            }
+            putString(out, event.path());
+            putString(out, event.subject());
+            out.putShort((short) Math.min(event.authorities().size(), Short.MAX_VALUE));
+            int written = 0;
+            for (String authority : event.authorities()) {
+                if (written++ == Short.MAX_VALUE) {
+                    break;
+                }
+                putString(out, authority);
+            }
+            return true;
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Unsigned short length and UTF-8 bytes, truncated to {@link #MAX_STRING_BYTES};
+     * 0xFFFF stands for null.
+     */
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) 0xFFFF);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static int methodCode(String method) {
+        for (int i = 1; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    static String segmentName(long sequence) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.keycloak.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the segments written by {@link AuditJournal}, oldest first.
+ *
+ * Works offline and on the segment being written: each segment is read up to its
+ * first zero length. A record with a bad length or checksum (a write torn by an
+ * operating system crash) ends its segment. JDK-only, so it runs from the plain jar
+ * without the application's dependencies, see {@link AuditQuery}.
+ */
+public final class AuditJournalReader {
+
+    private AuditJournalReader() {
+    }
+
+    /**
+     * Segment files in the directory, oldest first; none if it does not exist.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(AuditJournal.SEGMENT_PREFIX) && name.endsWith(AuditJournal.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Passes every record of every segment to the visitor, in order, until it returns false.
+     *
+     * @return The number of records visited
+     */
+    public static long read(Path directory, Predicate<AuditEvent> visitor) throws IOException {
+        long count = 0;
+        for (Path segment : segments(directory)) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.remaining() < AuditJournal.HEADER_SIZE || buffer.getInt() != AuditJournal.MAGIC
+                    || buffer.getInt() != AuditJournal.VERSION) {
+                continue;
+            }
+            buffer.getLong();
+
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= AuditJournal.RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                count++;
+                if (!visitor.test(decode(body))) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static AuditEvent decode(ByteBuffer in) {
+        long timestamp = in.getLong();
+        int durationMicros = in.getInt();
+        int status = Short.toUnsignedInt(in.getShort());
+        int methodCode = in.get();
+        String method = methodCode > 0 && methodCode < AuditJournal.METHODS.length
+                ? AuditJournal.METHODS[methodCode]
+                : getString(in);
+        String path = getString(in);
+        String subject = getString(in);
+        int count = in.getShort();
+        List<String> authorities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            authorities.add(getString(in));
+        }
+        return new AuditEvent(timestamp, method, path, status, subject, List.copyOf(authorities), durationMicros);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == 0xFFFF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit pipeline from the request path to the {@link AuditJournal}.
+ *
+ * Request threads put events on a lock-free queue and return; a single writer thread
+ * drains it in batches into the journal and forces the journal to disk at most once per
+ * force interval. An idle writer parks until a request wakes it with a new event, or until
+ * appended records are due to be forced. The queue is bounded: when the writer falls
+ * behind, new events are dropped and counted rather than slowing requests down.
+ * Authorities are captured as a view of the authentication's own (immutable) list and
+ * only encoded by the writer.
+ */
+public class AuditLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private final AuditJournal journal;
+    private final List<PathPattern> patterns;
+    private final int capacity;
+    private final int batchSize;
+    private final long forceIntervalNanos;
+    private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Thread writer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+
+    /**
+     * @param journal Journal the writer thread appends to
+     * @param paths Path patterns of the audited routes
+     * @param capacity Events queued before new ones are dropped
+     * @param batchSize Events appended per drain of the queue
+     * @param forceInterval Longest time appended records wait to be forced to disk
+     */
+    public AuditLog(AuditJournal journal, List<String> paths, int capacity, int batchSize, Duration forceInterval,
+                    MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.patterns = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.forceIntervalNanos = forceInterval.toNanos();
+        this.writer = Thread.ofPlatform().name("audit-writer").daemon().unstarted(this::drain);
+
+        this.written = Counter.builder("keycloak.audit.events").tag("outcome", "written")
+                .description("Audit events by outcome").register(meterRegistry);
+        this.dropped = Counter.builder("keycloak.audit.events").tag("outcome", "dropped")
+                .description("Audit events by outcome").register(meterRegistry);
+        this.failed = Counter.builder("keycloak.audit.events").tag("outcome", "failed")
+                .description("Audit events by outcome").register(meterRegistry);
+        Gauge.builder("keycloak.audit.queue", queued, AtomicInteger::get)
+                .description("Audit events waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Whether requests to the path are audited.
+     */
+    public boolean audits(PathContainer path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues an audit event for a completed request.
+     *
+     * @param method HTTP method
+     * @param path Path within the application
+     * @param status Response status
+     * @param authentication The caller, or null
+     * @param durationNanos Time spent handling the request
+     * @return false if the queue was full and the event dropped
+     */
+    public boolean record(String method, String path, int status, Authentication authentication, long durationNanos) {
+        boolean anonymous = authentication == null || authentication instanceof AnonymousAuthenticationToken;
+        return record(new AuditEvent(System.currentTimeMillis(), method, path, status,
+                anonymous ? null : SubjectRateLimiter.subjectOf(authentication),
+                anonymous ? List.of() : new AuthorityNames(authentication.getAuthorities()),
+                (int) Math.min(TimeUnit.NANOSECONDS.toMicros(durationNanos), Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Queues an audit event.
+     *
+     * @return false if the queue was full and the event dropped
+     */
+    public boolean record(AuditEvent event) {
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(event);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void drain() {
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        while (running || !queue.isEmpty()) {
+            int batch = 0;
+            AuditEvent event;
+            while (batch < batchSize && (event = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch++;
+                append(event);
+            }
+            unforced |= batch > 0;
+            long now = System.nanoTime();
+            if (unforced && now - lastForce >= forceIntervalNanos) {
+                force();
+                lastForce = now;
+                unforced = false;
+            }
+            if (batch == 0 && running) {
+                // Announce the park before the last look at the queue, so a new event either
+                // is seen here or unparks the writer
+                idle = true;
+                if (queue.isEmpty() && running) {
+                    if (unforced) {
+                        LockSupport.parkNanos(this, forceIntervalNanos - (now - lastForce));
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                idle = false;
+            }
+        }
+        force();
+    }
+
+    private void append(AuditEvent event) {
+        try {
+            if (journal.append(event)) {
+                written.increment();
+            } else {
+                failed.increment();
+            }
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.error("Failed to append audit event to {}", journal.directory(), e);
+        }
+    }
+
+    private void force() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            logger.error("Failed to force audit journal {} to disk", journal.directory(), e);
+        }
+    }
+
+    /**
+     * Stops the writer after it has drained the queue.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer.isAlive()) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        journal.close();
+    }
+
+    /**
+     * Authority names as a view over the authentication's authorities.
+     */
+    private static final class AuthorityNames extends AbstractCollection<String> {
+
+        private final Collection<? extends GrantedAuthority> authorities;
+
+        AuthorityNames(Collection<? extends GrantedAuthority> authorities) {
+            this.authorities = authorities;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            Iterator<? extends GrantedAuthority> iterator = authorities.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return iterator.next().getAuthority();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return authorities.size();
+        }
+    }
+}
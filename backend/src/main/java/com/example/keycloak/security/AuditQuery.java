@@ -0,0 +1,63 @@
+package com.example.keycloak.security;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Predicate;
+
+/**
+ * Command line query over an audit journal directory, needing only the plain backend jar:
+ *
+ * java -cp keycloak-demo-backend-1.0.0.jar com.example.keycloak.security.AuditQuery <directory> \
+ *      [--subject S] [--path-prefix P] [--status N] [--authority A] [--since T] [--until T] [--limit N]
+ *
+ * Times are ISO-8601 instants. Matching records are printed one per line, oldest first.
+ */
+public final class AuditQuery {
+
+    private AuditQuery() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.err.println("Usage: AuditQuery <directory> [--subject S] [--path-prefix P] [--status N]"
+                    + " [--authority A] [--since T] [--until T] [--limit N]");
+            System.exit(2);
+        }
+        Predicate<AuditEvent> filter = event -> true;
+        long limit = Long.MAX_VALUE;
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--subject" -> filter = filter.and(event -> value.equals(event.subject()));
+                case "--path-prefix" -> filter = filter.and(event -> event.path() != null && event.path().startsWith(value));
+                case "--status" -> {
+                    int status = Integer.parseInt(value);
+                    filter = filter.and(event -> event.status() == status);
+                }
+                case "--authority" -> filter = filter.and(event -> event.authorities().contains(value));
+                case "--since" -> {
+                    long since = Instant.parse(value).toEpochMilli();
+                    filter = filter.and(event -> event.timestamp() >= since);
+                }
+                case "--until" -> {
+                    long until = Instant.parse(value).toEpochMilli();
+                    filter = filter.and(event -> event.timestamp() < until);
+                }
+                case "--limit" -> limit = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Predicate<AuditEvent> matching = filter;
+        long max = limit;
+        long[] printed = {0};
+        long read = AuditJournalReader.read(Path.of(args[0]), event -> {
+            if (matching.test(event)) {
+                System.out.println(event);
+                printed[0]++;
+            }
+            return printed[0] < max;
+        });
+        System.err.println(printed[0] + " matching of " + read + " records read");
+    }
+}
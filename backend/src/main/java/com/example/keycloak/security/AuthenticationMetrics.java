@@ -0,0 +1,188 @@
+package com.example.keycloak.security;
+
+import com.nimbusds.jose.proc.BadJWSException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Micrometer instrumentation of bearer token authentication.
+ *
+ * Publishes:
+ * - {@value #STAGE_TIMER} timers tagged {@code stage=token.decode} and {@code stage=authorities.convert}
+ * - {@value #REJECTIONS} counters tagged with the {@link RejectionReason} and the
+ *   {@link RejectionStage} that caught the token
+ *
+ * Token cache hits and misses are published by {@link VerifiedTokenCache}, JWKS fetches
+ * by {@link JwksKeyStore}.
+ */
+public class AuthenticationMetrics {
+
+    /**
+     * Timer shared by every request stage, distinguished by its {@code stage} tag.
+     */
+    public static final String STAGE_TIMER = "keycloak.request.stage";
+
+    public static final String REJECTIONS = "keycloak.auth.rejections";
+
+    /**
+     * Why a bearer token was rejected.
+     */
+    public enum RejectionReason {
+        MALFORMED("malformed"),
+        UNSUPPORTED_ALGORITHM("unsupported_alg"),
+        INVALID_SIGNATURE("invalid_signature"),
+        UNKNOWN_KEY("unknown_key"),
+        EXPIRED("expired"),
+        INVALID_ISSUER("invalid_issuer"),
+        INVALID_CLAIMS("invalid_claims"),
+        INVALID_TOKEN("invalid_token"),
+        DECODER_ERROR("decoder_error"),
+        REVOKED("revoked");
+
+        private final String tag;
+
+        RejectionReason(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Where a bearer token was rejected.
+     */
+    public enum RejectionStage {
+        /** Structural checks before any signature verification. */
+        PRECHECK("precheck"),
+        /** Recently rejected token seen again. */
+        CACHED("cached"),
+        /** Full decoding and validation. */
+        DECODE("decode"),
+        /** Valid token matched by a revocation. */
+        REVOCATION("revocation");
+
+        private final String tag;
+
+        RejectionStage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Timer decodeTimer;
+    private final Timer convertTimer;
+    private final Map<RejectionStage, Map<RejectionReason, Counter>> rejections = new EnumMap<>(RejectionStage.class);
+
+    public AuthenticationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.decodeTimer = stageTimer(meterRegistry, "token.decode");
+        this.convertTimer = stageTimer(meterRegistry, "authorities.convert");
+        for (RejectionStage stage : RejectionStage.values()) {
+            Map<RejectionReason, Counter> counters = new EnumMap<>(RejectionReason.class);
+            for (RejectionReason reason : RejectionReason.values()) {
+                counters.put(reason, Counter.builder(REJECTIONS)
+                        .description("Bearer tokens rejected during authentication")
+                        .tag("reason", reason.tag())
+                        .tag("stage", stage.tag())
+                        .register(meterRegistry));
+            }
+            rejections.put(stage, counters);
+        }
+    }
+
+    /**
+     * Creates the timer of one request stage.
+     *
+     * @param meterRegistry Registry to register the timer with
+     * @param stage Value of the {@code stage} tag
+     * @return The stage timer
+     */
+    public static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Time spent in each stage of request processing")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    public Timer decodeTimer() {
+        return decodeTimer;
+    }
+
+    public Timer convertTimer() {
+        return convertTimer;
+    }
+
+    public Timer.Sample startSample() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void rejected(RejectionStage stage, RejectionReason reason) {
+        rejections.get(stage).get(reason).increment();
+    }
+
+    /**
+     * Derives the rejection reason from an exception thrown by the JWT decoder: the reason
+     * stated by {@link InvalidJwtException}s and by validation {@link RejectionError}s, or
+     * the type of the Nimbus exception that Spring's Nimbus decoders keep as the cause.
+     *
+     * @param e Exception thrown by the JWT decoder
+     * @return The rejection reason
+     */
+    public static RejectionReason reasonOf(JwtException e) {
+        if (e instanceof InvalidJwtException invalid) {
+            return invalid.reason();
+        }
+        if (e instanceof JwtValidationException validation) {
+            for (OAuth2Error error : validation.getErrors()) {
+                if (error instanceof RejectionError rejection) {
+                    return rejection.reason();
+                }
+            }
+            return RejectionReason.INVALID_CLAIMS;
+        }
+        if (!(e instanceof BadJwtException)) {
+            return RejectionReason.DECODER_ERROR;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseException) {
+                return RejectionReason.MALFORMED;
+            }
+            if (cause instanceof BadJWSException) {
+                return RejectionReason.INVALID_SIGNATURE;
+            }
+        }
+        return RejectionReason.INVALID_TOKEN;
+    }
+
+    /**
+     * Validation error that states which {@link RejectionReason} it stands for.
+     */
+    public static final class RejectionError extends OAuth2Error {
+
+        private final RejectionReason reason;
+
+        public RejectionError(RejectionReason reason, OAuth2Error error) {
+            super(error.getErrorCode(), error.getDescription(), error.getUri());
+            this.reason = reason;
+        }
+
+        public RejectionReason reason() {
+            return reason;
+        }
+    }
+}
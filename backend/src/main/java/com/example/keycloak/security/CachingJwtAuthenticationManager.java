@@ -0,0 +1,134 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.example.keycloak.security.AuthenticationMetrics.RejectionStage;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+/**
+ * Authentication manager for bearer tokens that skips JWT decoding for tokens it has
+ * already verified.
+ *
+ * On a cache miss the token is decoded (signature and claim validation) and converted
+ * exactly like Spring's {@code JwtAuthenticationProvider} would; the result is then
+ * stored in the {@link VerifiedTokenCache} until the token expires. Each request gets a new
+ * authentication carrying its own details. Tokens that are malformed, expired or were
+ * recently rejected are turned away by the {@link InvalidTokenGuard} before any signature
+ * check. Decoding and conversion time
+ * and rejection reasons are recorded in {@link AuthenticationMetrics}.
+ *
+ * In a cluster, a miss first looks for the token among those verified by other nodes,
+ * and tokens verified here are shared through {@link ClusterSync}. Revoked tokens are
+ * rejected whether they were cached, shared or just decoded. Successful authentications
+ * are recorded in the {@link SubjectActivityIndex}, if there is one.
+ */
+public class CachingJwtAuthenticationManager implements AuthenticationManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingJwtAuthenticationManager.class);
+
+    private final JwtDecoder jwtDecoder;
+    private final Converter<Jwt, ? extends AbstractAuthenticationToken> authenticationConverter;
+    private final VerifiedTokenCache tokenCache;
+    private final InvalidTokenGuard invalidTokenGuard;
+    private final AuthenticationMetrics metrics;
+    private final ClusterSync clusterSync;
+    private final SubjectActivityIndex activityIndex;
+
+    public CachingJwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                           Converter<Jwt, ? extends AbstractAuthenticationToken> authenticationConverter,
+                                           VerifiedTokenCache tokenCache,
+                                           InvalidTokenGuard invalidTokenGuard,
+                                           AuthenticationMetrics metrics,
+                                           ClusterSync clusterSync,
+                                           SubjectActivityIndex activityIndex) {
+        this.jwtDecoder = jwtDecoder;
+        this.authenticationConverter = authenticationConverter;
+        this.tokenCache = tokenCache;
+        this.invalidTokenGuard = invalidTokenGuard;
+        this.metrics = metrics;
+        this.clusterSync = clusterSync;
+        this.activityIndex = activityIndex;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return null;
+        }
+
+        String tokenHash = TokenHash.of(bearer.getToken());
+        VerifiedTokenCache.VerifiedToken cached = tokenCache.get(tokenHash);
+        if (cached != null) {
+            checkNotRevoked(tokenHash, cached.jwt());
+            AbstractAuthenticationToken result = cached.newAuthentication(bearer.getDetails());
+            recordActivity(result);
+            return result;
+        }
+
+        RejectedTokenException rejection = invalidTokenGuard.check(tokenHash, bearer.getToken());
+        if (rejection != null) {
+            throw rejection;
+        }
+
+        // Bounded by the cluster lookup timeout
+        Jwt shared = clusterSync.findVerifiedToken(tokenHash).join();
+        Jwt jwt = shared != null ? shared : decode(tokenHash, bearer.getToken());
+        checkNotRevoked(tokenHash, jwt);
+        if (shared == null) {
+            clusterSync.shareVerifiedToken(tokenHash, jwt);
+        }
+
+        AbstractAuthenticationToken converted =
+                metrics.convertTimer().record(() -> authenticationConverter.convert(jwt));
+        if (converted == null) {
+            throw new AuthenticationServiceException("JWT authentication converter returned null");
+        }
+
+        VerifiedTokenCache.VerifiedToken verified = new VerifiedTokenCache.VerifiedToken(jwt, converted);
+        tokenCache.put(tokenHash, verified);
+        AbstractAuthenticationToken result = verified.newAuthentication(bearer.getDetails());
+        recordActivity(result);
+        return result;
+    }
+
+    private void recordActivity(Authentication authentication) {
+        if (activityIndex != null) {
+            activityIndex.record(authentication);
+        }
+    }
+
+    private void checkNotRevoked(String tokenHash, Jwt jwt) {
+        if (clusterSync.isRevoked(jwt)) {
+            tokenCache.invalidate(tokenHash);
+            metrics.rejected(RejectionStage.REVOCATION, RejectionReason.REVOKED);
+            throw new RejectedTokenException(RejectionReason.REVOKED);
+        }
+    }
+
+    private Jwt decode(String tokenHash, String token) {
+        Timer.Sample sample = metrics.startSample();
+        try {
+            return jwtDecoder.decode(token);
+        } catch (BadJwtException e) {
+            logger.debug("Failed to authenticate since the JWT was invalid: {}", e.getMessage());
+            throw invalidTokenGuard.rejectedByDecoder(tokenHash, e);
+        } catch (JwtException e) {
+            metrics.rejected(RejectionStage.DECODE, RejectionReason.DECODER_ERROR);
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        } finally {
+            sample.stop(metrics.decodeTimer());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.example.keycloak.security.AuthenticationMetrics.RejectionStage;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link CachingJwtAuthenticationManager}.
+ *
+ * A cache hit completes immediately; invalid tokens caught by the {@link InvalidTokenGuard}
+ * fail immediately; anything else is decoded with a non-blocking {@link ReactiveJwtDecoder}
+ * and stored in the shared {@link VerifiedTokenCache}. The lookup among tokens verified
+ * by other nodes, the revocation checks and subject activity recording match the servlet manager.
+ */
+public class CachingReactiveJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final Converter<Jwt, ? extends AbstractAuthenticationToken> authenticationConverter;
+    private final VerifiedTokenCache tokenCache;
+    private final InvalidTokenGuard invalidTokenGuard;
+    private final AuthenticationMetrics metrics;
+    private final ClusterSync clusterSync;
+    private final SubjectActivityIndex activityIndex;
+
+    public CachingReactiveJwtAuthenticationManager(ReactiveJwtDecoder jwtDecoder,
+                                                   Converter<Jwt, ? extends AbstractAuthenticationToken> authenticationConverter,
+                                                   VerifiedTokenCache tokenCache,
+                                                   InvalidTokenGuard invalidTokenGuard,
+                                                   AuthenticationMetrics metrics,
+                                                   ClusterSync clusterSync,
+                                                   SubjectActivityIndex activityIndex) {
+        this.jwtDecoder = jwtDecoder;
+        this.authenticationConverter = authenticationConverter;
+        this.tokenCache = tokenCache;
+        this.invalidTokenGuard = invalidTokenGuard;
+        this.metrics = metrics;
+        this.clusterSync = clusterSync;
+        this.activityIndex = activityIndex;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return Mono.empty();
+        }
+
+        String tokenHash = TokenHash.of(bearer.getToken());
+        VerifiedTokenCache.VerifiedToken cached = tokenCache.get(tokenHash);
+        if (cached != null) {
+            RejectedTokenException revoked = checkNotRevoked(tokenHash, cached.jwt());
+            if (revoked != null) {
+                return Mono.error(revoked);
+            }
+            AbstractAuthenticationToken result = cached.newAuthentication(bearer.getDetails());
+            recordActivity(result);
+            return Mono.just(result);
+        }
+
+        RejectedTokenException rejection = invalidTokenGuard.check(tokenHash, bearer.getToken());
+        if (rejection != null) {
+            return Mono.error(rejection);
+        }
+
+        Mono<Jwt> decoded = Mono.defer(() -> decode(bearer.getToken()))
+                .onErrorMap(BadJwtException.class, e -> invalidTokenGuard.rejectedByDecoder(tokenHash, e))
+                .onErrorMap(JwtException.class, e -> {
+                    metrics.rejected(RejectionStage.DECODE, RejectionReason.DECODER_ERROR);
+                    return new AuthenticationServiceException(e.getMessage(), e);
+                })
+                .flatMap(jwt -> {
+                    RejectedTokenException revoked = checkNotRevoked(tokenHash, jwt);
+                    if (revoked != null) {
+                        return Mono.error(revoked);
+                    }
+                    clusterSync.shareVerifiedToken(tokenHash, jwt);
+                    return Mono.just(jwt);
+                });
+
+        return Mono.fromFuture(() -> clusterSync.findVerifiedToken(tokenHash))
+                .flatMap(jwt -> {
+                    RejectedTokenException revoked = checkNotRevoked(tokenHash, jwt);
+                    return revoked != null ? Mono.<Jwt>error(revoked) : Mono.just(jwt);
+                })
+                .switchIfEmpty(decoded)
+                .map(jwt -> {
+                    AbstractAuthenticationToken converted =
+                            metrics.convertTimer().record(() -> authenticationConverter.convert(jwt));
+                    if (converted == null) {
+                        throw new AuthenticationServiceException("JWT authentication converter returned null");
+                    }
+                    VerifiedTokenCache.VerifiedToken verified = new VerifiedTokenCache.VerifiedToken(jwt, converted);
+                    tokenCache.put(tokenHash, verified);
+                    AbstractAuthenticationToken result = verified.newAuthentication(bearer.getDetails());
+                    recordActivity(result);
+                    return result;
+                });
+    }
+
+    private void recordActivity(Authentication authentication) {
+        if (activityIndex != null) {
+            activityIndex.record(authentication);
+        }
+    }
+
+    private RejectedTokenException checkNotRevoked(String tokenHash, Jwt jwt) {
+        if (!clusterSync.isRevoked(jwt)) {
+            return null;
+        }
+        tokenCache.invalidate(tokenHash);
+        metrics.rejected(RejectionStage.REVOCATION, RejectionReason.REVOKED);
+        return new RejectedTokenException(RejectionReason.REVOKED);
+    }
+
+    private Mono<Jwt> decode(String token) {
+        Timer.Sample sample = metrics.startSample();
+        // The decoder may throw while parsing, so defer to turn that into an error signal
+        return Mono.defer(() -> jwtDecoder.decode(token))
+                .doFinally(signal -> sample.stop(metrics.decodeTimer()));
+    }
+}
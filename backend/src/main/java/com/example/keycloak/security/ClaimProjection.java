@@ -0,0 +1,37 @@
+package com.example.keycloak.security;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Top-level claims kept by the {@link ProjectedJwtDecoder}.
+ *
+ * Claims outside the projection are skipped while the payload is scanned and never
+ * become Java objects; claims inside it are object values parsed only when first read.
+ *
+ * @param claims Claim names
+ */
+public record ClaimProjection(Set<String> claims) {
+
+    public ClaimProjection {
+        claims = Set.copyOf(claims);
+    }
+
+    public static ClaimProjection of(String... claims) {
+        return new ClaimProjection(Set.of(claims));
+    }
+
+    /**
+     * Returns a projection with the given claims added.
+     */
+    public ClaimProjection with(Collection<String> more) {
+        Set<String> union = new LinkedHashSet<>(claims);
+        union.addAll(more);
+        return new ClaimProjection(union);
+    }
+
+    public boolean includes(String claim) {
+        return claims.contains(claim);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Connects a backend node to its peers: a shared tier of verified tokens behind each
+ * node's {@link VerifiedTokenCache}, and events that keep the nodes' key sets and
+ * revocations in step.
+ *
+ * Implementations must not block the calling request thread for remote calls.
+ */
+public interface ClusterBus extends AutoCloseable {
+
+    /**
+     * Unique id of this node, used as the origin of published events.
+     */
+    String nodeId();
+
+    /**
+     * Looks up a token verified by any node.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @return Future completing with the verified token, or null if no node has it
+     */
+    CompletableFuture<Jwt> findVerifiedToken(String tokenHash);
+
+    /**
+     * Shares a token this node verified, for the given time to live.
+     */
+    void shareVerifiedToken(String tokenHash, Jwt jwt, Duration ttl);
+
+    /**
+     * Delivers an event to every other node. Revocations are also retained for nodes
+     * that join later.
+     */
+    void publish(ClusterEvent event);
+
+    /**
+     * Revocations retained in the cluster, read once when a node starts.
+     */
+    List<Revocation> revocations();
+
+    /**
+     * Registers a listener for events published by other nodes.
+     */
+    void subscribe(Consumer<ClusterEvent> listener);
+
+    @Override
+    void close();
+
+    /**
+     * A bus for a single node: nothing is shared and no events are delivered.
+     */
+    static ClusterBus standalone() {
+        return new StandaloneClusterBus();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.keycloak.security;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Event exchanged between backend nodes through a {@link ClusterBus}.
+ */
+public sealed interface ClusterEvent extends Serializable {
+
+    /**
+     * Id of the node that published the event.
+     */
+    String origin();
+
+    /**
+     * A node fetched a JWKS key set with different keys, typically after a key rotation.
+     * Only the {@code kid}s are sent: receivers fetch the keys from the identity provider.
+     *
+     * @param keyIds The {@code kid}s of the fetched key set
+     */
+    record JwksChanged(String origin, Set<String> keyIds) implements ClusterEvent {
+
+        public JwksChanged {
+            keyIds = Set.copyOf(keyIds);
+        }
+    }
+
+    /**
+     * Tokens were revoked on a node.
+     */
+    record TokensRevoked(String origin, Revocation revocation) implements ClusterEvent {
+    }
+}
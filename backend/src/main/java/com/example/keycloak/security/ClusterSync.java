@@ -0,0 +1,210 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps this node's verified tokens, JWKS key set and revocations in step with its peers
+ * through a {@link ClusterBus}.
+ *
+ * This class:
+ * - Looks up tokens verified by other nodes before decoding, waiting at most the lookup timeout
+ * - Shares tokens verified on this node until they expire
+ * - Publishes the {@code kid}s of fetched key sets with new keys, and refetches the key set from
+ *   the identity provider when a peer reports {@code kid}s this node does not know
+ * - Applies revocations locally, evicts the tokens they match and publishes them
+ * - Publishes {@code keycloak.cluster.token-lookups} (by outcome) and {@code keycloak.cluster.events}
+ *   (by direction) counters
+ *
+ * Any failure of the bus counts as a miss, so authentication falls back to local decoding.
+ * Tokens found in the shared tier are trusted as verified, so every member of the cluster
+ * must be trusted: run it on a private, authenticated network only.
+ */
+public class ClusterSync implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterSync.class);
+
+    private static final CompletableFuture<Jwt> MISS = CompletableFuture.completedFuture(null);
+
+    private final ClusterBus bus;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocations revocations;
+    private final JwksKeyStore keyStore;
+    private final Duration lookupTimeout;
+    private final boolean shareVerifiedTokens;
+    private final Clock clock;
+
+    private final LongAdder lookupHits = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder eventsReceived = new LongAdder();
+
+    public ClusterSync(ClusterBus bus, VerifiedTokenCache tokenCache, TokenRevocations revocations,
+                       JwksKeyStore keyStore, Duration lookupTimeout, boolean shareVerifiedTokens) {
+        this(bus, tokenCache, revocations, keyStore, lookupTimeout, shareVerifiedTokens, Clock.systemUTC());
+    }
+
+    /**
+     * @param keyStore Key store to keep in step with the peers, or null to leave key sets alone
+     * @param shareVerifiedTokens Whether verified tokens go to the shared tier; events flow either way
+     */
+    public ClusterSync(ClusterBus bus, VerifiedTokenCache tokenCache, TokenRevocations revocations,
+                       JwksKeyStore keyStore, Duration lookupTimeout, boolean shareVerifiedTokens, Clock clock) {
+        this.bus = bus;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        this.keyStore = keyStore;
+        this.lookupTimeout = lookupTimeout;
+        this.shareVerifiedTokens = shareVerifiedTokens;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the revocations retained in the cluster and starts exchanging events.
+     */
+    public void start() {
+        try {
+            bus.revocations().forEach(revocations::add);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load cluster revocations: {}", e.getMessage());
+        }
+        bus.subscribe(this::onEvent);
+        if (keyStore != null) {
+            keyStore.onKeySetChanged(keyIds -> publish(new ClusterEvent.JwksChanged(bus.nodeId(), keyIds)));
+        }
+    }
+
+    /**
+     * Looks up a token verified by another node.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @return Future completing with the unexpired token, or null on a miss, a failure or the timeout
+     */
+    public CompletableFuture<Jwt> findVerifiedToken(String tokenHash) {
+        if (!shareVerifiedTokens) {
+            return MISS;
+        }
+        CompletableFuture<Jwt> lookup;
+        try {
+            lookup = bus.findVerifiedToken(tokenHash);
+        } catch (RuntimeException e) {
+            lookupMisses.increment();
+            return MISS;
+        }
+        return lookup
+                .exceptionally(error -> null)
+                .completeOnTimeout(null, lookupTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(jwt -> {
+                    if (jwt == null || isExpired(jwt)) {
+                        lookupMisses.increment();
+                        return null;
+                    }
+                    lookupHits.increment();
+                    return jwt;
+                });
+    }
+
+    /**
+     * Shares a token verified on this node until it expires.
+     */
+    public void shareVerifiedToken(String tokenHash, Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (!shareVerifiedTokens || expiresAt == null) {
+            return;
+        }
+        Duration ttl = Duration.between(clock.instant(), expiresAt);
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        try {
+            bus.shareVerifiedToken(tokenHash, jwt, ttl);
+        } catch (RuntimeException e) {
+            logger.debug("Failed to share verified token: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a revocation known to this node matches the token.
+     */
+    public boolean isRevoked(Jwt jwt) {
+        return revocations.isRevoked(jwt);
+    }
+
+    /**
+     * Revokes tokens on this node and on every peer.
+     */
+    public void revoke(Revocation revocation) {
+        apply(revocation);
+        publish(new ClusterEvent.TokensRevoked(bus.nodeId(), revocation));
+    }
+
+    public String nodeId() {
+        return bus.nodeId();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("keycloak.cluster.token-lookups", lookupHits, LongAdder::sum)
+                .description("Lookups of tokens verified by other nodes")
+                .tag("outcome", "hit")
+                .register(registry);
+        FunctionCounter.builder("keycloak.cluster.token-lookups", lookupMisses, LongAdder::sum)
+                .description("Lookups of tokens verified by other nodes")
+                .tag("outcome", "miss")
+                .register(registry);
+        FunctionCounter.builder("keycloak.cluster.events", eventsSent, LongAdder::sum)
+                .description("Events exchanged with other nodes")
+                .tag("direction", "sent")
+                .register(registry);
+        FunctionCounter.builder("keycloak.cluster.events", eventsReceived, LongAdder::sum)
+                .description("Events exchanged with other nodes")
+                .tag("direction", "received")
+                .register(registry);
+    }
+
+    private void onEvent(ClusterEvent event) {
+        eventsReceived.increment();
+        switch (event) {
+            case ClusterEvent.JwksChanged changed -> {
+                if (keyStore == null) {
+                    return;
+                }
+                // Keys are never taken from a peer, only fetched again from the identity provider
+                if (keyStore.refreshForKeyIds(changed.keyIds())) {
+                    logger.debug("Refreshing JWKS after node {} reported new keys", changed.origin());
+                }
+            }
+            case ClusterEvent.TokensRevoked revoked -> apply(revoked.revocation());
+        }
+    }
+
+    private void apply(Revocation revocation) {
+        revocations.add(revocation);
+        tokenCache.invalidateIf(revocation::matches);
+    }
+
+    private void publish(ClusterEvent event) {
+        try {
+            bus.publish(event);
+            eventsSent.increment();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to publish {} to the cluster: {}", event.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    private boolean isExpired(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && !clock.instant().isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link AdaptiveConcurrencyLimiter} to servlet requests.
+ *
+ * Runs after authentication, so the caller's lane is known, and wraps authorization and the
+ * controller. Requests over their lane's limit are answered at once with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header instead of waiting for a
+ * request thread. A request holds its slot until the request thread is done with it; the
+ * latency of requests that continue asynchronously, such as streams, is not learned from.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String pathInfo = request.getPathInfo();
+        String path = pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        if (!limiter.limits(pathContainer)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter.Lane lane =
+                limiter.laneOf(pathContainer, SecurityContextHolder.getContext().getAuthentication());
+        long start = limiter.tryAcquire(lane);
+        if (start == AdaptiveConcurrencyLimiter.REJECTED) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(limiter.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Server overloaded"));
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = !request.isAsyncStarted();
+        } finally {
+            if (completed) {
+                limiter.release(lane, start);
+            } else {
+                limiter.release(lane);
+            }
+        }
+    }
+}
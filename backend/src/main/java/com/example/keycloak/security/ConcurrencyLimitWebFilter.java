@@ -0,0 +1,80 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies the {@link AdaptiveConcurrencyLimiter} to reactive exchanges.
+ *
+ * Reactive counterpart of {@link ConcurrencyLimitFilter}: runs after authentication and
+ * answers exchanges over their lane's limit with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header. An exchange holds its slot until its response is committed,
+ * so streams only count until their first element; exchanges that end without a committed
+ * response, e.g. on error or cancellation, are not learned from.
+ */
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitWebFilter(AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!limiter.limits(path)) {
+            return chain.filter(exchange);
+        }
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(authentication -> limit(exchange, chain, limiter.laneOf(path, authentication.orElse(null))));
+    }
+
+    private Mono<Void> limit(ServerWebExchange exchange, WebFilterChain chain, AdaptiveConcurrencyLimiter.Lane lane) {
+        long start = limiter.tryAcquire(lane);
+        if (start == AdaptiveConcurrencyLimiter.REJECTED) {
+            return serviceUnavailable(exchange.getResponse());
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        exchange.getResponse().beforeCommit(() -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(lane, start);
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange).doFinally(signal -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(lane);
+            }
+        });
+    }
+
+    private Mono<Void> serviceUnavailable(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Integer.toString(limiter.retryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromCallable(() -> response.bufferFactory()
+                .wrap(objectMapper.writeValueAsBytes(ImmutableApiResponse.error("Server overloaded")))));
+    }
+}
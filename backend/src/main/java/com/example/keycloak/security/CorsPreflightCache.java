@@ -0,0 +1,113 @@
+package com.example.keycloak.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Precomputed responses to allowed CORS preflight requests.
+ *
+ * The response headers for an origin, requested method and requested headers are
+ * computed once with the same {@link CorsConfiguration} the security chain uses, then
+ * served from a bounded cache. Preflights the configuration rejects are never answered
+ * here; they fall through to the regular CORS handling, which responds with {@code 403}.
+ *
+ * Publishes {@value #PREFLIGHT_TIMER} timers tagged {@code path=fast} for preflights
+ * answered here and {@code path=chain} for those passed to the filter chain, and cache
+ * statistics under the {@code cache.*} metrics with {@code cache=corsPreflights}.
+ */
+public class CorsPreflightCache {
+
+    public static final String PREFLIGHT_TIMER = "keycloak.cors.preflight";
+
+    public static final String CACHE_NAME = "corsPreflights";
+
+    private static final List<String> VARY = List.of(HttpHeaders.ORIGIN,
+            HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+    private final CorsConfiguration corsConfiguration;
+    private final boolean enabled;
+    private final Cache<String, Optional<HttpHeaders>> responses;
+    private final Timer fastPathTimer;
+    private final Timer chainTimer;
+
+    public CorsPreflightCache(CorsConfiguration corsConfiguration, boolean enabled, long maximumSize,
+                              MeterRegistry meterRegistry) {
+        this.corsConfiguration = corsConfiguration;
+        this.enabled = enabled;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.fastPathTimer = preflightTimer(meterRegistry, "fast");
+        this.chainTimer = preflightTimer(meterRegistry, "chain");
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+    }
+
+    /**
+     * Looks up the response headers of a preflight request.
+     *
+     * @param origin Value of the {@code Origin} header
+     * @param requestMethod Value of the {@code Access-Control-Request-Method} header
+     * @param requestHeaders Value of the {@code Access-Control-Request-Headers} header, or null
+     * @return Read-only response headers, or null if the preflight must go through the filter chain
+     */
+    public HttpHeaders lookup(String origin, String requestMethod, String requestHeaders) {
+        if (!enabled) {
+            return null;
+        }
+        String key = origin + '\n' + requestMethod + '\n' + (requestHeaders != null ? requestHeaders : "");
+        return responses.get(key, k -> Optional.ofNullable(compute(origin, requestMethod, requestHeaders)))
+                .orElse(null);
+    }
+
+    public Timer fastPathTimer() {
+        return fastPathTimer;
+    }
+
+    public Timer chainTimer() {
+        return chainTimer;
+    }
+
+    private HttpHeaders compute(String origin, String requestMethod, String requestHeaders) {
+        String allowedOrigin = corsConfiguration.checkOrigin(origin);
+        List<HttpMethod> allowedMethods = corsConfiguration.checkHttpMethod(HttpMethod.valueOf(requestMethod));
+        List<String> allowedHeaders = corsConfiguration.checkHeaders(StringUtils.hasText(requestHeaders)
+                ? List.of(requestHeaders.trim().split("\\s*,\\s*")) : List.of());
+        if (allowedOrigin == null || allowedMethods == null || allowedHeaders == null) {
+            return null;
+        }
+
+        // Same headers as DefaultCorsProcessor writes for an allowed preflight
+        HttpHeaders headers = new HttpHeaders();
+        headers.setVary(VARY);
+        headers.setAccessControlAllowOrigin(allowedOrigin);
+        headers.setAccessControlAllowMethods(allowedMethods);
+        if (!allowedHeaders.isEmpty()) {
+            headers.setAccessControlAllowHeaders(allowedHeaders);
+        }
+        if (Boolean.TRUE.equals(corsConfiguration.getAllowCredentials())) {
+            headers.setAccessControlAllowCredentials(true);
+        }
+        if (corsConfiguration.getMaxAge() != null) {
+            headers.setAccessControlMaxAge(corsConfiguration.getMaxAge());
+        }
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private static Timer preflightTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder(PREFLIGHT_TIMER)
+                .description("Time to answer CORS preflight requests")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+}
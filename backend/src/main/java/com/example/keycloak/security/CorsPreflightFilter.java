@@ -0,0 +1,54 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers allowed CORS preflight requests from the {@link CorsPreflightCache} before
+ * the security filter chain runs.
+ *
+ * Registered ahead of every other servlet filter. All other requests, and preflights
+ * the cache cannot answer, continue down the filter chain unchanged.
+ */
+public class CorsPreflightFilter extends OncePerRequestFilter {
+
+    private final CorsPreflightCache preflightCache;
+
+    public CorsPreflightFilter(CorsPreflightCache preflightCache) {
+        this.preflightCache = preflightCache;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!CorsUtils.isPreFlightRequest(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        HttpHeaders headers = preflightCache.lookup(request.getHeader(HttpHeaders.ORIGIN),
+                request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD),
+                request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS));
+        Timer timer = headers != null ? preflightCache.fastPathTimer() : preflightCache.chainTimer();
+        try {
+            if (headers != null) {
+                headers.forEach((name, values) -> response.setHeader(name, String.join(", ", values)));
+                response.setStatus(HttpServletResponse.SC_OK);
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.keycloak.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers allowed CORS preflight requests from the {@link CorsPreflightCache} before
+ * the reactive security filter chain runs.
+ *
+ * Reactive counterpart of {@link CorsPreflightFilter}.
+ */
+public class CorsPreflightWebFilter implements WebFilter {
+
+    private final CorsPreflightCache preflightCache;
+
+    public CorsPreflightWebFilter(CorsPreflightCache preflightCache) {
+        this.preflightCache = preflightCache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!CorsUtils.isPreFlightRequest(request)) {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        HttpHeaders requestHeaders = request.getHeaders();
+        HttpHeaders headers = preflightCache.lookup(requestHeaders.getOrigin(),
+                requestHeaders.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD),
+                requestHeaders.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS));
+        if (headers == null) {
+            return chain.filter(exchange).doFinally(signal ->
+                    preflightCache.chainTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().putAll(headers);
+        response.setStatusCode(HttpStatus.OK);
+        preflightCache.fastPathTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return response.setComplete();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.keycloak.security;
+
+import com.hazelcast.config.ClassFilter;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.JavaSerializationFilterConfig;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClusterBus} on an embedded Hazelcast member.
+ *
+ * Verified tokens live in a partitioned map with a per-entry TTL, so each token is
+ * held by one owner node plus a backup. Events go through a topic; revocations are
+ * also kept in a map with the revocation retention as TTL, for nodes that join later.
+ * Values use Java serialization, which {@link Jwt} and the events support; only the
+ * packages those values are made of may be deserialized.
+ *
+ * Hazelcast members do not authenticate each other, and a member may plant any verified
+ * token in the shared map. Members only join the listed addresses, never by multicast, and
+ * the cluster port must only be reachable on a private, trusted network.
+ */
+public class HazelcastClusterBus implements ClusterBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(HazelcastClusterBus.class);
+
+    public static final String VERIFIED_TOKENS = "keycloak.verified-tokens";
+
+    public static final String REVOCATIONS = "keycloak.revocations";
+
+    public static final String EVENTS = "keycloak.cluster-events";
+
+    // Packages of the classes in shared tokens, revocations and events
+    private static final List<String> SERIALIZED_PACKAGES = List.of(
+            "java.lang", "java.util", "java.time", "java.net", "java.math",
+            "org.springframework.security.oauth2.jwt", "org.springframework.security.oauth2.core",
+            "com.example.keycloak.security");
+
+    private final HazelcastInstance hazelcast;
+    private final IMap<String, Jwt> verifiedTokens;
+    private final IMap<String, Revocation> revocations;
+    private final ITopic<ClusterEvent> events;
+    private final Duration revocationRetention;
+    private final String nodeId;
+
+    public HazelcastClusterBus(HazelcastInstance hazelcast, Duration revocationRetention) {
+        this.hazelcast = hazelcast;
+        this.verifiedTokens = hazelcast.getMap(VERIFIED_TOKENS);
+        this.revocations = hazelcast.getMap(REVOCATIONS);
+        this.events = hazelcast.getTopic(EVENTS);
+        this.revocationRetention = revocationRetention;
+        this.nodeId = hazelcast.getCluster().getLocalMember().getUuid().toString();
+    }
+
+    /**
+     * Member configuration for the backend cluster.
+     *
+     * @param clusterName Only members with the same name join each other
+     * @param port First port to listen on; the next ports are tried when it is taken
+     * @param members TCP/IP members as {@code host[:port]}
+     * @param maxVerifiedTokens Verified tokens held per member before eviction
+     * @return The Hazelcast configuration
+     * @throws IllegalArgumentException if no member is listed
+     */
+    public static Config config(String clusterName, int port, List<String> members, int maxVerifiedTokens) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Cluster members must be listed; multicast discovery is not supported");
+        }
+        Config config = new Config();
+        config.setClusterName(clusterName);
+        config.setInstanceName(clusterName + "-" + UUID.randomUUID());
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        // The application context shuts the member down
+        config.setProperty("hazelcast.shutdownhook.enabled", "false");
+
+        NetworkConfig network = config.getNetworkConfig();
+        network.setPort(port).setPortAutoIncrement(true);
+        JoinConfig join = network.getJoin();
+        join.getAutoDetectionConfig().setEnabled(false);
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(members);
+
+        // Rules out deserialization gadgets from any other library on the classpath
+        ClassFilter allowed = new ClassFilter();
+        SERIALIZED_PACKAGES.forEach(allowed::addPackages);
+        config.getSerializationConfig().setJavaSerializationFilterConfig(
+                new JavaSerializationFilterConfig().setDefaultsDisabled(true).setWhitelist(allowed));
+
+        MapConfig tokens = new MapConfig(VERIFIED_TOKENS);
+        tokens.getEvictionConfig()
+                .setEvictionPolicy(EvictionPolicy.LRU)
+                .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                .setSize(maxVerifiedTokens);
+        config.addMapConfig(tokens);
+        return config;
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public CompletableFuture<Jwt> findVerifiedToken(String tokenHash) {
+        return verifiedTokens.getAsync(tokenHash).toCompletableFuture();
+    }
+
+    @Override
+    public void shareVerifiedToken(String tokenHash, Jwt jwt, Duration ttl) {
+        verifiedTokens.setAsync(tokenHash, jwt, ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.debug("Failed to share verified token: {}", error.getMessage());
+                    }
+                });
+    }
+
+    @Override
+    public void publish(ClusterEvent event) {
+        if (event instanceof ClusterEvent.TokensRevoked revoked) {
+            revocations.setAsync(UUID.randomUUID().toString(), revoked.revocation(),
+                    revocationRetention.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        events.publishAsync(event).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.warn("Failed to publish {} to the cluster: {}", event.getClass().getSimpleName(),
+                        error.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public List<Revocation> revocations() {
+        return List.copyOf(revocations.values());
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEvent> listener) {
+        events.addMessageListener(message -> {
+            ClusterEvent event = message.getMessageObject();
+            if (!nodeId.equals(event.origin())) {
+                listener.accept(event);
+            }
+        });
+    }
+
+    /**
+     * Number of members currently in the cluster, including this one.
+     */
+    public int clusterSize() {
+        return hazelcast.getCluster().getMembers().size();
+    }
+
+    @Override
+    public void close() {
+        hazelcast.shutdown();
+    }
+}
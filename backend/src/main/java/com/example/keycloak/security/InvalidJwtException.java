@@ -0,0 +1,27 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+/**
+ * A {@link BadJwtException} that states why the token was rejected, so rejections are
+ * counted by reason without interpreting exception messages.
+ */
+public class InvalidJwtException extends BadJwtException {
+
+    private final RejectionReason reason;
+
+    public InvalidJwtException(RejectionReason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public InvalidJwtException(RejectionReason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public RejectionReason reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.example.keycloak.security.AuthenticationMetrics.RejectionStage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+import java.time.Duration;
+
+/**
+ * Fast-reject path for invalid bearer tokens, consulted before any signature check.
+ *
+ * This guard:
+ * - Remembers recently rejected token hashes in a bounded negative cache, so a token
+ *   replayed by a misbehaving client is turned away with a single lookup
+ * - Runs the {@link TokenPrecheck} structural checks before the decoder
+ * - Counts every rejection by reason and stage in {@link AuthenticationMetrics}
+ * - Reports rejections as stackless {@link RejectedTokenException}s
+ *
+ * Decoder failures that are not the token's fault (for example an unreachable JWKS
+ * endpoint) are never cached, nor are tokens signed with a key not fetched yet
+ * ({@link UnknownSigningKeyException}): after a key rotation they become valid as soon as
+ * the key set is refreshed. Negative cache statistics are published under the
+ * {@code cache.*} metrics with {@code cache=rejectedTokens}.
+ */
+public class InvalidTokenGuard {
+
+    public static final String CACHE_NAME = "rejectedTokens";
+
+    private final TokenPrecheck precheck;
+    private final Cache<String, RejectionReason> rejectedTokens;
+    private final AuthenticationMetrics metrics;
+
+    public InvalidTokenGuard(TokenPrecheck precheck, long maximumSize, Duration ttl,
+                             AuthenticationMetrics metrics, MeterRegistry meterRegistry) {
+        this.precheck = precheck;
+        this.metrics = metrics;
+        this.rejectedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, rejectedTokens, CACHE_NAME);
+        }
+    }
+
+    /**
+     * Checks a token against the negative cache and the structural prechecks.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @param token The bearer token
+     * @return The rejection to report, or null if the token should be decoded
+     */
+    public RejectedTokenException check(String tokenHash, String token) {
+        RejectionReason reason = rejectedTokens.getIfPresent(tokenHash);
+        if (reason != null) {
+            metrics.rejected(RejectionStage.CACHED, reason);
+            return new RejectedTokenException(reason);
+        }
+
+        reason = precheck.check(token);
+        if (reason != null) {
+            return reject(tokenHash, RejectionStage.PRECHECK, reason);
+        }
+        return null;
+    }
+
+    /**
+     * Records a token that the decoder found invalid.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @param e Exception thrown by the decoder
+     * @return The rejection to report
+     */
+    public RejectedTokenException rejectedByDecoder(String tokenHash, BadJwtException e) {
+        RejectionReason reason = AuthenticationMetrics.reasonOf(e);
+        if (reason == RejectionReason.UNKNOWN_KEY) {
+            metrics.rejected(RejectionStage.DECODE, reason);
+            return new RejectedTokenException(reason);
+        }
+        return reject(tokenHash, RejectionStage.DECODE, reason);
+    }
+
+    public long estimatedSize() {
+        return rejectedTokens.estimatedSize();
+    }
+
+    private RejectedTokenException reject(String tokenHash, RejectionStage stage, RejectionReason reason) {
+        rejectedTokens.put(tokenHash, reason);
+        metrics.rejected(stage, reason);
+        return new RejectedTokenException(reason);
+    }
+}
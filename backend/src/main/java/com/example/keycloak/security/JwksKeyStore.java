@@ -0,0 +1,356 @@
+package com.example.keycloak.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.AsymmetricJWK;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory JWKS key store with a {@code kid} index and background refresh.
+ *
+ * This key store:
+ * - Loads the key set from Keycloak's certs endpoint or from a local JWKS file
+ * - Refreshes the key set in the background before its TTL runs out
+ * - Collapses concurrent refreshes (scheduled or triggered by an unknown {@code kid}) into one fetch
+ * - Keeps serving the last good key set when the identity provider is slow or down
+ * - Reports the {@code kid}s of fetched key sets whose {@code kid}s changed, and refetches when a
+ *   peer node reports {@code kid}s it does not know; keys only ever come from the key source
+ * - Publishes {@code keycloak.jwks.fetches} counters (by outcome) and a {@code keycloak.jwks.keys} gauge
+ */
+public class JwksKeyStore implements JWKSource<SecurityContext>, MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyStore.class);
+
+    private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final Supplier<String> jwksLoader;
+    private final String sourceDescription;
+    private final Duration ttl;
+    private final Duration refreshAhead;
+    private final Duration unknownKidWait;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicReference<CompletableFuture<KeySet>> inFlight = new AtomicReference<>();
+    private final LongAdder successfulFetches = new LongAdder();
+    private final LongAdder failedFetches = new LongAdder();
+    private volatile KeySet current;
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+    private volatile Consumer<Set<String>> keySetListener = keyIds -> { };
+    private ScheduledFuture<?> nextRefresh;
+
+    public JwksKeyStore(Supplier<String> jwksLoader, String sourceDescription, Duration ttl, Duration refreshAhead,
+                        Duration unknownKidWait, Duration minRefreshInterval) {
+        this(jwksLoader, sourceDescription, ttl, refreshAhead, unknownKidWait, minRefreshInterval, Clock.systemUTC());
+    }
+
+    public JwksKeyStore(Supplier<String> jwksLoader, String sourceDescription, Duration ttl, Duration refreshAhead,
+                        Duration unknownKidWait, Duration minRefreshInterval, Clock clock) {
+        this.jwksLoader = jwksLoader;
+        this.sourceDescription = sourceDescription;
+        this.ttl = ttl;
+        this.refreshAhead = refreshAhead.compareTo(ttl) < 0 ? refreshAhead : Duration.ZERO;
+        this.unknownKidWait = unknownKidWait;
+        this.minRefreshInterval = minRefreshInterval;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a loader that reads a JWKS document from a local file.
+     *
+     * @param path Path to the JWKS JSON file
+     * @return Supplier of the file contents
+     */
+    public static Supplier<String> fileLoader(Path path) {
+        return () -> {
+            try {
+                return Files.readString(path, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read JWKS file " + path, e);
+            }
+        };
+    }
+
+    /**
+     * Starts the initial, non-blocking load of the key set.
+     */
+    public void start() {
+        refreshAsync();
+    }
+
+    /**
+     * Registers a listener for fetched key sets whose {@code kid}s differ from the previous
+     * set, called on the refresh thread with the new set's {@code kid}s.
+     */
+    public void onKeySetChanged(Consumer<Set<String>> listener) {
+        this.keySetListener = listener;
+    }
+
+    /**
+     * Refetches the key set from the key source if any of the given {@code kid}s is unknown,
+     * typically because a peer node saw a key rotation first. The {@code kid}s are only a hint:
+     * like an unknown {@code kid} in a token, they trigger at most one refresh per minimum
+     * refresh interval.
+     *
+     * @param keyIds The {@code kid}s reported by the peer
+     * @return true if a refresh was started or is already running
+     */
+    public boolean refreshForKeyIds(Set<String> keyIds) {
+        KeySet keySet = current;
+        if (keySet != null && keySet.keysById().keySet().containsAll(keyIds)) {
+            return false;
+        }
+        if (inFlight.get() == null
+                && Duration.between(lastRefreshAttempt, clock.instant()).compareTo(minRefreshInterval) < 0) {
+            return false;
+        }
+        refreshAsync();
+        return true;
+    }
+
+    /**
+     * Returns the public key registered under the given key ID, without triggering a fetch.
+     *
+     * @param kid The key ID from the JWS header
+     * @return The public key, or null if unknown
+     */
+    public PublicKey findKey(String kid) {
+        KeySet keySet = current;
+        return keySet != null ? keySet.keysById().get(kid) : null;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        KeySet keySet = current;
+        if (keySet == null) {
+            // Cold start: every caller joins the same in-flight fetch
+            keySet = await(refreshAsync());
+            if (keySet == null) {
+                throw new KeySourceException("No JWKS available from " + sourceDescription);
+            }
+        }
+
+        List<JWK> matches = jwkSelector.select(keySet.jwkSet());
+        if (!matches.isEmpty() || !shouldRefreshFor(jwkSelector, keySet)) {
+            return matches;
+        }
+
+        // Possible key rotation: wait briefly for the shared refresh
+        KeySet refreshed = await(refreshAsync());
+        return refreshed != null ? jwkSelector.select(refreshed.jwkSet()) : matches;
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(JWKSelector, SecurityContext)} for the reactive stack.
+     * Completes immediately when the key is cached, otherwise when the shared refresh finishes.
+     *
+     * @param jwkSelector Selector built from the JWS header
+     * @return Future completing with the matching keys, possibly empty
+     */
+    public CompletableFuture<List<JWK>> getAsync(JWKSelector jwkSelector) {
+        KeySet keySet = current;
+        if (keySet != null) {
+            List<JWK> matches = jwkSelector.select(keySet.jwkSet());
+            if (!matches.isEmpty() || !shouldRefreshFor(jwkSelector, keySet)) {
+                return CompletableFuture.completedFuture(matches);
+            }
+        }
+        return refreshAsync().thenApply(refreshed ->
+                refreshed != null ? jwkSelector.select(refreshed.jwkSet()) : List.of());
+    }
+
+    /**
+     * Refreshes the key set unless a refresh is already running, in which case the
+     * running refresh is returned.
+     *
+     * @return Future completing with the refreshed key set, or the last good one on failure
+     */
+    public CompletableFuture<KeySet> refreshAsync() {
+        CompletableFuture<KeySet> future = new CompletableFuture<>();
+        while (!inFlight.compareAndSet(null, future)) {
+            CompletableFuture<KeySet> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        lastRefreshAttempt = clock.instant();
+        try {
+            scheduler.execute(() -> runRefresh(future));
+        } catch (RejectedExecutionException e) {
+            inFlight.set(null);
+            future.complete(current);
+        }
+        return future;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("keycloak.jwks.fetches", successfulFetches, LongAdder::sum)
+                .description("JWKS fetches from the identity provider")
+                .tag("outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("keycloak.jwks.fetches", failedFetches, LongAdder::sum)
+                .description("JWKS fetches from the identity provider")
+                .tag("outcome", "failure")
+                .register(registry);
+        Gauge.builder("keycloak.jwks.keys", this, store -> store.current != null ? store.current.keysById().size() : 0)
+                .description("Keys in the current JWKS key set")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void runRefresh(CompletableFuture<KeySet> future) {
+        try {
+            String json = jwksLoader.get();
+            KeySet keySet = parse(json);
+            KeySet previous = current;
+            current = keySet;
+            successfulFetches.increment();
+            logger.debug("Loaded {} JWKS keys from {}", keySet.keysById().size(), sourceDescription);
+            scheduleNextRefresh(ttl.minus(refreshAhead));
+            if (previous == null || !previous.keysById().keySet().equals(keySet.keysById().keySet())) {
+                notifyKeySetChanged(keySet.keysById().keySet());
+            }
+        } catch (RuntimeException e) {
+            failedFetches.increment();
+            logger.warn("Failed to refresh JWKS from {}: {}", sourceDescription, e.getMessage());
+            scheduleNextRefresh(minRefreshInterval.compareTo(MIN_RETRY_DELAY) > 0 ? minRefreshInterval : MIN_RETRY_DELAY);
+        } finally {
+            inFlight.set(null);
+            future.complete(current);
+        }
+    }
+
+    private void notifyKeySetChanged(Set<String> keyIds) {
+        try {
+            keySetListener.accept(keyIds);
+        } catch (RuntimeException e) {
+            logger.warn("JWKS change listener failed: {}", e.getMessage());
+        }
+    }
+
+    private static KeySet parse(String json) {
+        try {
+            return index(JWKSet.parse(json));
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JWKS document: " + e.getMessage(), e);
+        }
+    }
+
+    private void scheduleNextRefresh(Duration delay) {
+        // Only called from the scheduler thread, so the pending refresh needs no locking
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        if (!scheduler.isShutdown()) {
+            nextRefresh = scheduler.schedule(this::refreshAsync, Math.max(delay.toMillis(), 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private KeySet await(CompletableFuture<KeySet> future) {
+        try {
+            return future.get(unknownKidWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Timed out waiting for JWKS refresh from {}", sourceDescription);
+            return current;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return current;
+        } catch (ExecutionException e) {
+            return current;
+        }
+    }
+
+    /**
+     * A missing key only triggers a refresh for an unknown {@code kid}, and at most once
+     * per minimum refresh interval unless a refresh is already running.
+     */
+    private boolean shouldRefreshFor(JWKSelector jwkSelector, KeySet keySet) {
+        if (!hasUnknownKid(jwkSelector, keySet)) {
+            return false;
+        }
+        return inFlight.get() != null
+                || Duration.between(lastRefreshAttempt, clock.instant()).compareTo(minRefreshInterval) >= 0;
+    }
+
+    private static boolean hasUnknownKid(JWKSelector jwkSelector, KeySet keySet) {
+        Set<String> keyIds = jwkSelector.getMatcher().getKeyIDs();
+        if (keyIds == null || keyIds.isEmpty()) {
+            return false;
+        }
+        for (String kid : keyIds) {
+            if (kid != null && !keySet.keysById().containsKey(kid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static KeySet index(JWKSet jwkSet) {
+        Map<String, PublicKey> keysById = new HashMap<>();
+        for (JWK jwk : jwkSet.getKeys()) {
+            if (jwk.getKeyID() != null && jwk instanceof AsymmetricJWK asymmetric) {
+                try {
+                    keysById.put(jwk.getKeyID(), asymmetric.toPublicKey());
+                } catch (JOSEException e) {
+                    logger.warn("Skipping JWKS key {}: {}", jwk.getKeyID(), e.getMessage());
+                }
+            }
+        }
+        return new KeySet(jwkSet.toPublicJWKSet(), Collections.unmodifiableMap(keysById));
+    }
+
+    /**
+     * An immutable snapshot of the key set and its {@code kid} index.
+     */
+    public record KeySet(JWKSet jwkSet, Map<String, PublicKey> keysById) {
+    }
+}
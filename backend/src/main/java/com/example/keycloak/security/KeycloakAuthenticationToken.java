@@ -0,0 +1,61 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JWT authentication that also carries the Keycloak roles extracted from the token,
+ * so downstream code can check role membership without re-reading the claims.
+ */
+public class KeycloakAuthenticationToken extends JwtAuthenticationToken {
+
+    private final RoleSet roles;
+    // Shared by the copies of a cached token; null after deserialization
+    private final transient AtomicReference<RouteRoleMask> routeRoleMask;
+
+    public KeycloakAuthenticationToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities,
+                                       String name, RoleSet roles) {
+        this(jwt, authorities, name, roles, new AtomicReference<>());
+    }
+
+    private KeycloakAuthenticationToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities, String name,
+                                        RoleSet roles, AtomicReference<RouteRoleMask> routeRoleMask) {
+        super(jwt, authorities, name);
+        this.roles = roles;
+        this.routeRoleMask = routeRoleMask;
+    }
+
+    /**
+     * A new, detail-less authentication for the same token, sharing its role mask.
+     */
+    public KeycloakAuthenticationToken copy() {
+        return new KeycloakAuthenticationToken(getToken(), getAuthorities(), getName(), roles, routeRoleMask);
+    }
+
+    public RoleSet getRoles() {
+        return roles;
+    }
+
+    /**
+     * The caller's roles as a bitmask of the table's roles, computed once per token
+     * since authentications are cached across requests.
+     */
+    long routeRoleMask(RouteAuthorizationTable table) {
+        if (routeRoleMask == null) {
+            return table.roleMask(roles);
+        }
+        RouteRoleMask mask = routeRoleMask.get();
+        if (mask == null || mask.table() != table) {
+            mask = new RouteRoleMask(table, table.roleMask(roles));
+            routeRoleMask.set(mask);
+        }
+        return mask.bits();
+    }
+
+    private record RouteRoleMask(RouteAuthorizationTable table, long bits) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts Keycloak roles from a JWT once per token.
+ *
+ * Roles are read from the flat {@code roles} claim, {@code realm_access.roles} and
+ * every {@code resource_access.<client>.roles} entry. Only the flat, realm and this
+ * application's own client roles keep their bare name and so may match authorization
+ * rules; roles of any other client are named {@code <client>:<role>}, so a role another
+ * client grants can never pass for one of this application's roles. Role names and their
+ * {@code ROLE_} authorities are interned in a bounded pool, so tokens for the same
+ * realm share the same string and authority instances. Object claims left unparsed by
+ * {@link ProjectedJwtDecoder} are read straight from the token bytes.
+ */
+public class KeycloakAuthorityExtractor {
+
+    public static final String AUTHORITY_PREFIX = "ROLE_";
+
+    /**
+     * Separates the client from the role in the names of other clients' roles.
+     */
+    public static final char CLIENT_ROLE_SEPARATOR = ':';
+
+    private static final int DEFAULT_POOL_SIZE = 4096;
+
+    private final ConcurrentHashMap<String, String> rolePool = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, GrantedAuthority> authorityPool = new ConcurrentHashMap<>();
+    // Namespaced role names by client and role, so they are looked up without concatenating
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> clientRolePool = new ConcurrentHashMap<>();
+    private final AtomicInteger clientRolePoolSize = new AtomicInteger();
+    private final String clientId;
+    private final int maxPoolSize;
+
+    /**
+     * @param clientId This application's client id, whose roles keep their bare name; null if none
+     */
+    public KeycloakAuthorityExtractor(String clientId) {
+        this(clientId, DEFAULT_POOL_SIZE);
+    }
+
+    public KeycloakAuthorityExtractor(String clientId, int maxPoolSize) {
+        this.clientId = clientId;
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Extracts all roles carried by the token.
+     *
+     * @param jwt The JWT token
+     * @return The roles, never null
+     */
+    public RoleSet extract(Jwt jwt) {
+        Collector collector = new Collector();
+        collector.addAll(jwt.getClaims().get("roles"));
+
+        Object realmClaim = jwt.getClaims().get("realm_access");
+        if (realmClaim instanceof LazyJsonObject realmAccess) {
+            realmAccess.forEachString("roles", collector::add);
+        } else if (realmClaim instanceof Map<?, ?> realmAccess) {
+            collector.addAll(realmAccess.get("roles"));
+        }
+
+        Object resourceClaim = jwt.getClaims().get("resource_access");
+        if (resourceClaim instanceof LazyJsonObject resourceAccess) {
+            // Streamed from the token bytes: the per-client maps are never built
+            resourceAccess.forEachMemberString("roles", collector::addClientRole);
+        } else if (resourceClaim instanceof Map<?, ?> resourceAccess) {
+            for (Map.Entry<?, ?> clientAccess : resourceAccess.entrySet()) {
+                if (clientAccess.getKey() instanceof String client
+                        && clientAccess.getValue() instanceof Map<?, ?> clientAccessMap) {
+                    collector.addClientRoles(client, clientAccessMap.get("roles"));
+                }
+            }
+        }
+
+        return RoleSet.of(collector.roles, collector.count);
+    }
+
+    /**
+     * Maps roles to {@code ROLE_}-prefixed authorities, reusing pooled instances.
+     *
+     * @param roles The roles
+     * @return Granted authorities in role order
+     */
+    public List<GrantedAuthority> toAuthorities(RoleSet roles) {
+        if (roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (int i = 0; i < roles.size(); i++) {
+            authorities.add(authorityFor(roles.get(i)));
+        }
+        return authorities;
+    }
+
+    private GrantedAuthority authorityFor(String role) {
+        GrantedAuthority authority = authorityPool.get(role);
+        if (authority != null) {
+            return authority;
+        }
+        authority = new SimpleGrantedAuthority(AUTHORITY_PREFIX + role);
+        if (authorityPool.size() < maxPoolSize) {
+            GrantedAuthority existing = authorityPool.putIfAbsent(role, authority);
+            return existing != null ? existing : authority;
+        }
+        return authority;
+    }
+
+    private String intern(String role) {
+        String pooled = rolePool.get(role);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (rolePool.size() < maxPoolSize) {
+            pooled = rolePool.putIfAbsent(role, role);
+            return pooled != null ? pooled : role;
+        }
+        return role;
+    }
+
+    private String clientRole(String client, String role) {
+        if (client.equals(clientId)) {
+            return intern(role);
+        }
+        ConcurrentHashMap<String, String> roles = clientRolePool.get(client);
+        String pooled = roles != null ? roles.get(role) : null;
+        if (pooled != null) {
+            return pooled;
+        }
+        String name = client + CLIENT_ROLE_SEPARATOR + role;
+        if (clientRolePoolSize.get() >= maxPoolSize) {
+            return name;
+        }
+        if (roles == null) {
+            roles = clientRolePool.computeIfAbsent(client, c -> new ConcurrentHashMap<>());
+        }
+        pooled = roles.putIfAbsent(role, name);
+        if (pooled != null) {
+            return pooled;
+        }
+        clientRolePoolSize.incrementAndGet();
+        return name;
+    }
+
+    /**
+     * Accumulates role names into a growable array.
+     */
+    private final class Collector {
+
+        private String[] roles = new String[8];
+        private int count;
+
+        void addAll(Object claim) {
+            if (claim instanceof Collection<?> values) {
+                for (Object value : values) {
+                    add(value);
+                }
+            } else {
+                add(claim);
+            }
+        }
+
+        void addClientRoles(String client, Object claim) {
+            if (claim instanceof Collection<?> values) {
+                for (Object value : values) {
+                    addClientRole(client, value);
+                }
+            } else {
+                addClientRole(client, claim);
+            }
+        }
+
+        void addClientRole(String client, Object value) {
+            if (value instanceof String role && !role.isEmpty()) {
+                append(clientRole(client, role));
+            }
+        }
+
+        private void add(Object value) {
+            if (value instanceof String role && !role.isEmpty()) {
+                append(intern(role));
+            }
+        }
+
+        private void append(String role) {
+            if (count == roles.length) {
+                roles = Arrays.copyOf(roles, count * 2);
+            }
+            roles[count++] = role;
+        }
+    }
+}
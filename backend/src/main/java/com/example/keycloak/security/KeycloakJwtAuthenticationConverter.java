@@ -0,0 +1,28 @@
+package com.example.keycloak.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+
+/**
+ * Converts a validated JWT into a {@link KeycloakAuthenticationToken}.
+ *
+ * Roles are extracted once with the {@link KeycloakAuthorityExtractor} and exposed both
+ * as {@code ROLE_} authorities and as a {@link RoleSet} on the token.
+ */
+public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private final KeycloakAuthorityExtractor authorityExtractor;
+
+    public KeycloakJwtAuthenticationConverter(KeycloakAuthorityExtractor authorityExtractor) {
+        this.authorityExtractor = authorityExtractor;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        RoleSet roles = authorityExtractor.extract(jwt);
+        String name = jwt.getClaimAsString(JwtClaimNames.SUB);
+        return new KeycloakAuthenticationToken(jwt, authorityExtractor.toAuthorities(roles), name, roles);
+    }
+}
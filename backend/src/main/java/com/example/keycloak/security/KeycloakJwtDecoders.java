@@ -0,0 +1,182 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionError;
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtIssuerValidator;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Factory methods for the JWT decoders used by the resource server.
+ */
+public final class KeycloakJwtDecoders {
+
+    /**
+     * Claims the application reads: registered claims, the scope, the profile claims and the role claims.
+     */
+    public static final ClaimProjection APPLICATION_CLAIMS = ClaimProjection.of(
+            "iss", "sub", "aud", "exp", "nbf", "iat", "jti", "sid", "azp", "scope",
+            "preferred_username", "email", "given_name", "family_name",
+            "roles", "realm_access", "resource_access");
+
+    private KeycloakJwtDecoders() {
+    }
+
+    /**
+     * Creates a decoder that verifies RS256 signatures with keys from the key store and
+     * validates the issuer and token timestamps.
+     *
+     * @param jwksKeyStore The JWKS key store
+     * @param issuerUri The expected {@code iss} claim
+     * @return The JWT decoder
+     */
+    public static JwtDecoder withKeyStore(JwksKeyStore jwksKeyStore, String issuerUri) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwksKeyStore));
+        // Claims are validated by Spring's OAuth2TokenValidator below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(validator(issuerUri));
+        return token -> {
+            try {
+                return decoder.decode(token);
+            } catch (BadJwtException e) {
+                throw unknownKeyOr(e, token, jwksKeyStore);
+            }
+        };
+    }
+
+    /**
+     * Creates a non-blocking decoder for the reactive stack. Keys come from the same key
+     * store; a missing key waits on the shared refresh without blocking a thread.
+     *
+     * @param jwksKeyStore The JWKS key store
+     * @param issuerUri The expected {@code iss} claim
+     * @return The reactive JWT decoder
+     */
+    public static ReactiveJwtDecoder reactiveWithKeyStore(JwksKeyStore jwksKeyStore, String issuerUri) {
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder
+                .withJwkSource(signedJwt -> Mono.fromFuture(() -> jwksKeyStore.getAsync(
+                                new JWKSelector(JWKMatcher.forJWSHeader(signedJwt.getHeader()))))
+                        .flatMapMany(Flux::fromIterable))
+                .jwsAlgorithm(SignatureAlgorithm.RS256)
+                .build();
+        decoder.setJwtValidator(validator(issuerUri));
+        return token -> decoder.decode(token)
+                .onErrorMap(BadJwtException.class, e -> unknownKeyOr(e, token, jwksKeyStore));
+    }
+
+    /**
+     * Creates a decoder that verifies RS256 signatures like {@link #withKeyStore} but only
+     * reads the projected claims, leaving object claims unparsed until first accessed.
+     *
+     * @param jwksKeyStore The JWKS key store
+     * @param issuerUri The expected {@code iss} claim
+     * @param projection The claims to keep
+     * @return The JWT decoder
+     */
+    public static JwtDecoder projected(JwksKeyStore jwksKeyStore, String issuerUri, ClaimProjection projection) {
+        return new ProjectedJwtDecoder(jwksKeyStore, projection, validator(issuerUri));
+    }
+
+    /**
+     * Non-blocking variant of {@link #projected}; a missing key waits on the shared refresh
+     * without blocking a thread.
+     *
+     * @param jwksKeyStore The JWKS key store
+     * @param issuerUri The expected {@code iss} claim
+     * @param projection The claims to keep
+     * @return The reactive JWT decoder
+     */
+    public static ReactiveJwtDecoder reactiveProjected(JwksKeyStore jwksKeyStore, String issuerUri,
+                                                       ClaimProjection projection) {
+        ProjectedJwtDecoder decoder = new ProjectedJwtDecoder(null, projection,
+                validator(issuerUri));
+        return token -> Mono.fromCallable(() -> decoder.parse(token))
+                .flatMap(signed -> Mono.fromFuture(() -> jwksKeyStore.getAsync(signed.keySelector()))
+                        .map(keys -> decoder.decode(signed, keys)));
+    }
+
+    /**
+     * Validates the token timestamps and the issuer like
+     * {@link JwtValidators#createDefaultWithIssuer}, stating the rejection reason of each
+     * failure as a {@link RejectionError}.
+     *
+     * @param issuerUri The expected {@code iss} claim
+     * @return The JWT validator
+     */
+    public static OAuth2TokenValidator<Jwt> validator(String issuerUri) {
+        return new DelegatingOAuth2TokenValidator<>(
+                rejectingAs(new JwtTimestampValidator(), KeycloakJwtDecoders::timestampRejection),
+                rejectingAs(new JwtIssuerValidator(issuerUri), jwt -> RejectionReason.INVALID_ISSUER));
+    }
+
+    /**
+     * The timestamp validator also rejects tokens used before their {@code nbf} claim.
+     */
+    private static RejectionReason timestampRejection(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && expiresAt.isBefore(Instant.now())
+                ? RejectionReason.EXPIRED
+                : RejectionReason.INVALID_CLAIMS;
+    }
+
+    private static OAuth2TokenValidator<Jwt> rejectingAs(OAuth2TokenValidator<Jwt> validator,
+                                                         Function<Jwt, RejectionReason> reason) {
+        return jwt -> {
+            OAuth2TokenValidatorResult result = validator.validate(jwt);
+            if (!result.hasErrors()) {
+                return result;
+            }
+            RejectionReason rejection = reason.apply(jwt);
+            return OAuth2TokenValidatorResult.failure(result.getErrors().stream()
+                    .map(error -> (OAuth2Error) new RejectionError(rejection, error))
+                    .toList());
+        };
+    }
+
+    /**
+     * Nimbus reports a token signed with an unknown key like any other bad token; tells
+     * the two apart by looking the token's {@code kid} up in the key store.
+     */
+    private static BadJwtException unknownKeyOr(BadJwtException e, String token, JwksKeyStore jwksKeyStore) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return e;
+        }
+        String kid;
+        try {
+            kid = JWSHeader.parse(new Base64URL(token.substring(0, dot))).getKeyID();
+        } catch (ParseException ex) {
+            return e;
+        }
+        return kid != null && jwksKeyStore.findKey(kid) == null ? new UnknownSigningKeyException(e.getMessage(), e) : e;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.keycloak.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * JSON object claim kept as a slice of the verified payload and parsed on first access.
+ *
+ * Reading it as a {@link Map} parses the slice once, into the same structure the full
+ * Nimbus decoder produces. {@link #forEachString} and {@link #forEachMemberString} stream
+ * string values straight from the bytes instead, so roles can be read from a large
+ * {@code resource_access} claim without building its maps and lists. Serializes as a plain
+ * map, e.g. when a verified token is shared with other nodes.
+ */
+public final class LazyJsonObject extends AbstractMap<String, Object> implements Serializable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final transient byte[] payload;
+    private final transient int offset;
+    private final transient int length;
+    private transient volatile Map<String, Object> parsed;
+
+    LazyJsonObject(byte[] payload, int offset, int length) {
+        this.payload = payload;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return parsed().entrySet();
+    }
+
+    @Override
+    public Object get(Object key) {
+        return parsed().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parsed().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return parsed().size();
+    }
+
+    /**
+     * Whether the object has been parsed into a map yet.
+     */
+    public boolean isParsed() {
+        return parsed != null;
+    }
+
+    /**
+     * Passes the strings under {@code field} to the consumer: each string element if it is an
+     * array, the value itself if it is a string. Other values are ignored.
+     */
+    public void forEachString(String field, Consumer<String> consumer) {
+        Map<String, Object> map = parsed;
+        if (map != null) {
+            acceptStrings(map.get(field), consumer);
+            return;
+        }
+        try (JsonParser parser = parser()) {
+            parser.nextToken();
+            forEachString(parser, field, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Like {@link #forEachString}, for the {@code field} of every member that is itself an object,
+     * e.g. the roles of every client in {@code resource_access}. The consumer gets the member's
+     * name and each string.
+     */
+    public void forEachMemberString(String field, BiConsumer<String, String> consumer) {
+        Map<String, Object> map = parsed;
+        if (map != null) {
+            for (Map.Entry<String, Object> member : map.entrySet()) {
+                if (member.getValue() instanceof Map<?, ?> memberMap) {
+                    String name = member.getKey();
+                    acceptStrings(memberMap.get(field), value -> consumer.accept(name, value));
+                }
+            }
+            return;
+        }
+        try (JsonParser parser = parser()) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    forEachString(parser, field, value -> consumer.accept(name, value));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the object the parser is at, up to and including its end.
+     */
+    private static void forEachString(JsonParser parser, String field, Consumer<String> consumer) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean matches = field.equals(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (matches && value == JsonToken.VALUE_STRING) {
+                consumer.accept(parser.getText());
+            } else if (matches && value == JsonToken.START_ARRAY) {
+                while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        consumer.accept(parser.getText());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void acceptStrings(Object value, Consumer<String> consumer) {
+        if (value instanceof String string) {
+            consumer.accept(string);
+        } else if (value instanceof Collection<?> values) {
+            for (Object element : values) {
+                if (element instanceof String string) {
+                    consumer.accept(string);
+                }
+            }
+        }
+    }
+
+    private JsonParser parser() throws IOException {
+        return JSON_FACTORY.createParser(payload, offset, length);
+    }
+
+    private Map<String, Object> parsed() {
+        Map<String, Object> map = parsed;
+        if (map == null) {
+            try {
+                map = Collections.unmodifiableMap(
+                        JSONObjectUtils.parse(new String(payload, offset, length, StandardCharsets.UTF_8)));
+            } catch (ParseException e) {
+                // The slice was scanned as a JSON object when the token was decoded
+                throw new IllegalStateException("Invalid JSON object claim", e);
+            }
+            parsed = map;
+        }
+        return map;
+    }
+
+    private Object writeReplace() {
+        return new LinkedHashMap<>(parsed());
+    }
+}
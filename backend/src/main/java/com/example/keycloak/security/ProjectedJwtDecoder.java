@@ -0,0 +1,285 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RS256 JWT decoder that only turns the claims of a {@link ClaimProjection} into Java objects.
+ *
+ * The signature is verified over the raw {@code header.payload} bytes before the payload is
+ * looked at. The payload is then scanned once with a streaming parser: claims outside the
+ * projection are skipped, scalar and array claims are read directly, and object claims
+ * become {@link LazyJsonObject} views over the payload bytes, parsed on first access. The
+ * resulting {@link Jwt} has the same claim types and is validated the same way as with
+ * {@code NimbusJwtDecoder}, so tokens carrying hundreds of client roles cost a fraction of
+ * the allocation to decode and to keep in the verified token cache.
+ */
+public class ProjectedJwtDecoder implements JwtDecoder {
+
+    private static final String DECODING_ERROR_MESSAGE_TEMPLATE = "An error occurred while attempting to decode the Jwt: %s";
+
+    // Duplicate claims are rejected, as the Nimbus parser does
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+            .build();
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    private final JWKSource<SecurityContext> keySource;
+    private final ClaimProjection projection;
+    private final OAuth2TokenValidator<Jwt> validator;
+    private final Converter<Map<String, Object>, Map<String, Object>> claimSetConverter =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+
+    /**
+     * @param keySource Source of the verification keys; may be null for {@link #decode(SignedToken, List)} only
+     * @param projection Claims to keep
+     * @param validator Validator applied to the decoded token
+     */
+    public ProjectedJwtDecoder(JWKSource<SecurityContext> keySource, ClaimProjection projection,
+                               OAuth2TokenValidator<Jwt> validator) {
+        this.keySource = keySource;
+        this.projection = projection;
+        this.validator = validator;
+    }
+
+    /**
+     * Header and raw parts of a token whose signature has not been checked yet.
+     */
+    public record SignedToken(String token, JWSHeader header, int payloadStart, int signatureStart) {
+
+        /**
+         * Selector of the keys that may have signed the token.
+         */
+        public JWKSelector keySelector() {
+            return new JWKSelector(JWKMatcher.forJWSHeader(header));
+        }
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        SignedToken signed = parse(token);
+        List<JWK> keys;
+        try {
+            keys = keySource.get(signed.keySelector(), null);
+        } catch (KeySourceException e) {
+            throw new JwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+        return decode(signed, keys);
+    }
+
+    /**
+     * Splits the token and parses its header.
+     *
+     * @throws InvalidJwtException if the token is not a compact RS256 JWS
+     */
+    public SignedToken parse(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot > 0 ? token.indexOf('.', firstDot + 1) : -1;
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new InvalidJwtException(RejectionReason.MALFORMED, String.format(DECODING_ERROR_MESSAGE_TEMPLATE,
+                    "Invalid serialized unsecured/JWS/JWE object: Missing part delimiters"));
+        }
+        JWSHeader header;
+        try {
+            header = JWSHeader.parse(new Base64URL(token.substring(0, firstDot)));
+        } catch (ParseException e) {
+            throw new InvalidJwtException(RejectionReason.MALFORMED,
+                    String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+        if (!JWSAlgorithm.RS256.equals(header.getAlgorithm())) {
+            throw new InvalidJwtException(RejectionReason.UNSUPPORTED_ALGORITHM,
+                    "Signed JWT rejected: Another algorithm expected, or no matching key(s) found");
+        }
+        JOSEObjectType type = header.getType();
+        if (type != null && !JOSEObjectType.JWT.equals(type)) {
+            throw new InvalidJwtException(RejectionReason.INVALID_TOKEN,
+                    String.format(DECODING_ERROR_MESSAGE_TEMPLATE, "JOSE header typ (type) " + type + " not allowed"));
+        }
+        return new SignedToken(token, header, firstDot + 1, secondDot + 1);
+    }
+
+    /**
+     * Verifies the signature with one of the keys, then reads and validates the projected claims.
+     *
+     * @param signed The parsed token
+     * @param keys Keys selected by {@link SignedToken#keySelector()}
+     * @throws UnknownSigningKeyException if none of the keys can verify the token
+     * @throws InvalidJwtException if the signature or the claims are invalid
+     */
+    public Jwt decode(SignedToken signed, List<JWK> keys) {
+        String token = signed.token();
+        byte[] signingInput = signingInput(token, signed.signatureStart() - 1);
+        verify(signed, keys, signingInput);
+        ByteBuffer payload;
+        try {
+            payload = BASE64_URL.decode(ByteBuffer.wrap(signingInput, signed.payloadStart(),
+                    signingInput.length - signed.payloadStart()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidJwtException(RejectionReason.MALFORMED,
+                    String.format(DECODING_ERROR_MESSAGE_TEMPLATE, "Malformed payload"), e);
+        }
+
+        Map<String, Object> claims = claimSetConverter.convert(readClaims(payload.array(), payload.limit()));
+        Jwt jwt;
+        try {
+            jwt = Jwt.withTokenValue(token)
+                    .headers(headers -> headers.putAll(signed.header().toJSONObject()))
+                    .claims(existing -> existing.putAll(claims))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidJwtException(RejectionReason.INVALID_CLAIMS,
+                    String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+        validate(jwt);
+        return jwt;
+    }
+
+    /**
+     * Copies the ASCII {@code header.payload} prefix of the token into bytes once; a substring
+     * and its encoding would copy a large token twice.
+     */
+    @SuppressWarnings("deprecation")
+    private static byte[] signingInput(String token, int length) {
+        for (int i = 0; i < length; i++) {
+            if (token.charAt(i) > 0x7f) {
+                throw new InvalidJwtException(RejectionReason.MALFORMED, String.format(
+                        DECODING_ERROR_MESSAGE_TEMPLATE, "Invalid serialized unsecured/JWS/JWE object: Non-ASCII characters"));
+            }
+        }
+        byte[] bytes = new byte[length];
+        token.getBytes(0, length, bytes, 0);
+        return bytes;
+    }
+
+    private static void verify(SignedToken signed, List<JWK> keys, byte[] signingInput) {
+        Base64URL signature = new Base64URL(signed.token().substring(signed.signatureStart()));
+        boolean keyFound = false;
+        for (JWK key : keys) {
+            if (!(key instanceof RSAKey rsaKey)) {
+                continue;
+            }
+            keyFound = true;
+            try {
+                if (new RSASSAVerifier(rsaKey).verify(signed.header(), signingInput, signature)) {
+                    return;
+                }
+            } catch (JOSEException e) {
+                // Unusable key: try the next one
+            }
+        }
+        if (!keyFound) {
+            throw new UnknownSigningKeyException("Signed JWT rejected: Another algorithm expected, or no matching key(s) found");
+        }
+        throw new InvalidJwtException(RejectionReason.INVALID_SIGNATURE, "Signed JWT rejected: Invalid signature");
+    }
+
+    private Map<String, Object> readClaims(byte[] payload, int length) {
+        Map<String, Object> claims = new HashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(payload, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw malformedPayload(null);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (projection.includes(name)) {
+                    Object value = readValue(parser, payload);
+                    if (value != null) {
+                        claims.put(name, value);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw malformedPayload(null);
+            }
+        } catch (IOException e) {
+            throw malformedPayload(e);
+        }
+        return claims;
+    }
+
+    /**
+     * Reads the value the parser is at; objects are left unparsed.
+     */
+    private static Object readValue(JsonParser parser, byte[] payload) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                    ? parser.getBigIntegerValue() : (Object) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case START_ARRAY -> {
+                List<Object> values = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    values.add(readValue(parser, payload));
+                }
+                yield values;
+            }
+            case START_OBJECT -> {
+                int start = (int) parser.currentTokenLocation().getByteOffset();
+                parser.skipChildren();
+                int end = (int) parser.currentLocation().getByteOffset();
+                yield new LazyJsonObject(payload, start, end - start);
+            }
+            default -> null;
+        };
+    }
+
+    private void validate(Jwt jwt) {
+        OAuth2TokenValidatorResult result = validator.validate(jwt);
+        if (result.hasErrors()) {
+            String description = result.getErrors().stream()
+                    .map(OAuth2Error::getDescription)
+                    .filter(text -> text != null && !text.isEmpty())
+                    .findFirst()
+                    .map(text -> String.format(DECODING_ERROR_MESSAGE_TEMPLATE, text))
+                    .orElse("Unable to validate Jwt");
+            throw new JwtValidationException(description, result.getErrors());
+        }
+    }
+
+    private static InvalidJwtException malformedPayload(Exception cause) {
+        return new InvalidJwtException(RejectionReason.MALFORMED,
+                String.format(DECODING_ERROR_MESSAGE_TEMPLATE, "Malformed payload"), cause);
+    }
+}
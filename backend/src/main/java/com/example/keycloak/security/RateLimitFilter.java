@@ -0,0 +1,53 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link SubjectRateLimiter} to authenticated servlet requests.
+ *
+ * Runs right after bearer token authentication. Requests over the limit are answered
+ * with {@code 429 Too Many Requests} and a {@code Retry-After} header; unauthenticated
+ * requests pass through to the authorization rules untouched.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final SubjectRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(SubjectRateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String subject = SubjectRateLimiter.subjectOf(SecurityContextHolder.getContext().getAuthentication());
+        if (subject != null) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            long waitNanos = rateLimiter.acquire(PathContainer.parsePath(path), subject);
+            if (waitNanos > 0) {
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER,
+                        Long.toString(SubjectRateLimiter.retryAfterSeconds(waitNanos)));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Too many requests"));
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies the {@link SubjectRateLimiter} to authenticated reactive requests.
+ *
+ * Reactive counterpart of {@link RateLimitFilter}: runs right after bearer token
+ * authentication and answers requests over the limit with {@code 429 Too Many Requests}
+ * and a {@code Retry-After} header.
+ */
+public class RateLimitWebFilter implements WebFilter {
+
+    private final SubjectRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitWebFilter(SubjectRateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .flatMap(authentication -> Mono.justOrEmpty(SubjectRateLimiter.subjectOf(authentication)))
+                .map(subject -> rateLimiter.acquire(exchange.getRequest().getPath().pathWithinApplication(), subject))
+                .defaultIfEmpty(0L)
+                .flatMap(waitNanos -> waitNanos > 0 ? tooManyRequests(exchange.getResponse(), waitNanos)
+                        : chain.filter(exchange));
+    }
+
+    private Mono<Void> tooManyRequests(ServerHttpResponse response, long waitNanos) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(SubjectRateLimiter.retryAfterSeconds(waitNanos)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromCallable(() -> response.bufferFactory()
+                .wrap(objectMapper.writeValueAsBytes(ImmutableApiResponse.error("Too many requests")))));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.keycloak.security;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive authorization manager deciding every exchange from a {@link RouteAuthorizationTable}.
+ *
+ * Matches the decoded path without matrix parameters, as Spring's path matchers do.
+ */
+public class ReactiveRouteAuthorizationManager implements ReactiveAuthorizationManager<AuthorizationContext> {
+
+    private static final Mono<AuthorizationDecision> GRANTED = Mono.just(new AuthorizationDecision(true));
+    private static final Mono<AuthorizationDecision> DENIED = Mono.just(new AuthorizationDecision(false));
+
+    private final RouteAuthorizationTable table;
+
+    public ReactiveRouteAuthorizationManager(RouteAuthorizationTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        ServerHttpRequest request = context.getExchange().getRequest();
+        int rule = table.match(request.getMethod().name(), pathToMatch(request.getPath()));
+        if (table.permitsAll(rule)) {
+            return GRANTED;
+        }
+        return authentication
+                .map(caller -> table.isAllowed(rule, caller))
+                .defaultIfEmpty(false)
+                .flatMap(allowed -> allowed ? GRANTED : DENIED);
+    }
+
+    private static String pathToMatch(RequestPath requestPath) {
+        PathContainer path = requestPath.pathWithinApplication();
+        String value = path.value();
+        if (value.indexOf('%') < 0 && value.indexOf(';') < 0) {
+            return value;
+        }
+        StringBuilder decoded = new StringBuilder(value.length());
+        for (PathContainer.Element element : path.elements()) {
+            decoded.append(element instanceof PathContainer.PathSegment segment
+                    ? segment.valueToMatch()
+                    : element.value());
+        }
+        return decoded.toString();
+    }
+}
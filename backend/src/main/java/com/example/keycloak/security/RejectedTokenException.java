@@ -0,0 +1,30 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+
+/**
+ * Stackless {@link InvalidBearerTokenException} for tokens rejected by the fast-reject
+ * path or the decoder.
+ *
+ * Rejections are expected and frequent under a burst of bad tokens; the stack trace is
+ * never logged, so it is not captured.
+ */
+public class RejectedTokenException extends InvalidBearerTokenException {
+
+    private final RejectionReason reason;
+
+    public RejectedTokenException(RejectionReason reason) {
+        super("Bearer token rejected: " + reason.tag());
+        this.reason = reason;
+    }
+
+    public RejectionReason getReason() {
+        return reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Revokes tokens before they expire, by subject, Keycloak session ({@code sid}) or
+ * token id ({@code jti}).
+ *
+ * A token is revoked when every identifier that is set matches it. Unless a token id is
+ * given, tokens issued after {@code revokedAt} are not affected, so a user can sign in
+ * again once their earlier tokens were revoked.
+ */
+public record Revocation(String subject, String sessionId, String tokenId, Instant revokedAt)
+        implements Serializable {
+
+    public Revocation {
+        if (subject == null && sessionId == null && tokenId == null) {
+            throw new IllegalArgumentException("A revocation needs a subject, session id or token id");
+        }
+        if (revokedAt == null) {
+            throw new IllegalArgumentException("A revocation needs a revocation time");
+        }
+    }
+
+    /**
+     * Whether this revocation applies to the given token.
+     */
+    public boolean matches(Jwt jwt) {
+        if (tokenId != null) {
+            return tokenId.equals(jwt.getId()) && matchesSession(jwt) && matchesSubject(jwt);
+        }
+        Instant issuedAt = jwt.getIssuedAt();
+        return matchesSession(jwt) && matchesSubject(jwt) && (issuedAt == null || !issuedAt.isAfter(revokedAt));
+    }
+
+    /**
+     * Key of the most specific identifier, used to index revocations.
+     */
+    String indexKey() {
+        if (tokenId != null) {
+            return jtiKey(tokenId);
+        }
+        return sessionId != null ? sidKey(sessionId) : subKey(subject);
+    }
+
+    static String jtiKey(String tokenId) {
+        return "jti:" + tokenId;
+    }
+
+    static String sidKey(String sessionId) {
+        return "sid:" + sessionId;
+    }
+
+    static String subKey(String subject) {
+        return "sub:" + subject;
+    }
+
+    private boolean matchesSession(Jwt jwt) {
+        return sessionId == null || sessionId.equals(jwt.getClaimAsString("sid"));
+    }
+
+    private boolean matchesSubject(Jwt jwt) {
+        return subject == null || subject.equals(jwt.getSubject());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.keycloak.security;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable set of role names stored as a sorted, de-duplicated array.
+ *
+ * Membership checks are a binary search over interned strings and do not allocate.
+ */
+public final class RoleSet {
+
+    private static final RoleSet EMPTY = new RoleSet(new String[0]);
+
+    private final String[] roles;
+
+    private RoleSet(String[] sortedRoles) {
+        this.roles = sortedRoles;
+    }
+
+    public static RoleSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a role set from the given roles, which may contain duplicates.
+     * The array is sorted in place and must not be modified afterwards.
+     *
+     * @param roles Role names
+     * @param count Number of leading array slots in use
+     * @return The role set
+     */
+    static RoleSet of(String[] roles, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(roles, 0, count);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (!roles[i].equals(roles[unique - 1])) {
+                roles[unique++] = roles[i];
+            }
+        }
+        return new RoleSet(unique == roles.length ? roles : Arrays.copyOf(roles, unique));
+    }
+
+    /**
+     * Checks whether the role is in this set.
+     *
+     * @param role The role name, without any authority prefix
+     * @return true if present
+     */
+    public boolean contains(String role) {
+        return role != null && Arrays.binarySearch(roles, role) >= 0;
+    }
+
+    public int size() {
+        return roles.length;
+    }
+
+    public boolean isEmpty() {
+        return roles.length == 0;
+    }
+
+    /**
+     * Returns the role at the given position in sorted order.
+     */
+    public String get(int index) {
+        return roles[index];
+    }
+
+    /**
+     * Returns a read-only {@link Set} view of the roles in sorted order.
+     */
+    public Set<String> asSet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < roles.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (index >= roles.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return roles[index++];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String role && RoleSet.this.contains(role);
+            }
+
+            @Override
+            public int size() {
+                return roles.length;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof RoleSet other && Arrays.equals(roles, other.roles));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(roles);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(roles);
+    }
+}
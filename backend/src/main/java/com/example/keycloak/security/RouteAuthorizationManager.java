@@ -0,0 +1,36 @@
+package com.example.keycloak.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Servlet authorization manager deciding every request from a {@link RouteAuthorizationTable}.
+ *
+ * Matches the decoded, normalized servlet path, as Spring's request matchers do.
+ */
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final RouteAuthorizationTable table;
+
+    public RouteAuthorizationManager(RouteAuthorizationTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        String pathInfo = request.getPathInfo();
+        String path = pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+        int rule = table.match(request.getMethod(), path);
+        // Public routes do not resolve the caller
+        return table.permitsAll(rule) || table.isAllowed(rule, authentication.get()) ? GRANTED : DENIED;
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URL authorization rules compiled into a trie of path segments.
+ *
+ * Rules keep their first-match-wins order: a request gets the earliest rule whose method
+ * and pattern match, or the fallback rule when none does. Each node holds the earliest
+ * rule ending there per HTTP method, literal children sit in an open-addressing table
+ * probed with the segment's characters in place, and the roles of each rule are a bitmask
+ * over the roles named by all rules (at most 64). A decision walks the path once and does
+ * not allocate; the caller's role mask is computed once per cached authentication.
+ */
+public final class RouteAuthorizationTable {
+
+    private static final int NONE = Integer.MAX_VALUE;
+    private static final int METHOD_SLOTS = 9;
+    private static final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    private final Node root = new Node();
+    private final RouteRule.Access[] access;
+    private final long[] requiredRoles;
+    private final String[] roleNames;
+    private final Map<String, Long> authorityBits = new HashMap<>();
+    private final int size;
+
+    /**
+     * Compiles the rules.
+     *
+     * @param rules Rules in precedence order
+     * @param fallback Rule applied when no rule matches; its pattern is not used
+     * @throws IllegalArgumentException for an unsupported pattern or more than 64 distinct roles
+     */
+    public RouteAuthorizationTable(List<RouteRule> rules, RouteRule fallback) {
+        this.size = rules.size();
+        this.access = new RouteRule.Access[size + 1];
+        this.requiredRoles = new long[size + 1];
+
+        Map<String, Integer> roleBits = new LinkedHashMap<>();
+        for (int i = 0; i <= size; i++) {
+            RouteRule rule = i < size ? rules.get(i) : fallback;
+            access[i] = rule.access();
+            for (String role : rule.roles()) {
+                Integer bit = roleBits.computeIfAbsent(role, r -> roleBits.size());
+                if (bit >= Long.SIZE) {
+                    throw new IllegalArgumentException("Route rules name more than " + Long.SIZE + " roles");
+                }
+                requiredRoles[i] |= 1L << bit;
+            }
+            if (i < size) {
+                insert(rule, i);
+            }
+        }
+        this.roleNames = roleBits.keySet().toArray(String[]::new);
+        roleBits.forEach((role, bit) ->
+                authorityBits.put(KeycloakAuthorityExtractor.AUTHORITY_PREFIX + role, 1L << bit));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decides whether the request is allowed.
+     *
+     * @param method HTTP method of the request
+     * @param path Decoded path within the application, starting with {@code /}
+     * @param authentication The caller, or null if unknown
+     * @return true if allowed
+     */
+    public boolean isAllowed(String method, String path, Authentication authentication) {
+        return isAllowed(match(method, path), authentication);
+    }
+
+    /**
+     * Decides whether the matched rule allows the caller.
+     */
+    boolean isAllowed(int rule, Authentication authentication) {
+        return switch (access[rule]) {
+            case PERMIT_ALL -> true;
+            case DENY_ALL -> false;
+            case AUTHENTICATED -> isAuthenticated(authentication);
+            case ANY_ROLE -> isAuthenticated(authentication)
+                    && (roleMask(authentication) & requiredRoles[rule]) != 0;
+        };
+    }
+
+    private static boolean isAuthenticated(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated() && !trustResolver.isAnonymous(authentication);
+    }
+
+    /**
+     * Whether the rule allows every caller, so the caller need not be resolved.
+     */
+    boolean permitsAll(int rule) {
+        return access[rule] == RouteRule.Access.PERMIT_ALL;
+    }
+
+    /**
+     * Returns the index of the rule applied to the request, {@link #size()} for the fallback.
+     */
+    int match(String method, String path) {
+        int slot = methodSlot(method);
+        int start = path.isEmpty() || path.charAt(0) != '/' ? 0 : 1;
+        if (path.length() <= 1 && start == path.length()) {
+            // "/" or "": no segments
+            start = path.length() + 1;
+        }
+        int rule = match(root, path, start, slot, NONE);
+        return rule == NONE ? size : rule;
+    }
+
+    private static int match(Node node, String path, int start, int slot, int best) {
+        best = Math.min(best, node.rest(slot));
+        if (start > path.length()) {
+            return Math.min(best, node.exact(slot));
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        Node literal = node.child(path, start, end);
+        if (literal != null) {
+            best = match(literal, path, end + 1, slot, best);
+        }
+        if (node.wildcard != null && end > start) {
+            best = match(node.wildcard, path, end + 1, slot, best);
+        }
+        return best;
+    }
+
+    /**
+     * Bitmask of the rules' roles held by the caller.
+     */
+    long roleMask(Authentication authentication) {
+        if (authentication instanceof KeycloakAuthenticationToken token) {
+            return token.routeRoleMask(this);
+        }
+        long mask = 0;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            Long bit = authorityBits.get(authority.getAuthority());
+            if (bit != null) {
+                mask |= bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Bitmask of the rules' roles in the given role set.
+     */
+    long roleMask(RoleSet roles) {
+        long mask = 0;
+        for (int bit = 0; bit < roleNames.length; bit++) {
+            if (roles.contains(roleNames[bit])) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    private void insert(RouteRule rule, int index) {
+        String pattern = rule.pattern();
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Pattern must start with '/': " + pattern);
+        }
+        String[] segments = pattern.length() == 1 ? new String[0] : pattern.substring(1).split("/", -1);
+        int slot = rule.method() != null ? methodSlot(rule.method().name()) : 0;
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.equals("**")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' is only supported at the end of a pattern: " + pattern);
+                }
+                node.rest = earliest(node.rest, slot, index);
+                return;
+            }
+            if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}") && !segment.contains("*"))) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else if (segment.contains("*") || segment.contains("?") || segment.contains("{")) {
+                throw new IllegalArgumentException("Unsupported wildcard in pattern: " + pattern);
+            } else {
+                node = node.childOrCreate(segment);
+            }
+        }
+        node.exact = earliest(node.exact, slot, index);
+    }
+
+    private static int[] earliest(int[] rules, int slot, int index) {
+        if (rules == null) {
+            rules = new int[METHOD_SLOTS];
+            Arrays.fill(rules, NONE);
+        }
+        rules[slot] = Math.min(rules[slot], index);
+        return rules;
+    }
+
+    /**
+     * Slot 0 holds rules for every method; unknown methods only match those.
+     */
+    private static int methodSlot(String method) {
+        return switch (method) {
+            case "GET" -> 1;
+            case "HEAD" -> 2;
+            case "POST" -> 3;
+            case "PUT" -> 4;
+            case "PATCH" -> 5;
+            case "DELETE" -> 6;
+            case "OPTIONS" -> 7;
+            case "TRACE" -> 8;
+            default -> 0;
+        };
+    }
+
+    private static final class Node {
+
+        private String[] keys = new String[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private Node wildcard;
+        private int[] exact;
+        private int[] rest;
+
+        int exact(int slot) {
+            return exact == null ? NONE : Math.min(exact[0], exact[slot]);
+        }
+
+        int rest(int slot) {
+            return rest == null ? NONE : Math.min(rest[0], rest[slot]);
+        }
+
+        Node child(String path, int start, int end) {
+            if (childCount == 0) {
+                return null;
+            }
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int length = end - start;
+            int mask = keys.length - 1;
+            for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(String segment) {
+            Node existing = child(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            if ((childCount + 1) * 2 > keys.length) {
+                resize(Math.max(4, keys.length * 2));
+            }
+            Node node = new Node();
+            put(segment, node);
+            childCount++;
+            return node;
+        }
+
+        private void put(String key, Node node) {
+            int mask = keys.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            children[i] = node;
+        }
+
+        private void resize(int capacity) {
+            String[] oldKeys = keys;
+            Node[] oldChildren = children;
+            keys = new String[capacity];
+            children = new Node[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.keycloak.security;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.List;
+
+/**
+ * One URL authorization rule for {@link RouteAuthorizationTable}.
+ *
+ * Patterns are made of literal segments, {@code *} or {@code {name}} for exactly one
+ * non-empty segment, and a trailing {@code **} for any remaining segments (including none).
+ *
+ * @param method HTTP method the rule applies to, or null for every method
+ * @param pattern Path pattern within the application
+ * @param access What the rule requires
+ * @param roles Roles of which the caller needs at least one, for {@link Access#ANY_ROLE}
+ */
+public record RouteRule(HttpMethod method, String pattern, Access access, List<String> roles) {
+
+    public enum Access {
+        PERMIT_ALL, AUTHENTICATED, ANY_ROLE, DENY_ALL
+    }
+
+    public RouteRule {
+        roles = List.copyOf(roles);
+        if (access == Access.ANY_ROLE && roles.isEmpty()) {
+            throw new IllegalArgumentException("No roles given for " + pattern);
+        }
+    }
+
+    public static RouteRule permitAll(String pattern) {
+        return new RouteRule(null, pattern, Access.PERMIT_ALL, List.of());
+    }
+
+    public static RouteRule authenticated(String pattern) {
+        return authenticated(null, pattern);
+    }
+
+    public static RouteRule authenticated(HttpMethod method, String pattern) {
+        return new RouteRule(method, pattern, Access.AUTHENTICATED, List.of());
+    }
+
+    public static RouteRule hasAnyRole(String pattern, String... roles) {
+        return hasAnyRole(null, pattern, roles);
+    }
+
+    public static RouteRule hasAnyRole(HttpMethod method, String pattern, String... roles) {
+        return new RouteRule(method, pattern, Access.ANY_ROLE, List.of(roles));
+    }
+
+    public static RouteRule denyAll(String pattern) {
+        return new RouteRule(null, pattern, Access.DENY_ALL, List.of());
+    }
+}
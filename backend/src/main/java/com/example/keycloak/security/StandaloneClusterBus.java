@@ -0,0 +1,50 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClusterBus} of a node that runs on its own.
+ */
+final class StandaloneClusterBus implements ClusterBus {
+
+    private static final CompletableFuture<Jwt> MISS = CompletableFuture.completedFuture(null);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public CompletableFuture<Jwt> findVerifiedToken(String tokenHash) {
+        return MISS;
+    }
+
+    @Override
+    public void shareVerifiedToken(String tokenHash, Jwt jwt, Duration ttl) {
+    }
+
+    @Override
+    public void publish(ClusterEvent event) {
+    }
+
+    @Override
+    public List<Revocation> revocations() {
+        return List.of();
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEvent> listener) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.SubjectActivity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Subjects seen recently by the authentication path, sorted by subject.
+ *
+ * Updated on every successful authentication, cache hits included: an existing subject
+ * costs one lookup in a concurrent skip list, a striped counter increment and a few
+ * volatile writes, so concurrent requests of the same subject do not contend on one
+ * counter. Subjects idle for longer than the retention period are swept in the
+ * background; new subjects beyond the maximum are not indexed until the sweep makes
+ * room. Listing walks the live map from a subject onwards without copying it.
+ */
+public class SubjectActivityIndex {
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final long retentionMillis;
+    private final int maxSubjects;
+    private final Clock clock;
+    private final Counter overflow;
+    private volatile long nextSweepMillis;
+
+    public SubjectActivityIndex(Duration retention, int maxSubjects, Clock clock, MeterRegistry meterRegistry) {
+        this.retentionMillis = retention.toMillis();
+        this.maxSubjects = maxSubjects;
+        this.clock = clock;
+        this.nextSweepMillis = clock.millis() + sweepIntervalMillis();
+
+        this.overflow = Counter.builder("keycloak.subjects.overflow")
+                .description("Authentications of new subjects not indexed because the index was full")
+                .register(meterRegistry);
+        Gauge.builder("keycloak.subjects.active", size, AtomicInteger::get)
+                .description("Subjects in the activity index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records an authenticated request.
+     */
+    public void record(Authentication authentication) {
+        String subject = SubjectRateLimiter.subjectOf(authentication);
+        if (subject == null) {
+            return;
+        }
+        long now = clock.millis();
+        Entry entry = entries.get(subject);
+        if (entry == null) {
+            entry = add(subject, now);
+            if (entry == null) {
+                overflow.increment();
+                return;
+            }
+        }
+        entry.requests.increment();
+        if (entry.lastAccessMillis != now) {
+            entry.lastAccessMillis = now;
+        }
+        if (authentication instanceof KeycloakAuthenticationToken token && entry.roles != token.getRoles()) {
+            entry.roles = token.getRoles();
+        }
+        if (authentication instanceof JwtAuthenticationToken token && token.getToken().getExpiresAt() != null) {
+            long expiresAt = token.getToken().getExpiresAt().toEpochMilli();
+            if (expiresAt > entry.tokenExpiresAtMillis) {
+                entry.tokenExpiresAtMillis = expiresAt;
+            }
+        }
+        if (now >= nextSweepMillis && sweeping.compareAndSet(false, true)) {
+            nextSweepMillis = now + sweepIntervalMillis();
+            ForkJoinPool.commonPool().execute(this::sweep);
+        }
+    }
+
+    /**
+     * Active subjects in subject order, read lazily from the live index.
+     *
+     * @param after Start after this subject, or null to start at the first
+     */
+    public Stream<SubjectActivity> stream(String after) {
+        ConcurrentNavigableMap<String, Entry> view = after == null ? entries : entries.tailMap(after, false);
+        long cutoff = clock.millis() - retentionMillis;
+        return view.entrySet().stream()
+                .filter(e -> e.getValue().lastAccessMillis >= cutoff)
+                .map(e -> e.getValue().snapshot(e.getKey()));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Removes subjects idle for longer than the retention period.
+     */
+    void sweep() {
+        try {
+            long cutoff = clock.millis() - retentionMillis;
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().lastAccessMillis < cutoff && entries.remove(e.getKey(), e.getValue())) {
+                    size.decrementAndGet();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private Entry add(String subject, long now) {
+        if (size.get() >= maxSubjects) {
+            return entries.get(subject);
+        }
+        Entry created = new Entry(now);
+        Entry existing = entries.putIfAbsent(subject, created);
+        if (existing != null) {
+            return existing;
+        }
+        size.incrementAndGet();
+        return created;
+    }
+
+    private long sweepIntervalMillis() {
+        return Math.max(retentionMillis / 10, 1000);
+    }
+
+    private static final class Entry {
+
+        private final LongAdder requests = new LongAdder();
+        private volatile long lastAccessMillis;
+        private volatile RoleSet roles = RoleSet.empty();
+        private volatile long tokenExpiresAtMillis;
+
+        Entry(long now) {
+            // Set before the entry is visible, so a concurrent sweep never sees it idle
+            this.lastAccessMillis = now;
+        }
+
+        SubjectActivity snapshot(String subject) {
+            Set<String> roleNames = roles.asSet();
+            return new SubjectActivity(subject, Instant.ofEpochMilli(lastAccessMillis), requests.sum(),
+                    roleNames, tokenExpiresAtMillis > 0 ? Instant.ofEpochMilli(tokenExpiresAtMillis) : null);
+        }
+    }
+}
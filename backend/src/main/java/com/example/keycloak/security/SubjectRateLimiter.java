@@ -0,0 +1,205 @@
+package com.example.keycloak.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Per-subject request rate limits, applied per route pattern.
+ *
+ * This rate limiter:
+ * - Keys buckets by the token's {@code sub} claim, falling back to {@code azp} for
+ *   tokens without a subject
+ * - Applies the first {@link Rule} whose pattern matches the request path; unmatched
+ *   paths are not limited
+ * - Implements each token bucket as a single {@link AtomicLong} updated by compare-and-set
+ *   (the generic cell rate algorithm), so concurrent requests never block each other
+ * - Evicts buckets that have been idle long enough to be full again, bounded by a
+ *   maximum number of subjects per route
+ * - Publishes {@value #REQUESTS} counters tagged with the route and outcome
+ *
+ * Bucket statistics are published under the {@code cache.*} metrics with
+ * {@code cache=rateLimitBuckets}.
+ */
+public class SubjectRateLimiter {
+
+    public static final String REQUESTS = "keycloak.ratelimit.requests";
+
+    public static final String CACHE_NAME = "rateLimitBuckets";
+
+    /**
+     * Rate limit of one route pattern.
+     *
+     * @param pattern Path pattern, e.g. {@code /api/user/**}
+     * @param permitsPerSecond Sustained requests per second allowed for one subject
+     * @param burst Requests one subject may send at once after being idle
+     */
+    public record Rule(String pattern, double permitsPerSecond, int burst) {
+    }
+
+    private final Route[] routes;
+    private final Ticker ticker;
+
+    public SubjectRateLimiter(List<Rule> rules, Duration idleTimeout, long maximumSubjects,
+                              MeterRegistry meterRegistry) {
+        this(rules, idleTimeout, maximumSubjects, meterRegistry, Ticker.systemTicker());
+    }
+
+    public SubjectRateLimiter(List<Rule> rules, Duration idleTimeout, long maximumSubjects,
+                              MeterRegistry meterRegistry, Ticker ticker) {
+        this.ticker = ticker;
+        this.routes = rules.stream()
+                .map(rule -> new Route(rule, idleTimeout, maximumSubjects, meterRegistry, ticker))
+                .toArray(Route[]::new);
+    }
+
+    /**
+     * Takes one permit for a request.
+     *
+     * @param path Request path within the application
+     * @param subject Rate limit key of the caller, see {@link #subjectOf(Authentication)}
+     * @return 0 if the request may proceed, otherwise the nanoseconds until a permit is available
+     */
+    public long acquire(PathContainer path, String subject) {
+        for (Route route : routes) {
+            if (route.pattern.matches(path)) {
+                return route.acquire(subject, ticker);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the rate limit key of an authenticated caller.
+     *
+     * @param authentication The current authentication
+     * @return The {@code sub} claim, the {@code azp} claim if there is no subject,
+     *         the principal name for non-JWT authentications, or null if not authenticated
+     */
+    public static String subjectOf(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            Jwt jwt = jwtAuthentication.getToken();
+            String subject = jwt.getSubject();
+            return subject != null ? subject : jwt.getClaimAsString("azp");
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Converts a wait time to a {@code Retry-After} value in whole seconds, rounded up.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Buckets and counters of one rule.
+     */
+    private static final class Route {
+
+        private final PathPattern pattern;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final Function<String, TokenBucket> newBucket;
+        private final Counter allowed;
+        private final Counter limited;
+
+        Route(Rule rule, Duration idleTimeout, long maximumSubjects, MeterRegistry meterRegistry, Ticker ticker) {
+            this.pattern = PathPatternParser.defaultInstance.parse(rule.pattern());
+            this.emissionIntervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rule.permitsPerSecond()));
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(1, rule.burst());
+            this.newBucket = subject -> new TokenBucket(ticker.read());
+
+            // A bucket idle for its full refill time is full again, so evicting it loses nothing
+            long idleNanos = Math.max(idleTimeout.toNanos(), burstToleranceNanos);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumSubjects)
+                    .expireAfterAccess(idleNanos, TimeUnit.NANOSECONDS)
+                    .ticker(ticker)
+                    .recordStats()
+                    .build();
+
+            Tags tags = Tags.of("route", rule.pattern());
+            if (meterRegistry != null) {
+                CaffeineCacheMetrics.monitor(meterRegistry, buckets, CACHE_NAME, tags);
+                this.allowed = requestCounter(meterRegistry, tags, "allowed");
+                this.limited = requestCounter(meterRegistry, tags, "limited");
+            } else {
+                this.allowed = null;
+                this.limited = null;
+            }
+        }
+
+        long acquire(String subject, Ticker ticker) {
+            TokenBucket bucket = buckets.getIfPresent(subject);
+            if (bucket == null) {
+                bucket = buckets.get(subject, newBucket);
+            }
+
+            // Read after the lookup, never before the creation time of a new bucket
+            long waitNanos = bucket.tryAcquire(ticker.read(), emissionIntervalNanos, burstToleranceNanos);
+            Counter outcome = waitNanos == 0 ? allowed : limited;
+            if (outcome != null) {
+                outcome.increment();
+            }
+            return waitNanos;
+        }
+
+        private static Counter requestCounter(MeterRegistry meterRegistry, Tags tags, String outcome) {
+            return Counter.builder(REQUESTS)
+                    .description("Authenticated requests checked against a rate limit")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Lock-free token bucket holding only the theoretical arrival time of the next request.
+     *
+     * Each permit pushes the arrival time one emission interval into the future; a request
+     * is allowed while the arrival time is at most the burst tolerance ahead of now.
+     */
+    static final class TokenBucket {
+
+        private final AtomicLong theoreticalArrival;
+
+        TokenBucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long next = Math.max(arrival, now) + emissionIntervalNanos;
+                long waitNanos = next - burstToleranceNanos - now;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
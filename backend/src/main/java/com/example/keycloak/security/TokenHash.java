@@ -0,0 +1,35 @@
+package com.example.keycloak.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Computes cache keys for bearer tokens.
+ *
+ * Raw token values are never used as map keys so that cache dumps and
+ * metrics do not leak credentials.
+ */
+public final class TokenHash {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private TokenHash() {
+    }
+
+    /**
+     * Returns the URL-safe Base64 SHA-256 digest of the given token.
+     *
+     * @param token The raw bearer token
+     * @return Hash of the token suitable for use as a cache key
+     */
+    public static String of(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ENCODER.encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Cheap structural checks of a bearer token, run before any signature verification.
+ *
+ * Rejects tokens that the JWT decoder would reject anyway: anything that is not a
+ * three-part JWS, an {@code alg} other than the accepted ones, a foreign {@code iss},
+ * or an {@code exp} in the past (allowing the same clock skew as the decoder).
+ * Tokens that pass still go through full decoding and validation.
+ *
+ * The header and payload are scanned with a streaming parser for {@code alg}, {@code iss}
+ * and {@code exp} only: other claims are skipped without being materialized, and the scan
+ * stops as soon as the fields it needs have been read, decoding the Base64URL parts only as
+ * far as it reads them. Malformed JSON past that point is
+ * left to the decoder.
+ */
+public class TokenPrecheck {
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Stands for a value that is neither a string nor a number
+    private static final Object OTHER = new Object();
+
+    private static final String[] HEADER_FIELDS = {"alg"};
+    private static final String[] CLAIM_FIELDS = {"iss", "exp"};
+
+    private final Set<String> acceptedAlgorithms;
+    private final String issuer;
+    private final Duration clockSkew;
+    private final Clock clock;
+
+    public TokenPrecheck(Set<String> acceptedAlgorithms, String issuer, Duration clockSkew) {
+        this(acceptedAlgorithms, issuer, clockSkew, Clock.systemUTC());
+    }
+
+    public TokenPrecheck(Set<String> acceptedAlgorithms, String issuer, Duration clockSkew, Clock clock) {
+        this.acceptedAlgorithms = Set.copyOf(acceptedAlgorithms);
+        this.issuer = issuer;
+        this.clockSkew = clockSkew;
+        this.clock = clock;
+    }
+
+    /**
+     * Checks a bearer token without verifying its signature.
+     *
+     * @param token The serialized JWT
+     * @return The reason to reject the token, or null if it should be fully decoded
+     */
+    public RejectionReason check(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot > 0 ? token.indexOf('.', firstDot + 1) : -1;
+        if (secondDot < 0 || secondDot == firstDot + 1 || secondDot == token.length() - 1
+                || token.indexOf('.', secondDot + 1) >= 0) {
+            return RejectionReason.MALFORMED;
+        }
+
+        Object[] header = scan(token, 0, firstDot, HEADER_FIELDS);
+        Object[] claims = header != null ? scan(token, firstDot + 1, secondDot, CLAIM_FIELDS) : null;
+        if (claims == null) {
+            return RejectionReason.MALFORMED;
+        }
+
+        if (!(header[0] instanceof String alg) || !acceptedAlgorithms.contains(alg)) {
+            return RejectionReason.UNSUPPORTED_ALGORITHM;
+        }
+        if (issuer != null && !issuer.equals(claims[0])) {
+            return RejectionReason.INVALID_ISSUER;
+        }
+
+        Object exp = claims[1];
+        if (exp != null) {
+            if (!(exp instanceof Number expiresAt)) {
+                return RejectionReason.INVALID_CLAIMS;
+            }
+            if (expiresAt.longValue() + clockSkew.toSeconds() < clock.instant().getEpochSecond()) {
+                return RejectionReason.EXPIRED;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the top-level string and number values of the given fields from a Base64URL
+     * encoded JSON object; other values read as {@link #OTHER} and absent or null ones as null.
+     *
+     * @return The values in the order of the fields, or null if the part is not a JSON object
+     */
+    private static Object[] scan(String token, int start, int end, String[] fields) {
+        Object[] values = new Object[fields.length];
+        int remaining = fields.length;
+        // Decoded as it is read, straight from the token: parts that are not needed are never copied
+        try (JsonParser parser = JSON_FACTORY.createParser(BASE64_URL.wrap(new AsciiInputStream(token, start, end)))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (remaining > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                int field = indexOf(fields, parser.currentName());
+                JsonToken value = parser.nextToken();
+                if (value == null) {
+                    return null;
+                }
+                if (field < 0 || values[field] != null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                values[field] = switch (value) {
+                    case VALUE_STRING -> parser.getText();
+                    case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+                    case VALUE_NULL -> null;
+                    default -> {
+                        parser.skipChildren();
+                        yield OTHER;
+                    }
+                };
+                remaining--;
+            }
+            return values;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static int indexOf(String[] fields, String name) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Characters of a region of an ASCII string as bytes, without copying the region.
+     */
+    private static final class AsciiInputStream extends InputStream {
+
+        private final String value;
+        private final int end;
+        private int position;
+
+        AsciiInputStream(String value, int start, int end) {
+            this.value = value;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return position < end ? value.charAt(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) value.charAt(position++);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.keycloak.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Revocations known to this node, indexed by token id, session id and subject.
+ *
+ * A revocation is kept for the retention period, which should be at least the longest
+ * access token lifetime; after that every token it could match has expired anyway.
+ * With no revocations the check costs one size read, so it runs on every request,
+ * including verified token cache hits.
+ */
+public class TokenRevocations {
+
+    private final Cache<String, List<Revocation>> revocations;
+
+    public TokenRevocations(Duration retention, MeterRegistry meterRegistry) {
+        this.revocations = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .build();
+
+        if (meterRegistry != null) {
+            Gauge.builder("keycloak.auth.revocations", revocations, Cache::estimatedSize)
+                    .description("Token revocations currently retained")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Records a revocation.
+     */
+    public void add(Revocation revocation) {
+        revocations.asMap().merge(revocation.indexKey(), List.of(revocation), (existing, added) -> {
+            if (existing.contains(revocation)) {
+                return existing;
+            }
+            List<Revocation> merged = new ArrayList<>(existing);
+            merged.addAll(added);
+            return List.copyOf(merged);
+        });
+    }
+
+    /**
+     * Whether any retained revocation matches the token.
+     */
+    public boolean isRevoked(Jwt jwt) {
+        if (revocations.estimatedSize() == 0) {
+            return false;
+        }
+        return matches(jwt.getId() != null ? Revocation.jtiKey(jwt.getId()) : null, jwt)
+                || matches(jwt.hasClaim("sid") ? Revocation.sidKey(jwt.getClaimAsString("sid")) : null, jwt)
+                || matches(jwt.getSubject() != null ? Revocation.subKey(jwt.getSubject()) : null, jwt);
+    }
+
+    public long size() {
+        return revocations.estimatedSize();
+    }
+
+    private boolean matches(String key, Jwt jwt) {
+        if (key == null) {
+            return false;
+        }
+        List<Revocation> candidates = revocations.getIfPresent(key);
+        if (candidates == null) {
+            return false;
+        }
+        for (Revocation revocation : candidates) {
+            if (revocation.matches(jwt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
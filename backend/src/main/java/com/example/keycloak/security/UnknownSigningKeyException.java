@@ -0,0 +1,21 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+
+/**
+ * Thrown by the JWT decoders when no known key matches the token's {@code kid}.
+ *
+ * The token may be signed with a key published after the last JWKS fetch, so it may
+ * become valid once the key set has been refreshed; unlike other decoding failures,
+ * it is never remembered as rejected.
+ */
+public class UnknownSigningKeyException extends InvalidJwtException {
+
+    public UnknownSigningKeyException(String message) {
+        super(RejectionReason.UNKNOWN_KEY, message);
+    }
+
+    public UnknownSigningKeyException(String message, Throwable cause) {
+        super(RejectionReason.UNKNOWN_KEY, message, cause);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.keycloak.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of bearer tokens that already passed signature and claim validation.
+ *
+ * Entries are keyed by {@link TokenHash} and live until the token's {@code exp}
+ * claim, capped by a configurable maximum TTL. Hit, miss and eviction counts are
+ * published through Micrometer under the {@code cache.*} metrics with
+ * {@code cache=verifiedTokens}.
+ */
+public class VerifiedTokenCache {
+
+    public static final String CACHE_NAME = "verifiedTokens";
+
+    private final Cache<String, VerifiedToken> cache;
+    private final Clock clock;
+
+    public VerifiedTokenCache(long maximumSize, Duration maximumTtl, MeterRegistry meterRegistry) {
+        this(maximumSize, maximumTtl, meterRegistry, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(long maximumSize, Duration maximumTtl, MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maximumTtl, clock))
+                .recordStats()
+                .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * Looks up a previously verified token.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @return The cached entry, or null if absent or already expired
+     */
+    public VerifiedToken get(String tokenHash) {
+        VerifiedToken entry = cache.getIfPresent(tokenHash);
+        if (entry != null && entry.isExpired(clock.instant())) {
+            cache.invalidate(tokenHash);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a verified token. Tokens that are already expired are not cached.
+     *
+     * @param tokenHash Hash of the bearer token
+     * @param token The verified token and its converted authentication
+     */
+    public void put(String tokenHash, VerifiedToken token) {
+        if (!token.isExpired(clock.instant())) {
+            cache.put(tokenHash, token);
+        }
+    }
+
+    /**
+     * Removes a single token from the cache.
+     *
+     * @param tokenHash Hash of the bearer token
+     */
+    public void invalidate(String tokenHash) {
+        cache.invalidate(tokenHash);
+    }
+
+    /**
+     * Removes every cached token matching the predicate.
+     *
+     * @param predicate Test on the verified JWT
+     */
+    public void invalidateIf(Predicate<Jwt> predicate) {
+        cache.asMap().values().removeIf(entry -> predicate.test(entry.jwt()));
+    }
+
+    /**
+     * Removes all cached tokens.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * A validated JWT together with the authentication it was converted to. Authentications
+     * are mutable, so the cached one is never handed out: each request gets its own copy.
+     */
+    public record VerifiedToken(Jwt jwt, AbstractAuthenticationToken authentication) {
+
+        /**
+         * A new authentication for one request, carrying the request's details like the
+         * tokens built by Spring's {@code JwtAuthenticationProvider}.
+         *
+         * @param details Details of the incoming bearer token authentication request
+         */
+        public AbstractAuthenticationToken newAuthentication(Object details) {
+            AbstractAuthenticationToken copy = authentication instanceof KeycloakAuthenticationToken keycloak
+                    ? keycloak.copy()
+                    : new JwtAuthenticationToken(jwt, authentication.getAuthorities(), authentication.getName());
+            copy.setDetails(details);
+            return copy;
+        }
+
+        boolean isExpired(Instant now) {
+            Instant expiresAt = jwt.getExpiresAt();
+            return expiresAt != null && !now.isBefore(expiresAt);
+        }
+    }
+
+    /**
+     * Expires each entry at the token's {@code exp}, never later than the maximum TTL.
+     */
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        private final long maximumTtlNanos;
+        private final Clock clock;
+
+        TokenExpiry(Duration maximumTtl, Clock clock) {
+            this.maximumTtlNanos = maximumTtl.toNanos();
+            this.clock = clock;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            Instant expiresAt = value.jwt().getExpiresAt();
+            if (expiresAt == null) {
+                return maximumTtlNanos;
+            }
+            long remainingMillis = expiresAt.toEpochMilli() - clock.millis();
+            return Math.max(0, Math.min(TimeUnit.MILLISECONDS.toNanos(remainingMillis), maximumTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
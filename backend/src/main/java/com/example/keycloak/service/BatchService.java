@@ -0,0 +1,186 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.dto.BatchItemResponse;
+import com.example.keycloak.dto.BatchRequest;
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter;
+import com.example.keycloak.security.AuditLog;
+import com.example.keycloak.security.SubjectRateLimiter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.WebInvocationPrivilegeEvaluator;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Executes the sub-requests of a batch call in parallel under a single authentication.
+ *
+ * This service:
+ * - Supports GET on the user profile, protected data and server time endpoints, answering
+ *   with the same API responses as their controllers
+ * - Authorizes each sub-request with the security chain's own rules, through the
+ *   {@link WebInvocationPrivilegeEvaluator}, so a batch never reaches more than separate calls would
+ * - Counts each sub-request against the caller's rate limits, and has each one take its own
+ *   slot of the {@link AdaptiveConcurrencyLimiter}, answering 503 when it gets none
+ * - Records each sub-request to an audited route in the {@link AuditLog}, with its own path and status
+ * - Runs sub-requests on virtual threads and reports each one with its own status, answering
+ *   504 for those that do not finish within the batch timeout
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+
+    private final WebInvocationPrivilegeEvaluator privilegeEvaluator;
+    private final SubjectRateLimiter rateLimiter;
+    @Nullable
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private final AuditLog auditLog;
+    private final Map<String, Function<Authentication, ApiResponse<?>>> operations;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public BatchService(UserService userService,
+                        ProtectedDataService protectedDataService,
+                        WebInvocationPrivilegeEvaluator privilegeEvaluator,
+                        SubjectRateLimiter rateLimiter,
+                        @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter,
+                        @Nullable AuditLog auditLog,
+                        @Value("${app.batch.timeout-seconds:30}") long timeoutSeconds) {
+        this.privilegeEvaluator = privilegeEvaluator;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.auditLog = auditLog;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.operations = Map.of(
+                "/api/user/profile", authentication -> ApiResponse.success("User profile retrieved successfully",
+                        userService.getUserProfile(authentication)),
+                "/api/protected/data", authentication -> ApiResponse.success("Protected data retrieved successfully",
+                        protectedDataService.getProtectedData(authentication)),
+                "/api/protected/time", authentication -> ApiResponse.success("Server time retrieved successfully",
+                        protectedDataService.getServerTime(authentication)));
+    }
+
+    /**
+     * Starts all sub-requests of a batch.
+     *
+     * @param items The sub-requests
+     * @param contextPath Context path of the batch request, used for authorization
+     * @param authentication Spring Security authentication object
+     * @return One future per sub-request; each completes within the batch timeout and none exceptionally
+     */
+    public List<CompletableFuture<BatchItemResponse>> execute(List<BatchRequest.Item> items, String contextPath,
+                                                              Authentication authentication) {
+        String subject = SubjectRateLimiter.subjectOf(authentication);
+        List<CompletableFuture<BatchItemResponse>> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchRequest.Item item = items.get(i);
+            String id = item.id() != null ? item.id() : Integer.toString(i);
+            results.add(execute(id, item, contextPath, authentication, subject));
+        }
+        return results;
+    }
+
+    private CompletableFuture<BatchItemResponse> execute(String id, BatchRequest.Item item, String contextPath,
+                                                         Authentication authentication, String subject) {
+        String path = item.path();
+        String method = item.method() != null ? item.method() : HttpMethod.GET.name();
+        if (auditLog == null || path == null || !auditLog.audits(PathContainer.parsePath(path))) {
+            return execute(id, path, method, contextPath, authentication, subject);
+        }
+
+        long start = System.nanoTime();
+        return execute(id, path, method, contextPath, authentication, subject).whenComplete((response, e) -> {
+            try {
+                auditLog.record(method, path, response.status(), authentication, System.nanoTime() - start);
+            } catch (RuntimeException auditFailure) {
+                logger.error("Failed to audit batch sub-request {} for: {}", path, authentication.getName(),
+                        auditFailure);
+            }
+        });
+    }
+
+    /**
+     * Time a sub-request may take before it is answered with 504.
+     *
+     * @return The batch timeout
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    private CompletableFuture<BatchItemResponse> execute(String id, String path, String method, String contextPath,
+                                                         Authentication authentication, String subject) {
+        Function<Authentication, ApiResponse<?>> operation = path != null ? operations.get(path) : null;
+        if (operation == null) {
+            return done(id, path, HttpStatus.NOT_FOUND, "No batchable endpoint at this path");
+        }
+        if (!HttpMethod.GET.matches(method)) {
+            return done(id, path, HttpStatus.METHOD_NOT_ALLOWED, "Only GET sub-requests are supported");
+        }
+        if (!privilegeEvaluator.isAllowed(contextPath, path, method, authentication)) {
+            return done(id, path, HttpStatus.FORBIDDEN, "Access denied");
+        }
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        if (subject != null && rateLimiter.acquire(pathContainer, subject) > 0) {
+            return done(id, path, HttpStatus.TOO_MANY_REQUESTS, "Too many requests");
+        }
+        AdaptiveConcurrencyLimiter.Lane lane = concurrencyLimiter != null
+                ? concurrencyLimiter.laneOf(pathContainer, authentication) : null;
+        long start = lane != null ? concurrencyLimiter.tryAcquire(lane) : 0;
+        if (start == AdaptiveConcurrencyLimiter.REJECTED) {
+            return done(id, path, HttpStatus.SERVICE_UNAVAILABLE, "Server overloaded");
+        }
+
+        CompletableFuture<BatchItemResponse> task = CompletableFuture.supplyAsync(
+                () -> new BatchItemResponse(id, path, HttpStatus.OK.value(), operation.apply(authentication)), executor);
+        if (lane != null) {
+            // The slot is held until the operation ends, even after the batch timeout has answered for it
+            task.whenComplete((response, e) -> {
+                if (e == null) {
+                    concurrencyLimiter.release(lane, start);
+                } else {
+                    concurrencyLimiter.release(lane);
+                }
+            });
+        }
+        return task
+                .exceptionally(e -> {
+                    logger.error("Batch sub-request {} failed for: {}", path, authentication.getName(), e);
+                    return new BatchItemResponse(id, path, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                            ApiResponse.error("Request failed"));
+                })
+                .completeOnTimeout(new BatchItemResponse(id, path, HttpStatus.GATEWAY_TIMEOUT.value(),
+                        ApiResponse.error("Request timed out")), timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static CompletableFuture<BatchItemResponse> done(String id, String path, HttpStatus status, String message) {
+        return CompletableFuture.completedFuture(new BatchItemResponse(id, path, status.value(), ApiResponse.error(message)));
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.CachedJsonObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service that builds the application health payload.
+ * Shared by the servlet and reactive controllers.
+ * 
+ * Everything except the timestamp is kept as a pre-encoded fragment.
+ */
+@Service
+public class HealthService {
+    
+    static final String HEALTH_FRAGMENT = "health";
+    
+    private final ResponseFragmentCache fragmentCache;
+    
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Autowired
+    public HealthService(ResponseFragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    /**
+     * Builds the health status payload.
+     * 
+     * @return Health data
+     */
+    public Map<String, Object> getHealth() {
+        return new CachedJsonObject(Map.of("timestamp", System.currentTimeMillis()),
+                fragmentCache.get(HEALTH_FRAGMENT, this::healthFields));
+    }
+
+    private Map<String, Object> healthFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("status", "UP");
+        fields.put("application", applicationName);
+        fields.put("version", "1.0.0");
+        return fields;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.keycloak.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link UserInfoSource} that calls the OpenID Connect userinfo endpoint with the user's
+ * own access token, so it needs no client credentials. The response must be for the
+ * same subject as the token.
+ */
+public class OidcUserInfoSource implements UserInfoSource {
+
+    private final HttpClient httpClient;
+    private final URI userInfoUri;
+    private final Duration requestTimeout;
+    private final ObjectMapper objectMapper;
+
+    public OidcUserInfoSource(HttpClient httpClient, URI userInfoUri, Duration requestTimeout,
+                              ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.userInfoUri = userInfoUri;
+        this.requestTimeout = requestTimeout;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public CompletableFuture<UserInfo> fetch(String subject, String accessToken) {
+        HttpRequest request = HttpRequest.newBuilder(userInfoUri)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Accept", "application/json")
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parse(subject, response));
+    }
+
+    private UserInfo parse(String subject, HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Userinfo endpoint returned " + response.statusCode());
+        }
+        JsonNode claims;
+        try {
+            claims = objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid userinfo response", e);
+        }
+        if (!subject.equals(claims.path("sub").asText(null))) {
+            throw new IllegalStateException("Userinfo response is for another subject");
+        }
+        return new UserInfo(text(claims, "preferred_username"), text(claims, "email"),
+                text(claims, "given_name"), text(claims, "family_name"));
+    }
+
+    private static String text(JsonNode claims, String name) {
+        JsonNode value = claims.get(name);
+        return value != null && value.isTextual() ? value.asText() : null;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.CachedJsonObject;
+import com.example.keycloak.dto.ContentHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service that builds the payloads of the protected endpoints.
+ * Shared by the servlet and reactive controllers.
+ * 
+ * The message, access level and sample dashboard data are the same for every caller and
+ * are kept as a pre-encoded fragment; only the user, timestamp and authorities are
+ * serialized per request. Changes to the shared data are published through
+ * {@link #sharedDataChanges()} for the protected data stream.
+ */
+@Service
+public class ProtectedDataService {
+    
+    static final String PROTECTED_DATA_FRAGMENT = "protected-data";
+    
+    private final ResponseFragmentCache fragmentCache;
+    
+    // Drops changes while nobody is streaming; new subscribers start from a full snapshot
+    private final Sinks.Many<Map<String, Object>> sharedDataChanges = Sinks.many().multicast().directBestEffort();
+    
+    private volatile Map<String, Object> dashboardStats = Map.of(
+        "totalUsers", 1250,
+        "activeUsers", 850,
+        "systemHealth", "Excellent"
+    );
+    
+    private volatile List<String> notifications = List.of(
+        "Welcome to the Keycloak Demo Application",
+        "Your authentication was successful",
+        "All systems are operational"
+    );
+
+    @Autowired
+    public ProtectedDataService(ResponseFragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    /**
+     * Builds the protected data payload for the authenticated user.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Protected data
+     */
+    public Map<String, Object> getProtectedData(Authentication authentication) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("user", authentication.getName());
+        data.put("timestamp", LocalDateTime.now().toString());
+        data.put("authorities", authentication.getAuthorities());
+        
+        return new CachedJsonObject(data, fragmentCache.get(PROTECTED_DATA_FRAGMENT, this::protectedDataFields));
+    }
+
+    /**
+     * Computes the entity tag of the protected data payload for the authenticated user.
+     * The tag covers everything in the payload except its timestamp, so it only changes
+     * when the user, their authorities or the shared data change.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Weak entity tag of the protected data
+     */
+    public String getProtectedDataETag(Authentication authentication) {
+        ContentHash hash = ContentHash.create().add(authentication.getName());
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            hash.add(authority.getAuthority());
+        }
+        return hash.add(fragmentCache.get(PROTECTED_DATA_FRAGMENT, this::protectedDataFields).hash()).toWeakETag();
+    }
+
+    /**
+     * Returns the fields of the protected data payload that are the same for every user:
+     * message, access level and sample data.
+     * 
+     * @return Shared protected data fields
+     */
+    public Map<String, Object> getSharedData() {
+        return fragmentCache.get(PROTECTED_DATA_FRAGMENT, this::protectedDataFields).fields();
+    }
+
+    /**
+     * Emits the shared protected data fields each time the dashboard statistics or
+     * notifications are replaced. Changes made while there are no subscribers are not replayed.
+     * 
+     * @return Hot stream of shared protected data fields
+     */
+    public Flux<Map<String, Object>> sharedDataChanges() {
+        return sharedDataChanges.asFlux();
+    }
+
+    /**
+     * Builds the server time payload for the authenticated user.
+     * 
+     * @param authentication Spring Security authentication object
+     * @return Server time data
+     */
+    public Map<String, Object> getServerTime(Authentication authentication) {
+        Map<String, Object> timeData = new HashMap<>();
+        timeData.put("serverTime", LocalDateTime.now().toString());
+        timeData.put("timezone", java.time.ZoneId.systemDefault().toString());
+        timeData.put("requestedBy", authentication.getName());
+        
+        return timeData;
+    }
+
+    /**
+     * Replaces the dashboard statistics shown with the protected data.
+     * 
+     * @param dashboardStats The new statistics
+     */
+    public void updateDashboardStats(Map<String, Object> dashboardStats) {
+        this.dashboardStats = Map.copyOf(dashboardStats);
+        sharedDataChanged();
+    }
+
+    /**
+     * Replaces the notifications shown with the protected data.
+     * 
+     * @param notifications The new notifications
+     */
+    public void updateNotifications(List<String> notifications) {
+        this.notifications = List.copyOf(notifications);
+        sharedDataChanged();
+    }
+
+    private void sharedDataChanged() {
+        fragmentCache.invalidate(PROTECTED_DATA_FRAGMENT);
+        sharedDataChanges.emitNext(getSharedData(), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    private Map<String, Object> protectedDataFields() {
+        Map<String, Object> sampleData = new LinkedHashMap<>();
+        sampleData.put("dashboardStats", dashboardStats);
+        sampleData.put("notifications", notifications);
+        
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("message", "This is protected data from the backend!");
+        fields.put("accessLevel", "AUTHENTICATED_USER");
+        fields.put("sampleData", sampleData);
+        return fields;
+    }
+}
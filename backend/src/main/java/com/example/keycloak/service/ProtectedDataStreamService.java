@@ -0,0 +1,165 @@
+package com.example.keycloak.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events stream of the protected data and server time, replacing client polling.
+ *
+ * Each stream starts with a {@code snapshot} event (the full protected data payload) and a
+ * {@code time} event, then only pushes what changes:
+ * - {@code time} with the server time, on every tick
+ * - {@code data} with the shared protected data fields, when they are replaced
+ * - {@code expired} once the token's {@code exp} passes, after which the stream completes
+ * - {@code end} instead when the stream reaches its maximum duration first; the token is
+ *   still valid and the client may reconnect
+ *
+ * Events are produced and serialized once by a single shared producer, no matter how many
+ * subscribers there are. Each subscriber keeps at most the latest pending event of each type,
+ * so a slow consumer skips intermediate updates instead of buffering them. The number of open
+ * streams is published as the {@value #SUBSCRIBERS} gauge.
+ */
+@Service
+public class ProtectedDataStreamService {
+
+    public static final String SUBSCRIBERS = "keycloak.stream.subscribers";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtectedDataStreamService.class);
+
+    private final ProtectedDataService protectedDataService;
+    private final ObjectWriter eventWriter;
+    private final Duration maxDuration;
+    private final Clock clock;
+    private final Flux<ServerSentEvent<String>> timeEvents;
+    private final Flux<ServerSentEvent<String>> dataEvents;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    @Autowired
+    public ProtectedDataStreamService(ProtectedDataService protectedDataService,
+                                      ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.stream.tick-interval-ms:1000}") long tickIntervalMs,
+                                      @Value("${app.stream.max-duration-seconds:3600}") long maxDurationSeconds) {
+        this(protectedDataService, objectMapper, meterRegistry, Duration.ofMillis(tickIntervalMs),
+                Duration.ofSeconds(maxDurationSeconds), Clock.systemUTC());
+    }
+
+    ProtectedDataStreamService(ProtectedDataService protectedDataService, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry, Duration tickInterval, Duration maxDuration, Clock clock) {
+        this.protectedDataService = protectedDataService;
+        // One line per event, even where indent-output is on
+        this.eventWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.maxDuration = maxDuration;
+        this.clock = clock;
+
+        // Hot producers: running only while someone is subscribed, shared by all subscribers
+        this.timeEvents = Flux.interval(tickInterval, tickInterval)
+                .map(tick -> event("time", serverTime()))
+                .publish()
+                .refCount();
+        this.dataEvents = protectedDataService.sharedDataChanges()
+                .map(fields -> event("data", fields))
+                .publish()
+                .refCount();
+
+        Gauge.builder(SUBSCRIBERS, subscribers, AtomicInteger::get)
+                .description("Open protected data streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a protected data stream for the authenticated user.
+     *
+     * @param authentication Spring Security authentication object
+     * @return Events until the token expires, the maximum duration is reached or the client disconnects
+     */
+    public Flux<ServerSentEvent<String>> stream(Authentication authentication) {
+        Duration tokenLifetime = remainingTokenLifetime(authentication);
+        if (tokenLifetime != null && tokenLifetime.isZero()) {
+            return Flux.just(expiredEvent());
+        }
+        boolean tokenExpiresFirst = tokenLifetime != null && tokenLifetime.compareTo(maxDuration) <= 0;
+        Duration remaining = tokenExpiresFirst ? tokenLifetime : maxDuration;
+
+        // The first time event has the same fields as the shared ticks
+        Flux<ServerSentEvent<String>> snapshot = Flux.defer(() -> Flux.just(
+                event("snapshot", protectedDataService.getProtectedData(authentication)),
+                event("time", serverTime())));
+
+        // Prefetch 1 and latest-wins per event type bound what a slow subscriber holds
+        Flux<ServerSentEvent<String>> updates = Flux.merge(1,
+                timeEvents.onBackpressureLatest(),
+                dataEvents.onBackpressureLatest());
+
+        return snapshot.concatWith(updates)
+                .takeUntilOther(Mono.delay(remaining))
+                .concatWith(Mono.fromSupplier(tokenExpiresFirst ? this::expiredEvent : this::endEvent))
+                .doOnSubscribe(subscription -> {
+                    subscribers.incrementAndGet();
+                    logger.debug("Protected data stream opened by: {}", authentication.getName());
+                })
+                // Before completion reaches the client, so the gauge is exact once a stream has ended
+                .doOnTerminate(subscribers::decrementAndGet)
+                .doOnCancel(subscribers::decrementAndGet);
+    }
+
+    /**
+     * Time left until the token's {@code exp}, or null if it has none.
+     */
+    private Duration remainingTokenLifetime(Authentication authentication) {
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            Instant expiresAt = jwtAuthentication.getToken().getExpiresAt();
+            if (expiresAt != null) {
+                Duration remaining = Duration.between(clock.instant(), expiresAt);
+                return remaining.isNegative() ? Duration.ZERO : remaining;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> serverTime() {
+        Map<String, Object> time = new LinkedHashMap<>();
+        time.put("serverTime", LocalDateTime.now(clock.withZone(ZoneId.systemDefault())).toString());
+        time.put("timezone", ZoneId.systemDefault().toString());
+        return time;
+    }
+
+    private ServerSentEvent<String> expiredEvent() {
+        return ServerSentEvent.builder("{\"message\":\"Token expired\"}").event("expired").build();
+    }
+
+    private ServerSentEvent<String> endEvent() {
+        return ServerSentEvent.builder("{\"message\":\"Maximum stream duration reached\"}").event("end").build();
+    }
+
+    private ServerSentEvent<String> event(String name, Object data) {
+        try {
+            return ServerSentEvent.builder(eventWriter.writeValueAsString(data)).event(name).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + name + " event", e);
+        }
+    }
+}
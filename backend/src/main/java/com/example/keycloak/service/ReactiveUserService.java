@@ -0,0 +1,44 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.UserProfileDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link UserService}.
+ * Profile extraction reads the already validated token inline on the calling thread;
+ * claims missing from the token are awaited without blocking.
+ */
+@Service
+public class ReactiveUserService {
+    
+    private final UserService userService;
+
+    @Autowired
+    public ReactiveUserService(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Extracts user profile information from the JWT token.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @return Mono emitting the user profile, or an error if the principal is not a JWT
+     */
+    public Mono<UserProfileDto> getUserProfile(Authentication authentication) {
+        return Mono.fromFuture(() -> userService.getUserProfileAsync(authentication));
+    }
+
+    /**
+     * Checks if the user has a specific role.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @param role The role to check for
+     * @return Mono emitting true if user has the role
+     */
+    public Mono<Boolean> hasRole(Authentication authentication, String role) {
+        return Mono.fromSupplier(() -> userService.hasRole(authentication, role));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.CachedJsonObject;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of pre-encoded response fragments for the invariant parts of API payloads.
+ *
+ * Each fragment is built from its source on first use and kept until the owner of the
+ * source data calls {@link #invalidate(String)}.
+ */
+@Service
+public class ResponseFragmentCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ResponseFragmentCache.class);
+    
+    private final ObjectMapper objectMapper;
+    private final Map<String, CachedJsonObject.Fragment> fragments = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResponseFragmentCache(ObjectMapper objectMapper) {
+        // Fragments are spliced into larger documents, so they are always encoded compactly
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Returns the cached fragment for the key, encoding it from the source if absent.
+     * 
+     * @param key Fragment name
+     * @param source Supplier of the invariant fields
+     * @return The pre-encoded fragment
+     */
+    public CachedJsonObject.Fragment get(String key, Supplier<Map<String, Object>> source) {
+        CachedJsonObject.Fragment fragment = fragments.get(key);
+        if (fragment != null) {
+            return fragment;
+        }
+        return fragments.computeIfAbsent(key, k -> encode(source.get()));
+    }
+
+    /**
+     * Drops a fragment so that it is rebuilt from its source on next use.
+     * 
+     * @param key Fragment name
+     */
+    public void invalidate(String key) {
+        if (fragments.remove(key) != null) {
+            logger.debug("Invalidated response fragment: {}", key);
+        }
+    }
+
+    private CachedJsonObject.Fragment encode(Map<String, Object> source) {
+        Map<String, Object> fields = Collections.unmodifiableMap(new LinkedHashMap<>(source));
+        try {
+            String json = objectMapper.writeValueAsString(fields);
+            // Strip the surrounding braces, leaving "name":value pairs
+            return CachedJsonObject.Fragment.of(fields, json.substring(1, json.length() - 1));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode response fragment", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.RevocationRequest;
+import com.example.keycloak.security.ClusterSync;
+import com.example.keycloak.security.Revocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * Service that revokes tokens across the cluster.
+ * Shared by the servlet and reactive controllers; revoking never blocks on the other nodes.
+ */
+@Service
+public class RevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationService.class);
+
+    private final ClusterSync clusterSync;
+
+    @Autowired
+    public RevocationService(ClusterSync clusterSync) {
+        this.clusterSync = clusterSync;
+    }
+
+    /**
+     * Revokes the tokens matching the request on every node.
+     *
+     * @param request Identifiers of the tokens to revoke
+     * @param revokedBy Name of the administrator, for the log
+     * @return The revocation as applied
+     * @throws IllegalArgumentException if the request has no identifier
+     */
+    public Revocation revoke(RevocationRequest request, String revokedBy) {
+        Revocation revocation = new Revocation(blankToNull(request.subject()), blankToNull(request.sessionId()),
+                blankToNull(request.tokenId()), Instant.now());
+        clusterSync.revoke(revocation);
+        logger.info("Tokens revoked by {}: subject={}, sid={}, jti={}", revokedBy,
+                revocation.subject(), revocation.sessionId(), revocation.tokenId());
+        return revocation;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.SubjectActivity;
+import com.example.keycloak.dto.SubjectActivityPage;
+import com.example.keycloak.security.SubjectActivityIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Service that lists recently seen subjects for the admin API.
+ *
+ * Pages are read from the live {@link SubjectActivityIndex} in subject order: a page holds
+ * the subjects after the cursor's subject, so it stays consistent while subjects are added
+ * or swept, and no request ever materializes the whole index. Cursors are opaque to clients.
+ */
+@Service
+public class SubjectActivityService {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private final SubjectActivityIndex index;
+    private final ObjectWriter lineWriter;
+
+    @Autowired
+    public SubjectActivityService(SubjectActivityIndex index, ObjectMapper objectMapper) {
+        this.index = index;
+        // One line per subject, even where indent-output is on
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Returns one page of subjects.
+     *
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of subjects, or null for the default; capped at {@value #MAX_LIMIT}
+     * @return The page, with a cursor for the next one if there are more subjects
+     * @throws IllegalArgumentException for an invalid cursor or a limit below 1
+     */
+    public SubjectActivityPage page(String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : limit;
+        if (size < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        size = Math.min(size, MAX_LIMIT);
+
+        try (Stream<SubjectActivity> subjects = index.stream(decodeCursor(cursor))) {
+            // One more than the page, to know whether there is a next page
+            List<SubjectActivity> items = subjects.limit(size + 1L).toList();
+            if (items.size() <= size) {
+                return new SubjectActivityPage(items, null);
+            }
+            items = items.subList(0, size);
+            return new SubjectActivityPage(items, encodeCursor(items.get(size - 1).subject()));
+        }
+    }
+
+    /**
+     * All active subjects in subject order as newline-terminated JSON lines, read lazily
+     * as the stream is consumed.
+     */
+    public Stream<byte[]> ndjson() {
+        return index.stream(null).map(this::line);
+    }
+
+    private byte[] line(SubjectActivity subject) {
+        try {
+            byte[] json = lineWriter.writeValueAsBytes(subject);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            return line;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize subject " + subject.subject(), e);
+        }
+    }
+
+    static String encodeCursor(String subject) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(subject.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
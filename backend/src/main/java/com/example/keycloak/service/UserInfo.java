@@ -0,0 +1,18 @@
+package com.example.keycloak.service;
+
+/**
+ * Profile claims of a user from the identity provider, used to fill in claims missing
+ * from the access token. Any claim may be null.
+ *
+ * @param username The {@code preferred_username} claim
+ * @param email The {@code email} claim
+ * @param firstName The {@code given_name} claim
+ * @param lastName The {@code family_name} claim
+ */
+public record UserInfo(String username, String email, String firstName, String lastName) {
+
+    /**
+     * No claims, used when the identity provider could not be reached.
+     */
+    public static final UserInfo EMPTY = new UserInfo(null, null, null, null);
+}
@@ -0,0 +1,182 @@
+package com.example.keycloak.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of {@link UserInfo} by subject in front of a {@link UserInfoSource}.
+ *
+ * This cache:
+ * - Shares one in-flight fetch among all concurrent requests for the same subject
+ * - Serves an entry older than the refresh interval right away and refreshes it in the background
+ * - Makes a cache miss wait for the fetch at most the timeout, then answers with no claims;
+ *   a late response still fills the cache
+ * - Keeps the last good entry when a refresh fails, retrying after the retry interval,
+ *   until the entry reaches the maximum staleness
+ * - Publishes {@code keycloak.userinfo.fetches} counters (by outcome) and {@code cache.*}
+ *   metrics with {@code cache=userInfo}
+ */
+public class UserInfoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserInfoCache.class);
+
+    public static final String CACHE_NAME = "userInfo";
+
+    private final UserInfoSource source;
+    private final Duration refreshAfter;
+    private final Duration retryAfter;
+    private final Duration timeout;
+    private final Clock clock;
+    private final Cache<String, Entry> entries;
+    private final Map<String, CompletableFuture<UserInfo>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder successfulFetches = new LongAdder();
+    private final LongAdder failedFetches = new LongAdder();
+
+    public UserInfoCache(UserInfoSource source, long maximumSize, Duration refreshAfter, Duration maximumStaleness,
+                         Duration retryAfter, Duration timeout, MeterRegistry meterRegistry) {
+        this(source, maximumSize, refreshAfter, maximumStaleness, retryAfter, timeout, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    public UserInfoCache(UserInfoSource source, long maximumSize, Duration refreshAfter, Duration maximumStaleness,
+                         Duration retryAfter, Duration timeout, MeterRegistry meterRegistry, Clock clock) {
+        this.source = source;
+        this.refreshAfter = refreshAfter;
+        this.retryAfter = retryAfter;
+        this.timeout = timeout;
+        this.clock = clock;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new StalenessExpiry(maximumStaleness, clock))
+                .recordStats()
+                .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, entries, CACHE_NAME);
+            FunctionCounter.builder("keycloak.userinfo.fetches", successfulFetches, LongAdder::sum)
+                    .description("User info fetches from the identity provider")
+                    .tag("outcome", "success")
+                    .register(meterRegistry);
+            FunctionCounter.builder("keycloak.userinfo.fetches", failedFetches, LongAdder::sum)
+                    .description("User info fetches from the identity provider")
+                    .tag("outcome", "failure")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Returns the user's claims, from the cache when possible.
+     *
+     * @param subject The user's {@code sub} claim
+     * @param accessToken The user's access token, passed to the source on a fetch
+     * @return Future completing with the claims, at the latest after the timeout; never completes exceptionally
+     */
+    public CompletableFuture<UserInfo> get(String subject, String accessToken) {
+        Entry entry = entries.getIfPresent(subject);
+        if (entry != null) {
+            if (!clock.instant().isBefore(entry.refreshAt())) {
+                fetch(subject, accessToken);
+            }
+            return CompletableFuture.completedFuture(entry.info());
+        }
+        return fetch(subject, accessToken)
+                .exceptionally(error -> UserInfo.EMPTY)
+                .completeOnTimeout(UserInfo.EMPTY, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public long estimatedSize() {
+        return entries.estimatedSize();
+    }
+
+    private CompletableFuture<UserInfo> fetch(String subject, String accessToken) {
+        CompletableFuture<UserInfo> existing = inFlight.get(subject);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<UserInfo> future = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(subject, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<UserInfo> fetch;
+        try {
+            fetch = source.fetch(subject, accessToken);
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        fetch.whenComplete((info, error) -> {
+            Instant now = clock.instant();
+            if (error == null) {
+                successfulFetches.increment();
+                entries.put(subject, new Entry(info, now, now.plus(refreshAfter)));
+            } else {
+                failedFetches.increment();
+                logger.debug("Failed to fetch user info for {}: {}", subject, error.getMessage());
+                Entry stale = entries.getIfPresent(subject);
+                entries.put(subject, stale != null
+                        ? new Entry(stale.info(), stale.loadedAt(), now.plus(retryAfter))
+                        : new Entry(UserInfo.EMPTY, now, now.plus(retryAfter)));
+            }
+            inFlight.remove(subject, future);
+            if (error == null) {
+                future.complete(info);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Cached claims, when they were fetched and when to fetch them again.
+     */
+    private record Entry(UserInfo info, Instant loadedAt, Instant refreshAt) {
+    }
+
+    /**
+     * Expires each entry when it reaches the maximum staleness since it was fetched.
+     * A failed refresh keeps the fetch time, so retries do not extend its life.
+     */
+    private static final class StalenessExpiry implements Expiry<String, Entry> {
+
+        private final Duration maximumStaleness;
+        private final Clock clock;
+
+        StalenessExpiry(Duration maximumStaleness, Clock clock) {
+            this.maximumStaleness = maximumStaleness;
+            this.clock = clock;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Entry value, long currentTime) {
+            Duration remaining = Duration.between(clock.instant(), value.loadedAt().plus(maximumStaleness));
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
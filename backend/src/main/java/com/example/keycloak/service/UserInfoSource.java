@@ -0,0 +1,19 @@
+package com.example.keycloak.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where {@link UserInfoCache} loads profile claims from: the OIDC userinfo endpoint by
+ * default, or e.g. the Keycloak admin API or a stub in tests.
+ */
+public interface UserInfoSource {
+
+    /**
+     * Fetches the profile claims of a user without blocking the caller.
+     *
+     * @param subject The user's {@code sub} claim
+     * @param accessToken The user's access token, for sources that call on the user's behalf
+     * @return Future completing with the claims, or exceptionally if they cannot be fetched
+     */
+    CompletableFuture<UserInfo> fetch(String subject, String accessToken);
+}
@@ -1,114 +1,212 @@
 package com.example.keycloak.service;
 
+import com.example.keycloak.dto.ContentHash;
 import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.example.keycloak.security.KeycloakAuthenticationToken;
+import com.example.keycloak.security.KeycloakAuthorityExtractor;
+import com.example.keycloak.security.RoleSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for handling user-related operations.
  * Extracts user information from JWT tokens provided by Keycloak.
+ * 
+ * Profile claims missing from the token are filled in from the {@link UserInfoCache},
+ * when enrichment is enabled and the token has the {@code openid} scope; claims in the
+ * token always take precedence.
  */
 @Service
 public class UserService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    
+    private static final String OPENID_SCOPE = "openid";
+    
+    private static final CompletableFuture<UserInfo> NO_USER_INFO = CompletableFuture.completedFuture(UserInfo.EMPTY);
+    
+    private final KeycloakAuthorityExtractor authorityExtractor;
+    private final UserInfoCache userInfoCache;
+    private final Timer claimsTimer;
+
+    /**
+     * @param userInfoCache Source of claims missing from the token, or null to use the token alone
+     */
+    @Autowired
+    public UserService(KeycloakAuthorityExtractor authorityExtractor, @Nullable UserInfoCache userInfoCache,
+                       MeterRegistry meterRegistry) {
+        this.authorityExtractor = authorityExtractor;
+        this.userInfoCache = userInfoCache;
+        this.claimsTimer = AuthenticationMetrics.stageTimer(meterRegistry, "user.claims");
+    }
 
     /**
      * Extracts user profile information from the JWT token.
+     * Waits at most the user info timeout for claims missing from the token.
      * 
      * @param authentication The Spring Security authentication object
      * @return UserProfileDto containing user information
      */
     public UserProfileDto getUserProfile(Authentication authentication) {
-        logger.debug("Extracting user profile from authentication: {}", authentication.getName());
-        
-        if (!(authentication.getPrincipal() instanceof Jwt)) {
-            throw new IllegalArgumentException("Authentication principal is not a JWT token");
+        return claimsTimer.record(() -> {
+            Jwt jwt = jwtOf(authentication);
+            return extractUserProfile(authentication, jwt, userInfoOf(jwt).join());
+        });
+    }
+
+    /**
+     * Extracts user profile information from the JWT token, filling in missing claims
+     * from user info that was already resolved for this request.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @param userInfo User info from {@link #getUserInfo(Authentication)}
+     * @return UserProfileDto containing user information
+     */
+    public UserProfileDto getUserProfile(Authentication authentication, UserInfo userInfo) {
+        return claimsTimer.record(() -> extractUserProfile(authentication, jwtOf(authentication), userInfo));
+    }
+
+    /**
+     * Resolves the user info that fills in claims missing from the token, once per request,
+     * so the entity tag and the profile are built from the same claims.
+     * Waits at most the user info timeout.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @return User info, empty if the token has every profile claim or the principal is not a JWT token
+     */
+    public UserInfo getUserInfo(Authentication authentication) {
+        return authentication.getPrincipal() instanceof Jwt jwt ? userInfoOf(jwt).join() : UserInfo.EMPTY;
+    }
+
+    /**
+     * Non-blocking variant of {@link #getUserProfile(Authentication)} for the reactive stack.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @return Future completing with the user profile, or exceptionally if the principal is not a JWT
+     */
+    public CompletableFuture<UserProfileDto> getUserProfileAsync(Authentication authentication) {
+        Jwt jwt;
+        try {
+            jwt = jwtOf(authentication);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        return userInfoOf(jwt).thenApply(userInfo ->
+                claimsTimer.record(() -> extractUserProfile(authentication, jwt, userInfo)));
+    }
 
-        Jwt jwt = (Jwt) authentication.getPrincipal();
-        
+    private UserProfileDto extractUserProfile(Authentication authentication, Jwt jwt, UserInfo userInfo) {
         UserProfileDto profile = new UserProfileDto();
         
         // Extract basic user information
         profile.setId(jwt.getClaimAsString("sub"));
-        profile.setUsername(jwt.getClaimAsString("preferred_username"));
-        profile.setEmail(jwt.getClaimAsString("email"));
-        profile.setFirstName(jwt.getClaimAsString("given_name"));
-        profile.setLastName(jwt.getClaimAsString("family_name"));
+        profile.setUsername(claim(jwt, "preferred_username", userInfo.username()));
+        profile.setEmail(claim(jwt, "email", userInfo.email()));
+        profile.setFirstName(claim(jwt, "given_name", userInfo.firstName()));
+        profile.setLastName(claim(jwt, "family_name", userInfo.lastName()));
         
         // Extract roles
-        Set<String> roles = extractRoles(jwt);
-        profile.setRoles(roles);
+        profile.setRoles(rolesOf(authentication).asSet());
         
-        logger.debug("Extracted user profile: {}", profile);
+        // Identifiers only: rendering the whole profile on every request is costly and logs personal data
+        if (logger.isDebugEnabled()) {
+            logger.debug("Extracted user profile for {} with {} roles", profile.getId(), profile.getRoles().size());
+        }
         
         return profile;
     }
 
     /**
-     * Extracts roles from JWT token.
-     * Keycloak can store roles in different claims depending on configuration.
+     * Computes the entity tag of the user profile from the same claims and roles that
+     * {@link #getUserProfile(Authentication, UserInfo)} reads, without building the profile.
      * 
-     * @param jwt The JWT token
-     * @return Set of role names
+     * @param authentication The Spring Security authentication object
+     * @param userInfo User info from {@link #getUserInfo(Authentication)}
+     * @return Weak entity tag of the profile, or null if the principal is not a JWT token
      */
-    private Set<String> extractRoles(Jwt jwt) {
-        Set<String> roles = new HashSet<>();
+    public String getUserProfileETag(Authentication authentication, UserInfo userInfo) {
+        if (!(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return null;
+        }
         
-        try {
-            // Try to get roles from 'roles' claim (custom claim)
-            List<String> rolesList = jwt.getClaimAsStringList("roles");
-            if (rolesList != null) {
-                roles.addAll(rolesList);
-            }
-            
-            // Try to get roles from 'realm_access' claim (Keycloak default)
-            Object realmAccess = jwt.getClaim("realm_access");
-            if (realmAccess instanceof java.util.Map) {
-                @SuppressWarnings("unchecked")
-                java.util.Map<String, Object> realmAccessMap = (java.util.Map<String, Object>) realmAccess;
-                Object realmRoles = realmAccessMap.get("roles");
-                if (realmRoles instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<String> realmRolesList = (List<String>) realmRoles;
-                    roles.addAll(realmRolesList);
-                }
-            }
-            
-            // Try to get roles from 'resource_access' claim (Keycloak client roles)
-            Object resourceAccess = jwt.getClaim("resource_access");
-            if (resourceAccess instanceof java.util.Map) {
-                @SuppressWarnings("unchecked")
-                java.util.Map<String, Object> resourceAccessMap = (java.util.Map<String, Object>) resourceAccess;
-                for (Object clientAccess : resourceAccessMap.values()) {
-                    if (clientAccess instanceof java.util.Map) {
-                        @SuppressWarnings("unchecked")
-                        java.util.Map<String, Object> clientAccessMap = (java.util.Map<String, Object>) clientAccess;
-                        Object clientRoles = clientAccessMap.get("roles");
-                        if (clientRoles instanceof List) {
-                            @SuppressWarnings("unchecked")
-                            List<String> clientRolesList = (List<String>) clientRoles;
-                            roles.addAll(clientRolesList);
-                        }
-                    }
-                }
+        ContentHash hash = ContentHash.create()
+                .add(jwt.getClaimAsString("sub"))
+                .add(claim(jwt, "preferred_username", userInfo.username()))
+                .add(claim(jwt, "email", userInfo.email()))
+                .add(claim(jwt, "given_name", userInfo.firstName()))
+                .add(claim(jwt, "family_name", userInfo.lastName()));
+        RoleSet roles = rolesOf(authentication);
+        for (int i = 0; i < roles.size(); i++) {
+            hash.add(roles.get(i));
+        }
+        return hash.toWeakETag();
+    }
+
+    private static Jwt jwtOf(Authentication authentication) {
+        if (!(authentication.getPrincipal() instanceof Jwt jwt)) {
+            throw new IllegalArgumentException("Authentication principal is not a JWT token");
+        }
+        return jwt;
+    }
+
+    /**
+     * Looks up the user's claims only when the token lacks one of the profile claims and was
+     * issued for OpenID Connect; the userinfo endpoint refuses other tokens, such as service accounts'.
+     * The future never fails and completes within the user info timeout.
+     */
+    private CompletableFuture<UserInfo> userInfoOf(Jwt jwt) {
+        if (userInfoCache == null || jwt.getSubject() == null || !hasOpenIdScope(jwt)
+                || (jwt.hasClaim("preferred_username") && jwt.hasClaim("email")
+                    && jwt.hasClaim("given_name") && jwt.hasClaim("family_name"))) {
+            return NO_USER_INFO;
+        }
+        return userInfoCache.get(jwt.getSubject(), jwt.getTokenValue());
+    }
+
+    private static boolean hasOpenIdScope(Jwt jwt) {
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null) {
+            return false;
+        }
+        for (String value : scope.split(" ")) {
+            if (OPENID_SCOPE.equals(value)) {
+                return true;
             }
-            
-            logger.debug("Extracted roles from JWT: {}", roles);
-            
-        } catch (Exception e) {
-            logger.warn("Error extracting roles from JWT token: {}", e.getMessage());
         }
-        
-        return roles;
+        return false;
+    }
+
+    private static String claim(Jwt jwt, String name, String fallback) {
+        String value = jwt.getClaimAsString(name);
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Returns the roles of the authenticated user.
+     * Roles are extracted once per token by the authentication converter; other
+     * JWT-based authentications fall back to extracting them here.
+     * 
+     * @param authentication The Spring Security authentication object
+     * @return The user's roles
+     */
+    private RoleSet rolesOf(Authentication authentication) {
+        if (authentication instanceof KeycloakAuthenticationToken keycloakToken) {
+            return keycloakToken.getRoles();
+        }
+        if (authentication.getPrincipal() instanceof Jwt jwt) {
+            return authorityExtractor.extract(jwt);
+        }
+        return RoleSet.empty();
     }
 
     /**
@@ -119,7 +217,6 @@ public class UserService {
      * @return true if user has the role, false otherwise
      */
     public boolean hasRole(Authentication authentication, String role) {
-        UserProfileDto profile = getUserProfile(authentication);
-        return profile.getRoles() != null && profile.getRoles().contains(role);
+        return rolesOf(authentication).contains(role);
     }
 }
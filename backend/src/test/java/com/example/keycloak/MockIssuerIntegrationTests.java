@@ -0,0 +1,202 @@
+package com.example.keycloak;
+
+import com.example.keycloak.issuer.MockKeycloakIssuer;
+import com.example.keycloak.security.AuditEvent;
+import com.example.keycloak.security.AuditJournalReader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * End-to-end authentication against tokens from {@link MockKeycloakIssuer}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class MockIssuerIntegrationTests {
+
+    private static final MockKeycloakIssuer issuer = startIssuer();
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void issuerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", issuer::jwkSetUri);
+        registry.add("keycloak.client-id", issuer::clientId);
+        registry.add("app.security.jwks.file", () -> "");
+        registry.add("app.security.jwks.min-refresh-interval-seconds", () -> "0");
+        registry.add("app.user-info.enabled", () -> "true");
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @Test
+    void realmAndClientRolesAreMappedToAuthorities() {
+        String userToken = issuer.mint("alice", List.of("USER"), Map.of());
+        String adminToken = issuer.mint("bob", List.of("USER"),
+                Map.of(MockKeycloakIssuer.DEFAULT_CLIENT_ID, List.of("ADMIN")));
+        String otherClientAdminToken = issuer.mint("mallory", List.of("USER"),
+                Map.of("other-app", List.of("ADMIN")));
+
+        ResponseEntity<String> profile = get("/api/user/profile", userToken);
+        assertThat(profile.getStatusCode().value()).isEqualTo(200);
+        assertThat(profile.getBody()).contains("\"alice\"").contains("USER");
+
+        // Only this application's client role passes the admin rule; there is no admin endpoint behind it
+        assertThat(get("/api/admin/settings", userToken).getStatusCode().value()).isEqualTo(403);
+        assertThat(get("/api/admin/settings", otherClientAdminToken).getStatusCode().value()).isEqualTo(403);
+        assertThat(get("/api/admin/settings", adminToken).getStatusCode().value()).isEqualTo(404);
+    }
+
+    @Test
+    void profileClaimsMissingFromTheTokenComeFromUserInfo() {
+        String token = issuer.mint("frank", List.of("USER"), Map.of());
+        int requests = issuer.userInfoRequests();
+
+        ResponseEntity<String> profile = get("/api/user/profile", token);
+        assertThat(profile.getBody()).contains("\"frank@example.com\"").contains("\"Tester\"");
+        assertThat(get("/api/user/profile", issuer.mint("frank", List.of("USER"), Map.of())).getBody())
+                .contains("\"frank@example.com\"");
+        assertThat(issuer.userInfoRequests()).isEqualTo(requests + 1);
+    }
+
+    @Test
+    void missingExpiredAndForeignTokensAreRejected() throws IOException {
+        assertThat(get("/api/protected/data", null).getStatusCode().value()).isEqualTo(401);
+        assertThat(get("/api/protected/data", issuer.mint("alice", List.of("USER"), Map.of(), Duration.ofMinutes(-5)))
+                .getStatusCode().value()).isEqualTo(401);
+
+        try (MockKeycloakIssuer foreign = MockKeycloakIssuer.start()) {
+            assertThat(get("/api/protected/data", foreign.mint("alice", List.of("USER"), Map.of()))
+                    .getStatusCode().value()).isEqualTo(401);
+        }
+    }
+
+    @Test
+    void tokensSignedWithARotatedKeyAreAccepted() {
+        String oldToken = issuer.mint("carol", List.of("USER"), Map.of());
+        assertThat(get("/api/protected/time", oldToken).getStatusCode().value()).isEqualTo(200);
+        int fetches = issuer.jwksRequests();
+
+        issuer.rotateKey();
+        String newToken = issuer.mint("carol", List.of("USER"), Map.of());
+
+        assertThat(get("/api/protected/time", newToken).getStatusCode().value()).isEqualTo(200);
+        assertThat(issuer.jwksRequests()).isGreaterThan(fetches);
+        assertThat(get("/api/protected/time", oldToken).getStatusCode().value()).isEqualTo(200);
+    }
+
+    @Test
+    void adminRevocationRejectsTheSubjectsTokens() {
+        String userToken = issuer.mint("dave", List.of("USER"), Map.of());
+        String adminToken = issuer.mint("erin", List.of("USER"),
+                Map.of(MockKeycloakIssuer.DEFAULT_CLIENT_ID, List.of("ADMIN")));
+        assertThat(get("/api/protected/data", userToken).getStatusCode().value()).isEqualTo(200);
+
+        assertThat(post("/api/admin/revocations", userToken, "{\"subject\":\"dave\"}").getStatusCode().value())
+                .isEqualTo(403);
+        assertThat(post("/api/admin/revocations", adminToken, "{}").getStatusCode().value()).isEqualTo(400);
+        assertThat(post("/api/admin/revocations", adminToken, "{\"subject\":\"dave\"}").getStatusCode().value())
+                .isEqualTo(200);
+
+        assertThat(get("/api/protected/data", userToken).getStatusCode().value()).isEqualTo(401);
+        assertThat(get("/api/protected/data", adminToken).getStatusCode().value()).isEqualTo(200);
+    }
+
+    @Test
+    void adminsListRecentlySeenSubjects() {
+        String userToken = issuer.mint("heidi", List.of("USER"), Map.of());
+        String adminToken = issuer.mint("ivan", List.of("USER"),
+                Map.of(MockKeycloakIssuer.DEFAULT_CLIENT_ID, List.of("ADMIN")));
+        assertThat(get("/api/protected/data", userToken).getStatusCode().value()).isEqualTo(200);
+
+        assertThat(get("/api/admin/subjects", userToken).getStatusCode().value()).isEqualTo(403);
+        ResponseEntity<String> page = get("/api/admin/subjects?limit=1000", adminToken);
+        assertThat(page.getStatusCode().value()).isEqualTo(200);
+        assertThat(page.getBody()).contains("\"subject\":\"heidi\"");
+        assertThat(get("/api/admin/subjects?cursor=%25", adminToken).getStatusCode().value()).isEqualTo(400);
+
+        ResponseEntity<String> stream = get("/api/admin/subjects/stream", adminToken);
+        assertThat(stream.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(stream.getBody().lines()).anyMatch(line -> line.startsWith("{\"subject\":\"heidi\""));
+    }
+
+    @Test
+    void accessToAuditedRoutesIsJournaled() throws Exception {
+        // The journal directory outlives a test run, so the subject and path are unique to this one
+        String run = UUID.randomUUID().toString();
+        String subject = "grace-" + run;
+        String token = issuer.mint(subject, List.of("USER"), Map.of());
+        assertThat(get("/api/protected/data", token).getStatusCode().value()).isEqualTo(200);
+        assertThat(get("/api/admin/settings", token).getStatusCode().value()).isEqualTo(403);
+        // Rejected by the bearer token filter, before authorization
+        String expired = issuer.mint(subject, List.of("USER"), Map.of(), Duration.ofMinutes(-5));
+        assertThat(get("/api/protected/" + run, expired).getStatusCode().value()).isEqualTo(401);
+
+        List<AuditEvent> events = new ArrayList<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (events.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            events.clear();
+            AuditJournalReader.read(Path.of("target/audit"), event -> {
+                if (subject.equals(event.subject()) || event.path().endsWith(run)) {
+                    events.add(event);
+                }
+                return true;
+            });
+        }
+        assertThat(events).extracting(AuditEvent::path, AuditEvent::status, AuditEvent::subject).containsExactly(
+                tuple("/api/protected/data", 200, subject), tuple("/api/admin/settings", 403, subject),
+                tuple("/api/protected/" + run, 401, null));
+        assertThat(events.get(0).authorities()).contains("ROLE_USER");
+    }
+
+    private ResponseEntity<String> post(String path, String token, String json) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.exchange(path, HttpMethod.POST, new HttpEntity<>(json, headers), String.class);
+    }
+
+    private ResponseEntity<String> get(String path, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (token != null) {
+            headers.setBearerAuth(token);
+        }
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private static MockKeycloakIssuer startIssuer() {
+        try {
+            return MockKeycloakIssuer.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.keycloak;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("test")
+class ReactiveApplicationTests {
+
+    @Test
+    void contextLoads() {
+        // This test ensures that the reactive application context loads successfully
+    }
+}
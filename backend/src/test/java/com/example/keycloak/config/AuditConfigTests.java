@@ -0,0 +1,28 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.security.AuditLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditConfigTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(AuditConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void auditingIsOffUnlessEnabled() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(AuditLog.class));
+    }
+
+    @Test
+    void enablingAuditingWithoutADirectoryFailsStartup() {
+        contextRunner.withPropertyValues("app.audit.enabled=true")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().hasMessageContaining("app.audit.directory"));
+    }
+}
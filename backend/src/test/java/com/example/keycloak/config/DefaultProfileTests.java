@@ -0,0 +1,34 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Settings in effect when no profile is activated, as in production.
+ */
+@SpringBootTest(classes = JacksonAutoConfiguration.class)
+class DefaultProfileTests {
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void responsesAreCompactAndLoggingStaysAtInfo() throws Exception {
+        assertThat(environment.getActiveProfiles()).isEmpty();
+        assertThat(objectMapper.writeValueAsString(ApiResponse.success("ok", Map.of("user", "user-1"))))
+                .doesNotContain("\n");
+        assertThat(environment.getProperty("logging.level.com.example.keycloak")).isEqualTo("INFO");
+    }
+}
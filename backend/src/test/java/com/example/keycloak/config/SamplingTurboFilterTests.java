@@ -0,0 +1,52 @@
+package com.example.keycloak.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTests {
+
+    private final LoggerContext context = new LoggerContext();
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+
+    @BeforeEach
+    void setUp() {
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.DEBUG);
+        filter.setContext(context);
+        filter.setLoggers("com.example.keycloak, org.springframework.security");
+        filter.setRate(10);
+        filter.start();
+    }
+
+    @Test
+    void keepsOneInRateDebugEventsOfSampledLoggers() {
+        Logger logger = context.getLogger("com.example.keycloak.service.UserService");
+
+        assertThat(IntStream.range(0, 100).filter(i -> decide(logger, Level.DEBUG) == FilterReply.NEUTRAL).count())
+                .isEqualTo(10);
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        // Level checks are not events
+        assertThat(filter.decide(null, logger, Level.DEBUG, null, null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void leavesOtherLoggersAndDisabledLevelsAlone() {
+        Logger other = context.getLogger("com.example.keycloakextra.Service");
+        Logger quiet = context.getLogger("org.springframework.security.web");
+        quiet.setLevel(Level.INFO);
+
+        assertThat(IntStream.range(0, 20).allMatch(i -> decide(other, Level.DEBUG) == FilterReply.NEUTRAL)).isTrue();
+        assertThat(IntStream.range(0, 20).allMatch(i -> decide(quiet, Level.DEBUG) == FilterReply.NEUTRAL)).isTrue();
+    }
+
+    private FilterReply decide(Logger logger, Level level) {
+        return filter.decide(null, logger, level, "message {}", new Object[] {"argument"}, null);
+    }
+}
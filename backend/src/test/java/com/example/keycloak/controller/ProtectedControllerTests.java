@@ -0,0 +1,54 @@
+package com.example.keycloak.controller;
+
+import com.example.keycloak.service.ProtectedDataService;
+import com.example.keycloak.service.ProtectedDataStreamService;
+import com.example.keycloak.service.ResponseFragmentCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProtectedControllerTests {
+
+    private final ProtectedDataService service = new ProtectedDataService(new ResponseFragmentCache(new ObjectMapper()));
+
+    private final ProtectedDataStreamService streamService = new ProtectedDataStreamService(service, new ObjectMapper(),
+            new SimpleMeterRegistry(), 1000, 3600);
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ProtectedController(service, streamService))
+            .build();
+
+    private final Authentication authentication = new TestingAuthenticationToken("user-1", null, "ROLE_USER");
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModifiedUntilDataChanges() throws Exception {
+        String etag = mockMvc.perform(get("/api/protected/data").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"");
+
+        mockMvc.perform(get("/api/protected/data").principal(authentication).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        service.updateNotifications(List.of("Maintenance tonight"));
+
+        mockMvc.perform(get("/api/protected/data").principal(authentication).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.keycloak.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiResponseSerializerTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void streamingOutputMatchesBeanSerialization() throws Exception {
+        ObjectMapper beanMapper = new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .addMixIn(ApiResponse.class, BeanSerialization.class);
+        ApiResponse<Map<String, Object>> response = ApiResponse.success("ok", Map.of("user", "user-1"));
+        ApiResponse<Object> error = ApiResponse.error("failed");
+
+        assertThat(objectMapper.writeValueAsString(response)).isEqualTo(beanMapper.writeValueAsString(response));
+        assertThat(objectMapper.writeValueAsString(error)).isEqualTo(beanMapper.writeValueAsString(error));
+    }
+
+    @Test
+    void recordVariantHasTheSameShapeInJsonAndSmile() throws Exception {
+        ImmutableApiResponse<Map<String, Object>> response = ImmutableApiResponse.success("ok", Map.of("user", "user-1"));
+        ApiResponse<Map<String, Object>> bean = new ApiResponse<>(true, "ok", Map.of("user", "user-1"));
+        bean.setTimestamp(response.timestamp());
+
+        assertThat(objectMapper.writeValueAsString(response)).isEqualTo(objectMapper.writeValueAsString(bean));
+
+        SmileMapper smileMapper = new SmileMapper();
+        JsonNode decoded = smileMapper.readTree(smileMapper.writeValueAsBytes(response));
+        assertThat(decoded).isEqualTo(objectMapper.readTree(objectMapper.writeValueAsString(response)));
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface BeanSerialization {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.keycloak.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiRuntimeHintsTests {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    ApiRuntimeHintsTests() {
+        new ApiRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void apiTypesAndNestedTypesAreRegisteredForBinding() throws NoSuchMethodException {
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(UserProfileDto.class.getMethod("getRoles")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(BatchRequest.Item.class.getMethod("path")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(BatchItemResponse.class.getMethod("status")))
+                .accepts(hints);
+    }
+
+    @Test
+    void customSerializersCanBeInstantiated() {
+        for (Class<?> serializer : new Class<?>[] {
+                ApiResponseSerializer.ForBean.class,
+                ApiResponseSerializer.ForRecord.class,
+                CachedJsonObject.Serializer.class}) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(serializer)
+                    .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS))
+                    .as(serializer.getName())
+                    .accepts(hints);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.keycloak.issuer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for a Keycloak realm, for tests that need real signed tokens.
+ *
+ * The issuer:
+ * - Serves {@code /realms/<realm>/.well-known/openid-configuration},
+ *   {@code /realms/<realm>/protocol/openid-connect/certs} and
+ *   {@code /realms/<realm>/protocol/openid-connect/userinfo} on a random local port
+ * - Mints RS256 tokens shaped like Keycloak access tokens, with realm roles under
+ *   {@code realm_access} and client roles under {@code resource_access}
+ * - Rotates signing keys; retired keys stay published until {@link #retireInactiveKeys()}
+ * - Answers userinfo requests with the profile of the token's subject: {@code <sub>@example.com},
+ *   given name {@code <sub>} and family name {@code Tester}
+ *
+ * Point the backend at it with {@link #springProperties()}.
+ */
+public final class MockKeycloakIssuer implements AutoCloseable {
+
+    public static final String DEFAULT_REALM = "test";
+
+    public static final String DEFAULT_CLIENT_ID = "demo-app";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final String issuerUri;
+    private final String clientId;
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final AtomicInteger userInfoRequests = new AtomicInteger();
+    private final List<RSAKey> publishedKeys = new ArrayList<>();
+    private volatile SigningKey signingKey;
+
+    private MockKeycloakIssuer(String realm, String clientId) throws IOException {
+        this.clientId = clientId;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.issuerUri = "http://localhost:" + server.getAddress().getPort() + "/realms/" + realm;
+        rotateKey();
+
+        String realmPath = "/realms/" + realm;
+        server.createContext(realmPath + "/.well-known/openid-configuration",
+                exchange -> respond(exchange, this::openIdConfiguration));
+        server.createContext(realmPath + "/protocol/openid-connect/certs", exchange -> {
+            jwksRequests.incrementAndGet();
+            respond(exchange, this::jwks);
+        });
+        server.createContext(realmPath + "/protocol/openid-connect/userinfo", exchange -> {
+            userInfoRequests.incrementAndGet();
+            String subject = bearerSubject(exchange.getRequestHeaders().getFirst("Authorization"));
+            if (subject == null) {
+                try (exchange) {
+                    exchange.sendResponseHeaders(401, -1);
+                }
+                return;
+            }
+            respond(exchange, () -> userInfo(subject));
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    /**
+     * Starts an issuer for the {@value #DEFAULT_REALM} realm and {@value #DEFAULT_CLIENT_ID} client.
+     */
+    public static MockKeycloakIssuer start() throws IOException {
+        return start(DEFAULT_REALM, DEFAULT_CLIENT_ID);
+    }
+
+    public static MockKeycloakIssuer start(String realm, String clientId) throws IOException {
+        return new MockKeycloakIssuer(realm, clientId);
+    }
+
+    public String issuerUri() {
+        return issuerUri;
+    }
+
+    public String clientId() {
+        return clientId;
+    }
+
+    public String jwkSetUri() {
+        return issuerUri + "/protocol/openid-connect/certs";
+    }
+
+    /**
+     * Properties that point the backend's resource server at this issuer.
+     */
+    public String[] springProperties() {
+        return new String[] {
+                "spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuerUri(),
+                "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + jwkSetUri(),
+                "keycloak.client-id=" + clientId,
+                "app.security.jwks.file="
+        };
+    }
+
+    /**
+     * Mints a token valid for five minutes.
+     *
+     * @param subject The {@code sub} and {@code preferred_username} claims
+     * @param realmRoles Roles under {@code realm_access}
+     * @param clientRoles Roles under {@code resource_access}, by client id
+     * @return The signed, serialized token
+     */
+    public String mint(String subject, List<String> realmRoles, Map<String, List<String>> clientRoles) {
+        return mint(subject, realmRoles, clientRoles, Duration.ofMinutes(5));
+    }
+
+    /**
+     * Mints a token with the given lifetime; a negative lifetime gives an expired token.
+     */
+    public String mint(String subject, List<String> realmRoles, Map<String, List<String>> clientRoles,
+                       Duration lifetime) {
+        Instant now = Instant.now();
+        Map<String, Object> resourceAccess = new LinkedHashMap<>();
+        clientRoles.forEach((client, roles) -> resourceAccess.put(client, Map.of("roles", roles)));
+
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuerUri)
+                .subject(subject)
+                .audience("account")
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(lifetime)))
+                .claim("typ", "Bearer")
+                .claim("azp", clientId)
+                .claim("scope", "openid profile email")
+                .claim("preferred_username", subject)
+                .claim("realm_access", Map.of("roles", realmRoles))
+                .claim("resource_access", resourceAccess)
+                .build();
+
+        SigningKey key = signingKey;
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                .type(JOSEObjectType.JWT)
+                .keyID(key.jwk().getKeyID())
+                .build(), claims);
+        try {
+            jwt.sign(key.signer());
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Cannot sign token", e);
+        }
+        return jwt.serialize();
+    }
+
+    /**
+     * Switches to a new signing key. The previous keys stay in the JWKS, like Keycloak
+     * keeps passive keys, so tokens they signed remain valid.
+     *
+     * @return The {@code kid} of the new signing key
+     */
+    public synchronized String rotateKey() {
+        try {
+            RSAKey key = new RSAKeyGenerator(2048)
+                    .keyID(UUID.randomUUID().toString())
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .generate();
+            this.signingKey = new SigningKey(key, new RSASSASigner(key));
+            publishedKeys.add(key);
+            return key.getKeyID();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Cannot generate signing key", e);
+        }
+    }
+
+    /**
+     * Removes every key but the current signing key from the JWKS.
+     */
+    public synchronized void retireInactiveKeys() {
+        publishedKeys.removeIf(key -> key != signingKey.jwk());
+    }
+
+    /**
+     * Number of JWKS requests served so far.
+     */
+    public int jwksRequests() {
+        return jwksRequests.get();
+    }
+
+    /**
+     * Number of userinfo requests served so far.
+     */
+    public int userInfoRequests() {
+        return userInfoRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private Map<String, Object> openIdConfiguration() {
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("issuer", issuerUri);
+        configuration.put("authorization_endpoint", issuerUri + "/protocol/openid-connect/auth");
+        configuration.put("token_endpoint", issuerUri + "/protocol/openid-connect/token");
+        configuration.put("jwks_uri", jwkSetUri());
+        configuration.put("userinfo_endpoint", issuerUri + "/protocol/openid-connect/userinfo");
+        configuration.put("subject_types_supported", List.of("public"));
+        configuration.put("id_token_signing_alg_values_supported", List.of("RS256"));
+        configuration.put("response_types_supported", List.of("code"));
+        return configuration;
+    }
+
+    private synchronized Map<String, Object> jwks() {
+        List<JWK> publicKeys = publishedKeys.stream().map(key -> (JWK) key.toPublicJWK()).toList();
+        return new JWKSet(publicKeys).toJSONObject();
+    }
+
+    private Map<String, Object> userInfo(String subject) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", subject);
+        claims.put("preferred_username", subject);
+        claims.put("email", subject + "@example.com");
+        claims.put("given_name", subject);
+        claims.put("family_name", "Tester");
+        return claims;
+    }
+
+    /**
+     * Subject of a bearer token minted by this issuer; the signature is not checked.
+     */
+    private String bearerSubject(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            JWTClaimsSet claims = SignedJWT.parse(authorization.substring(7)).getJWTClaimsSet();
+            return issuerUri.equals(claims.getIssuer()) ? claims.getSubject() : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, Supplier<Map<String, Object>> body) {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] json = objectMapper.writeValueAsString(body.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record SigningKey(RSAKey jwk, RSASSASigner signer) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.keycloak.load;
+
+import com.example.keycloak.KeycloakDemoApplication;
+import com.example.keycloak.issuer.MockKeycloakIssuer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regression load suite: drives every endpoint at a fixed concurrency with tokens from a
+ * {@link MockKeycloakIssuer} and compares throughput and p99 latency with a stored baseline.
+ *
+ * Run with: mvn test -Pload-test -Dtest=EndpointLoadTest
+ *
+ * Tuned with system properties:
+ * - {@code load.concurrency}, {@code load.warmup-seconds}, {@code load.duration-seconds}
+ * - {@code load.baseline}: baseline file, {@code src/test/resources/load/baseline.properties} by default
+ * - {@code load.max-throughput-drop} and {@code load.max-p99-increase}: accepted regressions as fractions
+ * - {@code load.baseline.write=true}: write the results to {@code target/load-baseline.properties}
+ *   instead of comparing, to refresh the baseline on the reference machine
+ */
+@Tag("load")
+class EndpointLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 10));
+    private static final Path BASELINE = Path.of(System.getProperty("load.baseline",
+            "src/test/resources/load/baseline.properties"));
+    private static final double MAX_THROUGHPUT_DROP =
+            Double.parseDouble(System.getProperty("load.max-throughput-drop", "0.2"));
+    private static final double MAX_P99_INCREASE =
+            Double.parseDouble(System.getProperty("load.max-p99-increase", "0.5"));
+    private static final boolean WRITE_BASELINE = Boolean.getBoolean("load.baseline.write");
+
+    private static final int SUBJECTS = 100;
+    private static final String ORIGIN = "http://localhost:4006";
+    private static final String BATCH = """
+            {"requests":[{"path":"/api/user/profile"},{"path":"/api/protected/data"},{"path":"/api/protected/time"}]}""";
+
+    private final LoadGenerator loadGenerator = new LoadGenerator();
+
+    @Test
+    void endpointsStayWithinBaseline() throws Exception {
+        try (MockKeycloakIssuer issuer = MockKeycloakIssuer.start();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(KeycloakDemoApplication.class)
+                     .profiles("test")
+                     .run(arguments(issuer))) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            Function<String, URI> uri = path -> URI.create("http://localhost:" + port + path);
+            List<String> tokens = IntStream.range(0, SUBJECTS)
+                    .mapToObj(i -> issuer.mint("load-user-" + i, List.of("USER"), Map.of()))
+                    .toList();
+            String rejectedToken = tampered(tokens.get(0));
+
+            List<LoadResult> results = new ArrayList<>();
+            results.add(run("health", 200, () -> HttpRequest.newBuilder(uri.apply("/api/health")).GET().build()));
+            results.add(run("user.profile", 200, () -> authenticated(uri.apply("/api/user/profile"), tokens).GET().build()));
+            results.add(run("protected.data", 200, () -> authenticated(uri.apply("/api/protected/data"), tokens).GET().build()));
+            results.add(run("protected.time", 200, () -> authenticated(uri.apply("/api/protected/time"), tokens).GET().build()));
+            results.add(run("batch", 200, () -> authenticated(uri.apply("/api/batch"), tokens)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(BATCH))
+                    .build()));
+            results.add(run("rejected.token", 401, () -> HttpRequest.newBuilder(uri.apply("/api/protected/data"))
+                    .header("Authorization", "Bearer " + rejectedToken)
+                    .GET()
+                    .build()));
+            results.add(run("cors.preflight", 200, () -> HttpRequest.newBuilder(uri.apply("/api/protected/data"))
+                    .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                    .header("Origin", ORIGIN)
+                    .header("Access-Control-Request-Method", "GET")
+                    .header("Access-Control-Request-Headers", "authorization")
+                    .build()));
+
+            System.out.println(LoadResult.header());
+            results.forEach(System.out::println);
+            assertThat(results).allSatisfy(result -> assertThat(result.errors()).as(result.name()).isZero());
+
+            if (WRITE_BASELINE) {
+                LoadBaseline.write(Path.of("target/load-baseline.properties"), results);
+                return;
+            }
+            LoadBaseline baseline = LoadBaseline.read(BASELINE);
+            if (baseline.isEmpty()) {
+                System.out.println("No load baseline at " + BASELINE.toAbsolutePath() + ", nothing to compare");
+                return;
+            }
+            List<String> regressions = results.stream()
+                    .flatMap(result -> baseline.regressions(result, MAX_THROUGHPUT_DROP, MAX_P99_INCREASE).stream())
+                    .toList();
+            assertThat(regressions).as("regressions against " + BASELINE).isEmpty();
+        }
+    }
+
+    /**
+     * Command line arguments, which take precedence over application.properties.
+     */
+    private static String[] arguments(MockKeycloakIssuer issuer) {
+        return Stream.concat(Arrays.stream(issuer.springProperties()), Stream.of(
+                        "server.port=0",
+                        // Measures the endpoints, not the per-subject or concurrency limits
+                        "app.rate-limit.enabled=false",
+                        "app.concurrency-limit.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.keycloak=INFO",
+                        "logging.level.org.springframework.security=INFO",
+                        "logging.level.org.springframework.web.cors=INFO"))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+    }
+
+    private LoadResult run(String name, int expectedStatus, Supplier<HttpRequest> request) throws InterruptedException {
+        return loadGenerator.run(name, request, expectedStatus, CONCURRENCY, WARMUP, DURATION);
+    }
+
+    private static HttpRequest.Builder authenticated(URI uri, List<String> tokens) {
+        String token = tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+        return HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * A well-formed token from the right issuer with an invalid signature.
+     */
+    private static String tampered(String token) {
+        int signature = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signature);
+        return token.substring(0, signature) + (first == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.keycloak.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Reference throughput and p99 latency per scenario, stored as
+ * {@code <scenario>.throughput} (req/s) and {@code <scenario>.p99-ms} properties.
+ */
+final class LoadBaseline {
+
+    private final Properties values;
+
+    private LoadBaseline(Properties values) {
+        this.values = values;
+    }
+
+    /**
+     * Reads a baseline file; a missing file gives an empty baseline.
+     */
+    static LoadBaseline read(Path path) throws IOException {
+        Properties values = new Properties();
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                values.load(reader);
+            }
+        }
+        return new LoadBaseline(values);
+    }
+
+    /**
+     * Writes the results as a new baseline.
+     */
+    static void write(Path path, List<LoadResult> results) throws IOException {
+        Properties values = new Properties();
+        for (LoadResult result : results) {
+            values.setProperty(result.name() + ".throughput", String.format(Locale.ROOT, "%.1f", result.throughput()));
+            values.setProperty(result.name() + ".p99-ms", String.format(Locale.ROOT, "%.2f", result.p99() / 1000));
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            values.store(writer, "Load test baseline; regenerate with -Dload.baseline.write=true on the reference machine");
+        }
+    }
+
+    boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Compares a result against its baseline.
+     *
+     * @param result The measured result
+     * @param maxThroughputDrop Largest accepted throughput drop, as a fraction of the baseline
+     * @param maxP99Increase Largest accepted p99 latency increase, as a fraction of the baseline
+     * @return A description of every regression, empty if there is none or no baseline for the scenario
+     */
+    List<String> regressions(LoadResult result, double maxThroughputDrop, double maxP99Increase) {
+        List<String> regressions = new ArrayList<>();
+        String throughput = values.getProperty(result.name() + ".throughput");
+        if (throughput != null && result.throughput() < Double.parseDouble(throughput) * (1 - maxThroughputDrop)) {
+            regressions.add(String.format(Locale.ROOT, "%s: throughput %.1f req/s is below baseline %s req/s",
+                    result.name(), result.throughput(), throughput));
+        }
+        String p99 = values.getProperty(result.name() + ".p99-ms");
+        if (p99 != null && result.p99() / 1000 > Double.parseDouble(p99) * (1 + maxP99Increase)) {
+            regressions.add(String.format(Locale.ROOT, "%s: p99 %.2f ms is above baseline %s ms",
+                    result.name(), result.p99() / 1000, p99));
+        }
+        return regressions;
+    }
+}
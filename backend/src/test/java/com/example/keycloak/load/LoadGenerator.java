@@ -0,0 +1,95 @@
+package com.example.keycloak.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop load generator: a fixed number of workers each send one request at a
+ * time for the configured duration and record the latency of every response.
+ */
+class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * Runs a warm-up phase followed by a measured phase.
+     *
+     * @param name Name reported with the result
+     * @param request Supplier of the request each worker sends
+     * @param concurrency Number of concurrent workers
+     * @param warmup Warm-up duration, not recorded
+     * @param duration Measured duration
+     * @return Throughput and latency percentiles of the measured phase
+     */
+    LoadResult run(String name, Supplier<HttpRequest> request, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        return run(name, request, status -> status < 400, concurrency, warmup, duration);
+    }
+
+    /**
+     * Runs a warm-up phase followed by a measured phase, counting every response with
+     * a status other than the expected one as an error.
+     */
+    LoadResult run(String name, Supplier<HttpRequest> request, int expectedStatus, int concurrency,
+                   Duration warmup, Duration duration) throws InterruptedException {
+        return run(name, request, status -> status == expectedStatus, concurrency, warmup, duration);
+    }
+
+    private LoadResult run(String name, Supplier<HttpRequest> request, IntPredicate expected, int concurrency,
+                           Duration warmup, Duration duration) throws InterruptedException {
+        drive(request, expected, concurrency, warmup, new ConcurrentHistogram(3), new AtomicLong());
+
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        drive(request, expected, concurrency, duration, histogram, errors);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        return new LoadResult(name, concurrency, histogram.getTotalCount(), errors.get(),
+                histogram.getTotalCount() / seconds,
+                micros(histogram, 50.0), micros(histogram, 99.0), micros(histogram, 99.9));
+    }
+
+    private void drive(Supplier<HttpRequest> request, IntPredicate expected, int concurrency, Duration duration,
+                       Histogram histogram, AtomicLong errors) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request.get(), HttpResponse.BodyHandlers.discarding());
+                            if (!expected.test(response.statusCode())) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        histogram.recordValue(System.nanoTime() - sent);
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1_000.0;
+    }
+}
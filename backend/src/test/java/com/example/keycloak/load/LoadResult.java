@@ -0,0 +1,19 @@
+package com.example.keycloak.load;
+
+/**
+ * Outcome of one load generator run. Latencies are in microseconds.
+ */
+record LoadResult(String name, int concurrency, long requests, long errors, double throughput,
+                  double p50, double p99, double p999) {
+
+    static String header() {
+        return String.format("%-32s %6s %10s %7s %12s %10s %10s %10s",
+                "scenario", "conc", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %6d %10d %7d %12.1f %10.2f %10.2f %10.2f",
+                name, concurrency, requests, errors, throughput, p50 / 1000, p99 / 1000, p999 / 1000);
+    }
+}
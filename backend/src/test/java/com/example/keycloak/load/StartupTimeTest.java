@@ -0,0 +1,157 @@
+package com.example.keycloak.load;
+
+import com.example.keycloak.issuer.MockKeycloakIssuer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures time to the first authenticated request for each packaged variant of the
+ * backend: the executable jar, the same jar with its AOT initializers, the AppCDS
+ * layout and the native image. Only the variants built so far are measured.
+ *
+ * Build the variants, then run:
+ * mvn package -Paot,cds -DskipTests   (and -Pnative on GraalVM)
+ * mvn test -Pload-test -Dtest=StartupTimeTest
+ *
+ * {@code load.startup-runs} sets the number of starts per variant (default 3).
+ */
+@Tag("load")
+class StartupTimeTest {
+
+    private static final int RUNS = Integer.getInteger("load.startup-runs", 3);
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+    private static final Path TARGET = Path.of("target");
+    private static final String AOT_INITIALIZER =
+            "com/example/keycloak/KeycloakDemoApplication__ApplicationContextInitializer.class";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    void timeToFirstAuthenticatedRequest() throws Exception {
+        List<Variant> variants = variants();
+        assumeTrue(!variants.isEmpty(), "No packaged backend in target/, run mvn package first");
+
+        try (MockKeycloakIssuer issuer = MockKeycloakIssuer.start()) {
+            String token = issuer.mint("startup-user", List.of("USER"), Map.of());
+            List<String> results = new ArrayList<>();
+            for (Variant variant : variants) {
+                long[] millis = new long[RUNS];
+                for (int run = 0; run < RUNS; run++) {
+                    millis[run] = timeToFirstRequest(variant, issuer, token);
+                }
+                Arrays.sort(millis);
+                results.add(String.format("%-12s %6d %10d %10d", variant.name(), RUNS, millis[0], millis[RUNS / 2]));
+            }
+
+            System.out.println(String.format("%-12s %6s %10s %10s", "variant", "runs", "min ms", "median ms"));
+            results.forEach(System.out::println);
+        }
+    }
+
+    private long timeToFirstRequest(Variant variant, MockKeycloakIssuer issuer, String token) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        Stream.concat(Arrays.stream(issuer.springProperties()), Stream.of(
+                        "server.port=" + port,
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.keycloak=WARN",
+                        "logging.level.org.springframework.security=WARN",
+                        "logging.level.org.springframework.web.cors=WARN"))
+                .forEach(property -> command.add("--" + property));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user/profile"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(variant.workingDirectory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(TARGET.resolve("startup-" + variant.name() + ".log").toFile())
+                .start();
+        try {
+            long deadline = start + START_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                assertThat(process.isAlive()).as(variant.name() + " exited, see target/startup-*.log").isTrue();
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new AssertionError(variant.name() + " did not answer within " + START_TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<Variant> variants() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Variant> variants = new ArrayList<>();
+
+        Path jar = TARGET.resolve("keycloak-demo-backend-1.0.0-exec.jar");
+        if (Files.exists(jar)) {
+            String path = jar.toAbsolutePath().toString();
+            variants.add(new Variant("jar", List.of(java, "-jar", path), TARGET));
+            if (containsEntry(jar, "BOOT-INF/classes/" + AOT_INITIALIZER)) {
+                variants.add(new Variant("jar+aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", path), TARGET));
+            }
+        }
+
+        // The archive records class path entries relative to target/cds
+        Path cds = TARGET.resolve("cds");
+        Path cdsJar = cds.resolve("keycloak-demo-backend-1.0.0-cds.jar");
+        if (Files.exists(cdsJar) && Files.exists(cds.resolve("application.jsa"))) {
+            boolean aot = containsEntry(cdsJar, AOT_INITIALIZER);
+            variants.add(new Variant(aot ? "cds+aot" : "cds", List.of(java, "-XX:SharedArchiveFile=application.jsa",
+                    "-Dspring.aot.enabled=" + aot, "-jar", cdsJar.getFileName().toString()), cds));
+        }
+
+        Path nativeImage = TARGET.resolve("keycloak-demo-backend");
+        if (Files.isExecutable(nativeImage)) {
+            variants.add(new Variant("native", List.of(nativeImage.toAbsolutePath().toString()), TARGET));
+        }
+        return variants;
+    }
+
+    private static boolean containsEntry(Path jar, String entry) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return jarFile.getEntry(entry) != null;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Variant(String name, List<String> command, Path workingDirectory) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.keycloak.load;
+
+import com.example.keycloak.KeycloakDemoApplication;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput and tail latency of the platform-thread pool and virtual threads
+ * when every request blocks on a simulated downstream call.
+ *
+ * Run with: mvn test -Pload-test -Dtest=VirtualThreadLoadTest
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int CONCURRENCY = 400;
+    private static final int PLATFORM_THREADS = 50;
+    private static final Duration DOWNSTREAM_LATENCY = Duration.ofMillis(20);
+
+    private final LoadGenerator loadGenerator = new LoadGenerator();
+
+    @Test
+    void virtualThreadsScaleBeyondThePlatformPool() throws Exception {
+        LoadResult platform = runAgainst(false);
+        LoadResult virtual = runAgainst(true);
+
+        System.out.println(LoadResult.header());
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        assertThat(platform.errors()).isZero();
+        assertThat(virtual.errors()).isZero();
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput());
+    }
+
+    private LoadResult runAgainst(boolean virtualThreads) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                KeycloakDemoApplication.class, SimulatedDownstreamLatency.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + PLATFORM_THREADS,
+                        // Compares how many requests each threading model handles at once, so none are shed
+                        "app.concurrency-limit.enabled=false",
+                        "logging.level.org.springframework.security=INFO",
+                        "logging.level.com.example.keycloak=INFO")
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            URI health = URI.create("http://localhost:" + port + "/api/health");
+
+            return loadGenerator.run(virtualThreads ? "health (virtual threads)" : "health (platform threads)",
+                    () -> HttpRequest.newBuilder(health).GET().build(),
+                    CONCURRENCY, Duration.ofSeconds(5), Duration.ofSeconds(15));
+        }
+    }
+
+    /**
+     * Blocks every request for a fixed time, like a slow JWKS fetch or downstream call.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class SimulatedDownstreamLatency {
+
+        @Bean
+        FilterRegistrationBean<Filter> simulatedDownstreamLatencyFilter() {
+            Filter filter = (request, response, chain) -> {
+                try {
+                    Thread.sleep(DOWNSTREAM_LATENCY);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                chain.doFilter(request, response);
+            };
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AccessAuditFilterTests {
+
+    private final Queue<AuditEvent> audited = new ConcurrentLinkedQueue<>();
+
+    @TempDir
+    Path directory;
+
+    private AuditLog auditLog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        auditLog = new AuditLog(new AuditJournal(directory, 4096, 1), List.of("/api/protected/**"),
+                100, 10, Duration.ofSeconds(1), new SimpleMeterRegistry()) {
+            @Override
+            public boolean record(AuditEvent event) {
+                return audited.add(event);
+            }
+        };
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        auditLog.close();
+    }
+
+    @Test
+    void asyncRequestIsRecordedWhenItCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/protected/stream");
+        request.setServletPath("/api/protected/stream");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new AccessAuditFilter(auditLog).doFilter(request, response, (req, res) -> request.startAsync());
+        assertThat(audited).isEmpty();
+
+        response.setStatus(200);
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(audited).extracting(AuditEvent::path, AuditEvent::status)
+                .containsExactly(tuple("/api/protected/stream", 200));
+    }
+}
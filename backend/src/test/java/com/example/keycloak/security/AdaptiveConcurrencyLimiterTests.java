@@ -0,0 +1,109 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("/api/**", "/api/health",
+            new AdaptiveConcurrencyLimiter.Limits(20, 10, 100, 0.2, 2, 1), meterRegistry, nanoTime::get);
+
+    @Test
+    void lanesAreLimitedSeparatelyWithAReserveForAdmins() {
+        PathContainer health = PathContainer.parsePath("/api/health");
+        PathContainer profile = PathContainer.parsePath("/api/user/profile");
+        assertThat(limiter.limits(PathContainer.parsePath("/actuator/health"))).isFalse();
+        assertThat(limiter.laneOf(health, null)).isEqualTo(Lane.HEALTH);
+        assertThat(limiter.laneOf(profile, null)).isEqualTo(Lane.USER);
+        assertThat(limiter.laneOf(profile, token("USER"))).isEqualTo(Lane.USER);
+        assertThat(limiter.laneOf(profile, token("USER", "ADMIN"))).isEqualTo(Lane.ADMIN);
+
+        assertThat(acquire(Lane.USER, 20)).isEqualTo(16);
+        assertThat(acquire(Lane.ADMIN, 20)).isEqualTo(4);
+        assertThat(acquire(Lane.HEALTH, 20)).isEqualTo(2);
+
+        // A slot freed while users are over their share goes to admins only
+        limiter.release(Lane.USER);
+        assertThat(limiter.tryAcquire(Lane.USER)).isEqualTo(AdaptiveConcurrencyLimiter.REJECTED);
+        assertThat(limiter.tryAcquire(Lane.ADMIN)).isNotEqualTo(AdaptiveConcurrencyLimiter.REJECTED);
+        assertThat(shed("user")).isEqualTo(5);
+        assertThat(shed("admin")).isEqualTo(16);
+        assertThat(shed("health")).isEqualTo(18);
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimiter.IN_FLIGHT).gauge().value()).isEqualTo(20);
+    }
+
+    @Test
+    void limitGrowsWhileLatencyHoldsAndShrinksWhenRequestsQueue() {
+        for (int i = 0; i < 50; i++) {
+            window(10, limiter.limit());
+        }
+        int grown = limiter.limit();
+        assertThat(grown).isGreaterThan(40);
+
+        for (int i = 0; i < 50; i++) {
+            window(100, limiter.limit());
+        }
+        assertThat(limiter.limit()).isLessThan(grown / 2).isGreaterThanOrEqualTo(10);
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimiter.LIMIT).gauge().value()).isEqualTo(limiter.limit());
+    }
+
+    @Test
+    void limitDoesNotGrowWhileMostOfItIsUnused() {
+        for (int i = 0; i < 50; i++) {
+            window(10, 9);
+        }
+        assertThat(limiter.limit()).isEqualTo(20);
+    }
+
+    /**
+     * Runs a window of concurrent admin requests with the given latency.
+     */
+    private void window(long latencyMillis, int concurrency) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        long[] starts = new long[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            starts[i] = limiter.tryAcquire(Lane.ADMIN);
+        }
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        for (long start : starts) {
+            limiter.release(Lane.ADMIN, start);
+        }
+        // The window closes on the first sample after it ends
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        for (int i = 0; i < 10; i++) {
+            limiter.release(Lane.ADMIN, limiter.tryAcquire(Lane.ADMIN) - TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+    }
+
+    private int acquire(Lane lane, int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.tryAcquire(lane) != AdaptiveConcurrencyLimiter.REJECTED) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private double shed(String lane) {
+        return meterRegistry.get(AdaptiveConcurrencyLimiter.SHED).tag("lane", lane).counter().count();
+    }
+
+    private static KeycloakAuthenticationToken token(String... roles) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("user-1").build();
+        return new KeycloakAuthenticationToken(jwt, List.of(), "user-1", RoleSet.of(roles.clone(), roles.length));
+    }
+}
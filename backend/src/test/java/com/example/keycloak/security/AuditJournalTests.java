@@ -0,0 +1,149 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditJournalTests {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadBackInOrderAcrossSegments() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 100)) {
+            for (int i = 0; i < 200; i++) {
+                assertThat(journal.append(event(i, "user-" + i))).isTrue();
+            }
+        }
+
+        List<AuditEvent> events = readAll();
+        assertThat(AuditJournalReader.segments(directory)).hasSizeGreaterThan(1);
+        assertThat(events).hasSize(200);
+        assertThat(events.get(0)).isEqualTo(event(0, "user-0"));
+        assertThat(events.get(199).subject()).isEqualTo("user-199");
+    }
+
+    @Test
+    void oldestSegmentsBeyondTheRetainedCountAreDeleted() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 2)) {
+            for (int i = 0; i < 200; i++) {
+                journal.append(event(i, "user-" + i));
+            }
+        }
+        // Reopening appends to the newest segment
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 2)) {
+            journal.append(event(200, null));
+        }
+
+        List<AuditEvent> events = readAll();
+        assertThat(AuditJournalReader.segments(directory)).hasSize(2);
+        assertThat(events.get(events.size() - 1)).isEqualTo(event(200, null));
+        assertThat(events.get(0).timestamp()).isGreaterThan(0);
+    }
+
+    @Test
+    void readingStopsAtATornRecord() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.append(event(1, "alice"));
+            journal.append(event(2, "bob"));
+        }
+        Path segment = AuditJournalReader.segments(directory).get(0);
+        int secondRecord = AuditJournal.HEADER_SIZE + AuditJournal.RECORD_HEADER_SIZE + readLength(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), secondRecord + AuditJournal.RECORD_HEADER_SIZE + 2);
+        }
+
+        assertThat(readAll()).extracting(AuditEvent::subject).containsExactly("alice");
+    }
+
+    @Test
+    void reopeningAppendsAfterTheLastIntactRecord() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 100)) {
+            journal.append(event(1, "alice"));
+            journal.append(event(2, "bob"));
+        }
+        Path segment = AuditJournalReader.segments(directory).get(0);
+        int secondRecord = AuditJournal.HEADER_SIZE + AuditJournal.RECORD_HEADER_SIZE + readLength(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), secondRecord + AuditJournal.RECORD_HEADER_SIZE + 2);
+        }
+
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 100)) {
+            journal.append(event(3, "carol"));
+        }
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT_SIZE, 100)) {
+            journal.append(event(4, "dave"));
+        }
+
+        assertThat(AuditJournalReader.segments(directory)).containsExactly(segment);
+        assertThat(readAll()).extracting(AuditEvent::subject).containsExactly("alice", "carol", "dave");
+    }
+
+    @Test
+    void auditLogDrainsItsQueueIntoTheJournalOnClose() throws Exception {
+        AuditLog auditLog = new AuditLog(new AuditJournal(directory, SEGMENT_SIZE, 100),
+                List.of("/api/**"), 1000, 16, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        auditLog.start();
+        for (int i = 0; i < 50; i++) {
+            assertThat(auditLog.record(event(i, "carol"))).isTrue();
+        }
+        auditLog.close();
+
+        assertThat(readAll()).hasSize(50);
+    }
+
+    @Test
+    void idleAuditWriterIsWokenByANewEvent() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (AuditLog auditLog = new AuditLog(new AuditJournal(directory, SEGMENT_SIZE, 100),
+                List.of("/api/**"), 1000, 16, Duration.ofHours(1), meterRegistry)) {
+            auditLog.start();
+            for (int i = 1; i <= 3; i++) {
+                // Let the writer run out of work and park before each event
+                Thread.sleep(50);
+                assertThat(auditLog.record(event(i, "erin"))).isTrue();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (meterRegistry.get("keycloak.audit.events").tag("outcome", "written").counter().count() < i
+                        && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertThat(meterRegistry.get("keycloak.audit.events").tag("outcome", "written").counter().count())
+                        .isEqualTo(i);
+            }
+        }
+    }
+
+    private List<AuditEvent> readAll() throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        AuditJournalReader.read(directory, events::add);
+        return events;
+    }
+
+    private static int readLength(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, AuditJournal.HEADER_SIZE);
+            return length.flip().getInt();
+        }
+    }
+
+    private static AuditEvent event(int i, String subject) {
+        return new AuditEvent(1_700_000_000_000L + i, i % 2 == 0 ? "GET" : "PROPFIND", "/api/protected/data",
+                200, subject, subject != null ? List.of("ROLE_USER", "ROLE_ADMIN") : List.of(), i);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtAuthenticationManagerTests {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+
+    private final AtomicInteger decodeCount = new AtomicInteger();
+
+    private Instant expiresAt = Instant.now().plusSeconds(60);
+
+    private boolean rotatedKeyFetched;
+
+    private final JwtDecoder decoder = token -> {
+        decodeCount.incrementAndGet();
+        if (token.endsWith(".bad")) {
+            throw new InvalidJwtException(RejectionReason.INVALID_SIGNATURE, "Signed JWT rejected: Invalid signature");
+        }
+        if (token.endsWith(".rotated") && !rotatedKeyFetched) {
+            throw new UnknownSigningKeyException("Signed JWT rejected: Another algorithm expected, or no matching key(s) found");
+        }
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user-1")
+                .issuedAt(expiresAt.minusSeconds(60))
+                .expiresAt(expiresAt)
+                .build();
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5), meterRegistry);
+
+    private final AuthenticationMetrics metrics = new AuthenticationMetrics(meterRegistry);
+
+    private final InvalidTokenGuard guard = new InvalidTokenGuard(
+            new TokenPrecheck(Set.of("RS256"), ISSUER, Duration.ofSeconds(60)),
+            100, Duration.ofMinutes(1), metrics, meterRegistry);
+
+    private final ClusterSync clusterSync = new ClusterSync(ClusterBus.standalone(), cache,
+            new TokenRevocations(Duration.ofHours(1), meterRegistry), null, Duration.ofMillis(20), false);
+
+    private final CachingJwtAuthenticationManager manager = new CachingJwtAuthenticationManager(decoder,
+            new JwtAuthenticationConverter(), cache, guard, metrics, clusterSync, null);
+
+    @Test
+    void repeatedTokenIsDecodedOnceButEachRequestGetsItsOwnAuthentication() {
+        BearerTokenAuthenticationToken token = bearer("RS256", ISSUER, 3600, "sig-a");
+        token.setDetails("request-1");
+        Authentication first = manager.authenticate(token);
+        BearerTokenAuthenticationToken again = new BearerTokenAuthenticationToken(token.getToken());
+        again.setDetails("request-2");
+        Authentication second = manager.authenticate(again);
+
+        assertThat(first.getName()).isEqualTo("user-1");
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(first.getDetails()).isEqualTo("request-1");
+        assertThat(second.getDetails()).isEqualTo("request-2");
+        assertThat(decodeCount).hasValue(1);
+    }
+
+    @Test
+    void expiredTokenIsNotCached() {
+        expiresAt = Instant.now().minusSeconds(1);
+
+        manager.authenticate(bearer("RS256", ISSUER, 3600, "sig-b"));
+        manager.authenticate(bearer("RS256", ISSUER, 3600, "sig-b"));
+
+        assertThat(decodeCount).hasValue(2);
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void invalidTokenIsRejectedOnceByTheDecoderThenFromTheNegativeCache() {
+        // Built once: the exp claim comes from the current second
+        BearerTokenAuthenticationToken invalid = bearer("RS256", ISSUER, 3600, "bad");
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> manager.authenticate(invalid))
+                    .isInstanceOf(InvalidBearerTokenException.class)
+                    .hasNoCause()
+                    .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        }
+
+        assertThat(decodeCount).hasValue(1);
+        assertThat(rejections("invalid_signature", "decode")).isEqualTo(1);
+        assertThat(rejections("invalid_signature", "cached")).isEqualTo(2);
+        assertThat(meterRegistry.get(AuthenticationMetrics.STAGE_TIMER).tag("stage", "token.decode")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenSignedWithAnUnknownKeyIsAcceptedOnceTheKeyIsFetched() {
+        BearerTokenAuthenticationToken token = bearer("RS256", ISSUER, 3600, "rotated");
+        assertThatThrownBy(() -> manager.authenticate(token)).isInstanceOf(InvalidBearerTokenException.class);
+
+        rotatedKeyFetched = true;
+
+        assertThat(manager.authenticate(token).getName()).isEqualTo("user-1");
+        assertThat(decodeCount).hasValue(2);
+        assertThat(rejections("unknown_key", "decode")).isEqualTo(1);
+    }
+
+    @Test
+    void structurallyInvalidTokensAreRejectedBeforeDecoding() {
+        assertThatThrownBy(() -> manager.authenticate(new BearerTokenAuthenticationToken("not-a-jwt")))
+                .isInstanceOf(RejectedTokenException.class);
+        assertThatThrownBy(() -> manager.authenticate(bearer("none", ISSUER, 3600, "sig")))
+                .isInstanceOf(RejectedTokenException.class);
+        assertThatThrownBy(() -> manager.authenticate(bearer("RS256", "http://evil", 3600, "sig")))
+                .isInstanceOf(RejectedTokenException.class);
+        assertThatThrownBy(() -> manager.authenticate(bearer("RS256", ISSUER, -120, "sig")))
+                .isInstanceOf(RejectedTokenException.class);
+
+        assertThat(decodeCount).hasValue(0);
+        assertThat(rejections("malformed", "precheck")).isEqualTo(1);
+        assertThat(rejections("unsupported_alg", "precheck")).isEqualTo(1);
+        assertThat(rejections("invalid_issuer", "precheck")).isEqualTo(1);
+        assertThat(rejections("expired", "precheck")).isEqualTo(1);
+    }
+
+    @Test
+    void revokedSubjectIsRejectedWhetherCachedOrDecoded() {
+        BearerTokenAuthenticationToken token = bearer("RS256", ISSUER, 3600, "sig-c");
+        manager.authenticate(token);
+
+        clusterSync.revoke(new Revocation("user-1", null, null, expiresAt));
+
+        assertThat(cache.estimatedSize()).isZero();
+        assertThatThrownBy(() -> manager.authenticate(token))
+                .isInstanceOf(RejectedTokenException.class);
+        assertThat(decodeCount).hasValue(2);
+        assertThat(rejections("revoked", "revocation")).isEqualTo(1);
+    }
+
+    private double rejections(String reason, String stage) {
+        return meterRegistry.get(AuthenticationMetrics.REJECTIONS).tag("reason", reason).tag("stage", stage)
+                .counter().count();
+    }
+
+    private static BearerTokenAuthenticationToken bearer(String alg, String issuer, long expiresInSeconds,
+                                                         String signature) {
+        String header = "{\"alg\":\"" + alg + "\"}";
+        String claims = "{\"iss\":\"" + issuer + "\",\"sub\":\"user-1\",\"exp\":"
+                + (Instant.now().getEpochSecond() + expiresInSeconds) + "}";
+        return new BearerTokenAuthenticationToken(base64(header) + "." + base64(claims) + "." + signature);
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
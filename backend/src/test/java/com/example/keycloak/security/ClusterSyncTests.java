@@ -0,0 +1,131 @@
+package com.example.keycloak.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterSyncTests {
+
+    private final InMemoryClusterBus.Network network = new InMemoryClusterBus.Network();
+
+    private final List<JwksKeyStore> keyStores = new ArrayList<>();
+
+    @AfterEach
+    void closeKeyStores() {
+        keyStores.forEach(JwksKeyStore::close);
+    }
+
+    @Test
+    void tokenVerifiedOnOneNodeIsFoundOnAnother() {
+        Node a = node(() -> "{\"keys\":[]}");
+        Node b = node(() -> "{\"keys\":[]}");
+
+        a.sync().shareVerifiedToken("hash-1", jwt("user-1", Instant.now().plusSeconds(60)));
+        a.sync().shareVerifiedToken("hash-2", jwt("user-2", Instant.now().minusSeconds(1)));
+
+        assertThat(b.sync().findVerifiedToken("hash-1").join().getSubject()).isEqualTo("user-1");
+        assertThat(b.sync().findVerifiedToken("hash-2").join()).isNull();
+        assertThat(b.sync().findVerifiedToken("unknown").join()).isNull();
+    }
+
+    @Test
+    void revocationReachesPeersAndNodesThatJoinLater() {
+        Node a = node(() -> "{\"keys\":[]}");
+        Node b = node(() -> "{\"keys\":[]}");
+        Jwt token = jwt("user-1", Instant.now().plusSeconds(60));
+        b.cache().put("hash-1", new VerifiedTokenCache.VerifiedToken(token, new JwtAuthenticationToken(token)));
+
+        a.sync().revoke(new Revocation("user-1", null, null, Instant.now()));
+
+        assertThat(b.cache().get("hash-1")).isNull();
+        assertThat(b.sync().isRevoked(token)).isTrue();
+        assertThat(b.sync().isRevoked(jwt("user-2", Instant.now().plusSeconds(60)))).isFalse();
+
+        Node c = node(() -> "{\"keys\":[]}");
+        assertThat(c.sync().isRevoked(token)).isTrue();
+        // Signing in again after the revocation gives a valid token
+        assertThat(c.sync().isRevoked(Jwt.withTokenValue("t").header("alg", "RS256").subject("user-1")
+                .issuedAt(Instant.now().plusSeconds(1)).build())).isFalse();
+    }
+
+    @Test
+    void rotationSeenByOneNodeMakesPeersRefetchFromTheIssuer() throws Exception {
+        AtomicReference<String> issuerKeys = new AtomicReference<>(new JWKSet(generateKey("key-1")).toString());
+        Node a = node(issuerKeys::get);
+        Node b = node(issuerKeys::get);
+        a.keyStore().refreshAsync().get();
+        b.keyStore().refreshAsync().get();
+
+        issuerKeys.set(new JWKSet(List.of(generateKey("key-1"), generateKey("key-2"))).toString());
+        a.keyStore().refreshAsync().get();
+
+        assertThat(awaitKey(b.keyStore(), "key-2")).isTrue();
+    }
+
+    @Test
+    void keysReportedByAPeerAreNeverInstalled() throws Exception {
+        String issuerKeys = new JWKSet(generateKey("key-1")).toString();
+        Node a = node(() -> issuerKeys);
+        a.keyStore().refreshAsync().get();
+
+        // A rogue member reports a key of its own; the issuer does not have it
+        network.join().publish(new ClusterEvent.JwksChanged("rogue", Set.of("key-1", "forged")));
+
+        assertThat(awaitKey(a.keyStore(), "forged")).isFalse();
+        assertThat(a.keyStore().findKey("key-1")).isNotNull();
+    }
+
+    private static boolean awaitKey(JwksKeyStore keyStore, String kid) throws InterruptedException {
+        // Peers refetch asynchronously
+        for (int i = 0; i < 20; i++) {
+            if (keyStore.findKey(kid) != null) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private Node node(Supplier<String> jwksLoader) {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5), null);
+        JwksKeyStore keyStore = new JwksKeyStore(jwksLoader, "test", Duration.ofHours(1), Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ZERO);
+        keyStores.add(keyStore);
+        ClusterSync sync = new ClusterSync(network.join(), cache, new TokenRevocations(Duration.ofHours(1), null),
+                keyStore, Duration.ofMillis(20), true);
+        sync.start();
+        return new Node(cache, keyStore, sync);
+    }
+
+    private static Jwt jwt(String subject, Instant expiresAt) {
+        return Jwt.withTokenValue("token-" + subject)
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(expiresAt.minusSeconds(300))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static RSAKey generateKey(String kid) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(kid).algorithm(JWSAlgorithm.RS256).generate();
+    }
+
+    private record Node(VerifiedTokenCache cache, JwksKeyStore keyStore, ClusterSync sync) {
+    }
+}
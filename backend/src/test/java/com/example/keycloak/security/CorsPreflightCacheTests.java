@@ -0,0 +1,55 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorsPreflightCacheTests {
+
+    private static final String ORIGIN = "http://localhost:4006";
+
+    private final CorsPreflightCache preflightCache = new CorsPreflightCache(corsConfiguration(), true, 100,
+            new SimpleMeterRegistry());
+
+    @Test
+    void allowedPreflightIsAnsweredFromPrecomputedHeaders() {
+        HttpHeaders headers = preflightCache.lookup(ORIGIN, "GET", "authorization, content-type");
+
+        assertThat(headers.getAccessControlAllowOrigin()).isEqualTo(ORIGIN);
+        assertThat(headers.getAccessControlAllowMethods()).containsExactly(HttpMethod.GET, HttpMethod.POST);
+        assertThat(headers.getAccessControlAllowHeaders()).containsExactly("authorization", "content-type");
+        assertThat(headers.getAccessControlAllowCredentials()).isTrue();
+        assertThat(headers.getAccessControlMaxAge()).isEqualTo(86400);
+        assertThat(headers.getVary()).contains(HttpHeaders.ORIGIN);
+        assertThat(preflightCache.lookup(ORIGIN, "GET", "authorization, content-type")).isSameAs(headers);
+    }
+
+    @Test
+    void rejectedPreflightFallsThroughToTheFilterChain() {
+        assertThat(preflightCache.lookup("http://evil.example", "GET", null)).isNull();
+        assertThat(preflightCache.lookup(ORIGIN, "DELETE", null)).isNull();
+    }
+
+    @Test
+    void disabledFastPathAnswersNothing() {
+        CorsPreflightCache disabled = new CorsPreflightCache(corsConfiguration(), false, 100, new SimpleMeterRegistry());
+
+        assertThat(disabled.lookup(ORIGIN, "GET", null)).isNull();
+    }
+
+    private static CorsConfiguration corsConfiguration() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(List.of(ORIGIN));
+        configuration.setAllowedMethods(List.of("GET", "POST"));
+        configuration.setAllowedHeaders(List.of("*"));
+        configuration.setAllowCredentials(true);
+        configuration.setMaxAge(86400L);
+        return configuration;
+    }
+}
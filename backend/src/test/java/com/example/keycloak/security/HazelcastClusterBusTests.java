@@ -0,0 +1,94 @@
+package com.example.keycloak.security;
+
+import com.hazelcast.core.Hazelcast;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Two embedded Hazelcast members in one JVM, joined over TCP/IP on the loopback interface.
+ */
+class HazelcastClusterBusTests {
+
+    private static final int PORT = 15701;
+
+    private final String clusterName = "test-" + UUID.randomUUID();
+
+    private final List<HazelcastClusterBus> members = new ArrayList<>();
+
+    @AfterEach
+    void shutDown() {
+        members.forEach(HazelcastClusterBus::close);
+    }
+
+    @Test
+    void membersShareVerifiedTokensEventsAndRetainedRevocations() throws Exception {
+        HazelcastClusterBus a = member();
+        BlockingQueue<ClusterEvent> receivedByA = new LinkedBlockingQueue<>();
+        a.subscribe(receivedByA::add);
+
+        Revocation revocation = new Revocation("user-1", "session-1", null, Instant.now());
+        a.publish(new ClusterEvent.TokensRevoked(a.nodeId(), revocation));
+
+        HazelcastClusterBus b = member();
+        assertThat(b.clusterSize()).isEqualTo(2);
+        assertThat(b.revocations()).containsExactly(revocation);
+
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-2")
+                .claim("realm_access", Map.of("roles", List.of("USER")))
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        a.shareVerifiedToken("hash-1", jwt, Duration.ofSeconds(60));
+        Jwt shared = awaitToken(b, "hash-1");
+        assertThat(shared.getSubject()).isEqualTo("user-2");
+        assertThat(shared.getClaims()).isEqualTo(jwt.getClaims());
+
+        b.publish(new ClusterEvent.JwksChanged(b.nodeId(), Set.of("key-2")));
+        ClusterEvent received = receivedByA.poll(10, TimeUnit.SECONDS);
+        assertThat(received).isEqualTo(new ClusterEvent.JwksChanged(b.nodeId(), Set.of("key-2")));
+        // A member does not receive its own events
+        assertThat(receivedByA).isEmpty();
+    }
+
+    @Test
+    void requiresAnExplicitMemberList() {
+        assertThatThrownBy(() -> HazelcastClusterBus.config(clusterName, PORT, List.of(), 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private HazelcastClusterBus member() {
+        HazelcastClusterBus member = new HazelcastClusterBus(Hazelcast.newHazelcastInstance(HazelcastClusterBus.config(
+                clusterName, PORT, List.of("127.0.0.1:" + PORT, "127.0.0.1:" + (PORT + 1)), 1000)), Duration.ofHours(1));
+        members.add(member);
+        return member;
+    }
+
+    private static Jwt awaitToken(HazelcastClusterBus member, String tokenHash) throws InterruptedException {
+        // Sharing is asynchronous
+        for (int i = 0; i < 100; i++) {
+            Jwt jwt = member.findVerifiedToken(tokenHash).join();
+            if (jwt != null) {
+                return jwt;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Token was not shared");
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.keycloak.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClusterBus} whose nodes share one in-memory {@link Network}, for testing several
+ * nodes in one JVM. Events are delivered synchronously.
+ */
+final class InMemoryClusterBus implements ClusterBus {
+
+    private final Network network;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<ClusterEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private InMemoryClusterBus(Network network) {
+        this.network = network;
+        network.nodes.add(this);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public CompletableFuture<Jwt> findVerifiedToken(String tokenHash) {
+        return CompletableFuture.completedFuture(network.verifiedTokens.get(tokenHash));
+    }
+
+    @Override
+    public void shareVerifiedToken(String tokenHash, Jwt jwt, Duration ttl) {
+        network.verifiedTokens.put(tokenHash, jwt);
+    }
+
+    @Override
+    public void publish(ClusterEvent event) {
+        if (event instanceof ClusterEvent.TokensRevoked revoked) {
+            network.revocations.add(revoked.revocation());
+        }
+        for (InMemoryClusterBus node : network.nodes) {
+            if (node != this) {
+                node.listeners.forEach(listener -> listener.accept(event));
+            }
+        }
+    }
+
+    @Override
+    public List<Revocation> revocations() {
+        return List.copyOf(network.revocations);
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        network.nodes.remove(this);
+    }
+
+    /**
+     * State shared by the nodes of one test cluster.
+     */
+    static final class Network {
+
+        private final List<InMemoryClusterBus> nodes = new CopyOnWriteArrayList<>();
+        private final Map<String, Jwt> verifiedTokens = new ConcurrentHashMap<>();
+        private final List<Revocation> revocations = new CopyOnWriteArrayList<>();
+
+        InMemoryClusterBus join() {
+            return new InMemoryClusterBus(this);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.keycloak.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwksKeyStoreTests {
+
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+
+    private JwksKeyStore keyStore;
+
+    @AfterEach
+    void closeKeyStore() {
+        if (keyStore != null) {
+            keyStore.close();
+        }
+    }
+
+    @Test
+    void concurrentColdStartLookupsShareOneFetch() throws Exception {
+        RSAKey key = generateKey("key-1");
+        jwks.set(new JWKSet(key).toString());
+        CountDownLatch release = new CountDownLatch(1);
+        keyStore = newKeyStore(() -> {
+            fetchCount.incrementAndGet();
+            await(release);
+            return jwks.get();
+        });
+
+        Thread[] threads = new Thread[8];
+        AtomicInteger found = new AtomicInteger();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    if (!keyStore.get(selectorFor("key-1"), null).isEmpty()) {
+                        found.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads[i].start();
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(found).hasValue(threads.length);
+        assertThat(fetchCount).hasValue(1);
+        assertThat(keyStore.findKey("key-1")).isEqualTo(key.toPublicKey());
+    }
+
+    @Test
+    void unknownKidTriggersRefresh() throws Exception {
+        jwks.set(new JWKSet(generateKey("key-1")).toString());
+        keyStore = newKeyStore(() -> {
+            fetchCount.incrementAndGet();
+            return jwks.get();
+        });
+        keyStore.refreshAsync().get();
+
+        jwks.set(new JWKSet(generateKey("key-2")).toString());
+
+        assertThat(keyStore.get(selectorFor("key-2"), null)).hasSize(1);
+        assertThat(fetchCount).hasValue(2);
+    }
+
+    @Test
+    void lastGoodKeySetIsKeptWhenRefreshFails() throws Exception {
+        jwks.set(new JWKSet(generateKey("key-1")).toString());
+        keyStore = newKeyStore(() -> {
+            if (fetchCount.incrementAndGet() > 1) {
+                throw new IllegalStateException("Identity provider unavailable");
+            }
+            return jwks.get();
+        });
+        keyStore.refreshAsync().get();
+
+        keyStore.refreshAsync().get();
+
+        assertThat(keyStore.findKey("key-1")).isNotNull();
+        assertThat(keyStore.get(selectorFor("key-1"), null)).hasSize(1);
+    }
+
+    private JwksKeyStore newKeyStore(Supplier<String> loader) {
+        return new JwksKeyStore(loader, "test", Duration.ofMinutes(5), Duration.ofMinutes(1),
+                Duration.ofSeconds(5), Duration.ZERO);
+    }
+
+    private static JWKSelector selectorFor(String kid) {
+        return new JWKSelector(JWKMatcher.forJWSHeader(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(kid).build()));
+    }
+
+    private static RSAKey generateKey(String kid) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
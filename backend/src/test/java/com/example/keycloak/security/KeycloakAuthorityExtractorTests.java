@@ -0,0 +1,73 @@
+package com.example.keycloak.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakAuthorityExtractorTests {
+
+    private final KeycloakAuthorityExtractor extractor = new KeycloakAuthorityExtractor("frontend");
+
+    @Test
+    void extractsCustomRealmAndClientRoles() {
+        Jwt jwt = jwt(Map.of(
+                "roles", List.of("USER"),
+                "realm_access", Map.of("roles", List.of("offline_access", "USER")),
+                "resource_access", Map.of(
+                        "frontend", Map.of("roles", List.of("viewer")),
+                        "account", Map.of("roles", List.of("manage-account")))));
+
+        RoleSet roles = extractor.extract(jwt);
+
+        assertThat(roles.asSet()).containsExactly("USER", "account:manage-account", "offline_access", "viewer");
+        assertThat(roles.contains("viewer")).isTrue();
+        assertThat(roles.contains("ADMIN")).isFalse();
+    }
+
+    @Test
+    void otherClientsRolesNeverBecomeBareAuthorities() {
+        Jwt jwt = jwt(Map.of(
+                "realm_access", Map.of("roles", List.of("USER")),
+                "resource_access", Map.of("other-app", Map.of("roles", List.of("ADMIN")))));
+
+        RoleSet roles = extractor.extract(jwt);
+
+        assertThat(roles.contains("ADMIN")).isFalse();
+        assertThat(extractor.toAuthorities(roles)).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER", "ROLE_other-app:ADMIN");
+    }
+
+    @Test
+    void ignoresMalformedRoleClaims() {
+        Jwt jwt = jwt(Map.of(
+                "realm_access", "not-a-map",
+                "resource_access", Map.of("frontend", List.of("viewer"))));
+
+        assertThat(extractor.extract(jwt).isEmpty()).isTrue();
+    }
+
+    @Test
+    void reusesInternedAuthorities() {
+        Jwt first = jwt(Map.of("roles", List.of("USER")));
+        Jwt second = jwt(Map.of("roles", List.of(new String("USER"))));
+
+        List<GrantedAuthority> firstAuthorities = extractor.toAuthorities(extractor.extract(first));
+        List<GrantedAuthority> secondAuthorities = extractor.toAuthorities(extractor.extract(second));
+
+        assertThat(firstAuthorities.get(0).getAuthority()).isEqualTo("ROLE_USER");
+        assertThat(secondAuthorities.get(0)).isSameAs(firstAuthorities.get(0));
+    }
+
+    private static Jwt jwt(Map<String, Object> claims) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .claims(existing -> existing.putAll(claims))
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProjectedJwtDecoderTests {
+
+    private static final String ISSUER = "https://issuer.example/realms/test";
+
+    private final RSAKey key = generateKey();
+    private final JwtDecoder projected = new ProjectedJwtDecoder(new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK())),
+            KeycloakJwtDecoders.APPLICATION_CLAIMS, KeycloakJwtDecoders.validator(ISSUER));
+    private final KeycloakAuthorityExtractor extractor = new KeycloakAuthorityExtractor("client-0");
+
+    @Test
+    void decodesProjectedClaimsLikeTheNimbusDecoder() throws Exception {
+        NimbusJwtDecoder full = NimbusJwtDecoder.withPublicKey(key.toRSAPublicKey()).build();
+        full.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+        String token = mint(Duration.ofMinutes(5));
+
+        Jwt expected = full.decode(token);
+        Jwt jwt = projected.decode(token);
+
+        assertThat(jwt.getHeaders()).isEqualTo(expected.getHeaders());
+        assertThat(jwt.getClaims()).doesNotContainKey("allowed-origins");
+        assertThat(jwt.getClaimAsString("scope")).isEqualTo(expected.getClaimAsString("scope"));
+        assertThat(jwt.getSubject()).isEqualTo(expected.getSubject());
+        assertThat(jwt.getIssuer()).isEqualTo(expected.getIssuer());
+        assertThat(jwt.getAudience()).isEqualTo(expected.getAudience());
+        assertThat(jwt.getExpiresAt()).isEqualTo(expected.getExpiresAt());
+        assertThat(jwt.getClaimAsString("preferred_username")).isEqualTo("alice");
+
+        // Roles are streamed from the token bytes without parsing the object claims
+        LazyJsonObject resourceAccess = (LazyJsonObject) jwt.getClaims().get("resource_access");
+        assertThat(extractor.extract(jwt)).isEqualTo(extractor.extract(expected));
+        assertThat(resourceAccess.isParsed()).isFalse();
+
+        assertThat(resourceAccess).isEqualTo(expected.getClaims().get("resource_access"));
+        assertThat(resourceAccess.isParsed()).isTrue();
+        assertThat(extractor.extract(jwt)).isEqualTo(extractor.extract(expected));
+    }
+
+    @Test
+    void rejectsTamperedExpiredAndAmbiguousTokens() throws Exception {
+        String token = mint(Duration.ofMinutes(5));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + mint(Duration.ofMinutes(10)).split("\\.")[1] + "." + parts[2];
+        assertThatThrownBy(() -> projected.decode(tampered))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessageContaining("Invalid signature");
+
+        assertThatThrownBy(() -> projected.decode(mint(Duration.ofMinutes(-5))))
+                .isInstanceOf(JwtValidationException.class)
+                .hasMessageContaining("expired");
+
+        JWSObject rotated = new JWSObject(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("key-2").build(),
+                new Payload(new Base64URL(token.split("\\.")[1])));
+        rotated.sign(new RSASSASigner(key));
+        assertThatThrownBy(() -> projected.decode(rotated.serialize()))
+                .isInstanceOf(UnknownSigningKeyException.class);
+
+        // A duplicate claim could be read differently by another parser
+        String exp = String.valueOf(Instant.now().plusSeconds(300).getEpochSecond());
+        JWSObject duplicate = new JWSObject(header(), new Payload(
+                "{\"iss\":\"" + ISSUER + "\",\"sub\":\"alice\",\"exp\":" + exp + ",\"sub\":\"root\"}"));
+        duplicate.sign(new RSASSASigner(key));
+        assertThatThrownBy(() -> projected.decode(duplicate.serialize()))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessageContaining("Malformed payload");
+    }
+
+    @Test
+    void rejectionReasonsMatchTheNimbusDecoder() throws Exception {
+        String jwks = new JWKSet(key.toPublicJWK()).toString();
+        try (JwksKeyStore keyStore = new JwksKeyStore(() -> jwks, "test", Duration.ofHours(1), Duration.ofMinutes(1),
+                Duration.ofMillis(10), Duration.ofHours(1))) {
+            keyStore.refreshAsync().get();
+            JwtDecoder full = KeycloakJwtDecoders.withKeyStore(keyStore, ISSUER);
+            JwtDecoder projectedWithKeyStore = KeycloakJwtDecoders.projected(keyStore, ISSUER,
+                    KeycloakJwtDecoders.APPLICATION_CLAIMS);
+
+            String[] parts = mint(Duration.ofMinutes(5)).split("\\.");
+            JWSObject foreignIssuer = new JWSObject(header(), new Payload(
+                    "{\"iss\":\"https://evil.example\",\"sub\":\"alice\",\"exp\":"
+                            + Instant.now().plusSeconds(300).getEpochSecond() + "}"));
+            foreignIssuer.sign(new RSASSASigner(key));
+            JWSObject rotated = new JWSObject(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("key-2").build(),
+                    new Payload(new Base64URL(parts[1])));
+            rotated.sign(new RSASSASigner(key));
+
+            Map<String, RejectionReason> expected = Map.of(
+                    "not-a-jwt", RejectionReason.MALFORMED,
+                    parts[0] + ".e30." + parts[2], RejectionReason.INVALID_SIGNATURE,
+                    mint(Duration.ofMinutes(-5)), RejectionReason.EXPIRED,
+                    foreignIssuer.serialize(), RejectionReason.INVALID_ISSUER,
+                    rotated.serialize(), RejectionReason.UNKNOWN_KEY);
+            expected.forEach((token, reason) -> {
+                assertThat(reasonOf(full, token)).as(reason.tag()).isEqualTo(reason);
+                assertThat(reasonOf(projectedWithKeyStore, token)).as(reason.tag()).isEqualTo(reason);
+            });
+        }
+    }
+
+    @Test
+    void serializesLazyClaimsAsPlainMaps() throws Exception {
+        Jwt jwt = projected.decode(mint(Duration.ofMinutes(5)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(jwt);
+        }
+        Jwt copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Jwt) in.readObject();
+        }
+
+        assertThat(copy.getClaims().get("resource_access")).isInstanceOf(LinkedHashMap.class);
+        assertThat(extractor.extract(copy)).isEqualTo(extractor.extract(jwt));
+    }
+
+    private static RejectionReason reasonOf(JwtDecoder decoder, String token) {
+        try {
+            decoder.decode(token);
+        } catch (JwtException e) {
+            return AuthenticationMetrics.reasonOf(e);
+        }
+        throw new AssertionError("Token accepted: " + token);
+    }
+
+    private String mint(Duration lifetime) throws Exception {
+        Instant now = Instant.now();
+        Map<String, Object> resourceAccess = new LinkedHashMap<>();
+        for (int client = 0; client < 20; client++) {
+            resourceAccess.put("client-" + client, Map.of("roles", List.of("viewer-" + client, "editor-" + client)));
+        }
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("alice")
+                .audience("account")
+                .issueTime(Date.from(now.minus(Duration.ofMinutes(10))))
+                .expirationTime(Date.from(now.plus(lifetime)))
+                .claim("scope", "openid profile email")
+                .claim("allowed-origins", List.of("https://app.example"))
+                .claim("preferred_username", "alice")
+                .claim("realm_access", Map.of("roles", List.of("USER", "offline_access")))
+                .claim("resource_access", resourceAccess)
+                .build();
+        SignedJWT jwt = new SignedJWT(header(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private JWSHeader header() {
+        return new JWSHeader.Builder(JWSAlgorithm.RS256).type(JOSEObjectType.JWT).keyID(key.getKeyID()).build();
+    }
+
+    private static RSAKey generateKey() {
+        try {
+            return new RSAKeyGenerator(2048).keyID("key-1").generate();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.keycloak.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class RouteAuthorizationTableTests {
+
+    private final RouteAuthorizationTable table = new RouteAuthorizationTable(List.of(
+            RouteRule.permitAll("/api/health"),
+            RouteRule.hasAnyRole("/api/user/**", "USER"),
+            RouteRule.permitAll("/api/user/public"),
+            RouteRule.hasAnyRole(HttpMethod.DELETE, "/api/items/{id}", "ADMIN"),
+            RouteRule.hasAnyRole("/api/items/*", "USER", "ADMIN"),
+            RouteRule.denyAll("/internal/**")),
+            RouteRule.authenticated("/**"));
+
+    private final Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymous",
+            AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+    private final Authentication user = authenticated("ROLE_USER");
+    private final Authentication admin = authenticated("ROLE_ADMIN");
+
+    @Test
+    void earliestMatchingRuleWins() {
+        assertThat(table.isAllowed("GET", "/api/health", anonymous)).isTrue();
+        assertThat(table.isAllowed("GET", "/api/health/", anonymous)).isFalse();
+        // /api/user/** comes first, so the later public rule never applies
+        assertThat(table.isAllowed("GET", "/api/user/public", anonymous)).isFalse();
+        assertThat(table.isAllowed("GET", "/api/user", user)).isTrue();
+        assertThat(table.isAllowed("GET", "/api/user/profile", admin)).isFalse();
+        assertThat(table.isAllowed("GET", "/internal/metrics", admin)).isFalse();
+    }
+
+    @Test
+    void rulesAreIndexedByMethod() {
+        assertThat(table.isAllowed("GET", "/api/items/42", user)).isTrue();
+        assertThat(table.isAllowed("DELETE", "/api/items/42", user)).isFalse();
+        assertThat(table.isAllowed("DELETE", "/api/items/42", admin)).isTrue();
+        // A wildcard segment is never empty; unmatched paths fall back to authenticated
+        assertThat(table.isAllowed("GET", "/api/items/", anonymous)).isFalse();
+        assertThat(table.isAllowed("GET", "/api/items/42/parts", admin)).isTrue();
+        assertThat(table.isAllowed("GET", "/", anonymous)).isFalse();
+    }
+
+    @Test
+    void keycloakTokensAreCheckedAgainstTheirRoleSet() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("alice").build();
+        KeycloakAuthenticationToken token = new KeycloakAuthenticationToken(jwt,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN"), "alice", RoleSet.of(new String[] {"ADMIN"}, 1));
+
+        assertThat(table.isAllowed("DELETE", "/api/items/42", token)).isTrue();
+        assertThat(table.isAllowed("GET", "/api/user/profile", token)).isFalse();
+    }
+
+    @Test
+    void unsupportedPatternsAreRejected() {
+        RouteRule fallback = RouteRule.authenticated("/**");
+        assertThatIllegalArgumentException().isThrownBy(() ->
+                new RouteAuthorizationTable(List.of(RouteRule.permitAll("/api/**/health")), fallback));
+        assertThatIllegalArgumentException().isThrownBy(() ->
+                new RouteAuthorizationTable(List.of(RouteRule.permitAll("/api/*.js")), fallback));
+        assertThatIllegalArgumentException().isThrownBy(() ->
+                new RouteAuthorizationTable(List.of(RouteRule.permitAll("api")), fallback));
+    }
+
+    private static Authentication authenticated(String... authorities) {
+        TestingAuthenticationToken authentication = new TestingAuthenticationToken("user", null, authorities);
+        authentication.setAuthenticated(true);
+        return authentication;
+    }
+}
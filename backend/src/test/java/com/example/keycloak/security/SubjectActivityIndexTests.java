@@ -0,0 +1,94 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.dto.SubjectActivity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubjectActivityIndexTests {
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SubjectActivityIndex index = new SubjectActivityIndex(Duration.ofMinutes(10), 3, clock, meterRegistry);
+
+    @Test
+    void requestsRolesAndLatestExpiryAreRecordedPerSubject() {
+        Instant expiresAt = clock.instant().plusSeconds(300).truncatedTo(ChronoUnit.SECONDS);
+        index.record(token("bob", expiresAt, "USER"));
+        index.record(token("alice", expiresAt, "USER"));
+        clock.advance(Duration.ofSeconds(5));
+        index.record(token("alice", expiresAt.plusSeconds(60), "USER", "ADMIN"));
+
+        List<SubjectActivity> subjects = index.stream(null).toList();
+
+        assertThat(subjects).extracting(SubjectActivity::subject).containsExactly("alice", "bob");
+        SubjectActivity alice = subjects.get(0);
+        assertThat(alice.requests()).isEqualTo(2);
+        assertThat(alice.roles()).isEqualTo(Set.of("ADMIN", "USER"));
+        assertThat(alice.tokenExpiresAt()).isEqualTo(expiresAt.plusSeconds(60));
+        assertThat(alice.lastAccess()).isEqualTo(clock.instant().truncatedTo(ChronoUnit.MILLIS));
+        assertThat(index.stream("alice").toList()).extracting(SubjectActivity::subject).containsExactly("bob");
+    }
+
+    @Test
+    void idleSubjectsAreHiddenAndSweptToMakeRoomForNewOnes() {
+        Instant expiresAt = clock.instant().plusSeconds(300);
+        index.record(token("a", expiresAt));
+        index.record(token("b", expiresAt));
+        clock.advance(Duration.ofMinutes(6));
+        index.record(token("c", expiresAt));
+        index.record(token("d", expiresAt));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(meterRegistry.counter("keycloak.subjects.overflow").count()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(5));
+        assertThat(index.stream(null).toList()).extracting(SubjectActivity::subject).containsExactly("c");
+
+        index.sweep();
+        index.record(token("d", expiresAt));
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.stream(null).toList()).extracting(SubjectActivity::subject).containsExactly("c", "d");
+    }
+
+    private static KeycloakAuthenticationToken token(String subject, Instant expiresAt, String... roles) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject(subject)
+                .issuedAt(expiresAt.minusSeconds(600)).expiresAt(expiresAt).build();
+        return new KeycloakAuthenticationToken(jwt, List.of(), subject, RoleSet.of(roles.clone(), roles.length));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
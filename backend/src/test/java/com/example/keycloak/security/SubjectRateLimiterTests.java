@@ -0,0 +1,70 @@
+package com.example.keycloak.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubjectRateLimiterTests {
+
+    private static final PathContainer PROFILE = PathContainer.parsePath("/api/user/profile");
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SubjectRateLimiter rateLimiter = new SubjectRateLimiter(
+            List.of(new SubjectRateLimiter.Rule("/api/user/**", 10, 3)),
+            Duration.ofMinutes(5), 1000, meterRegistry, nanoTime::get);
+
+    @Test
+    void burstIsAllowedThenRequestsAreSpacedByTheRate() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.acquire(PROFILE, "user-1")).isZero();
+        }
+
+        long waitNanos = rateLimiter.acquire(PROFILE, "user-1");
+        assertThat(waitNanos).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(SubjectRateLimiter.retryAfterSeconds(waitNanos)).isEqualTo(1);
+
+        nanoTime.addAndGet(waitNanos);
+        assertThat(rateLimiter.acquire(PROFILE, "user-1")).isZero();
+        assertThat(rateLimiter.acquire(PROFILE, "user-1")).isPositive();
+
+        assertThat(requests("allowed")).isEqualTo(4);
+        assertThat(requests("limited")).isEqualTo(2);
+    }
+
+    @Test
+    void subjectsAndUnmatchedRoutesAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire(PROFILE, "user-1");
+        }
+
+        assertThat(rateLimiter.acquire(PROFILE, "user-1")).isPositive();
+        assertThat(rateLimiter.acquire(PROFILE, "user-2")).isZero();
+        assertThat(rateLimiter.acquire(PathContainer.parsePath("/api/protected/data"), "user-1")).isZero();
+    }
+
+    @Test
+    void subjectFallsBackToAuthorizedParty() {
+        Jwt user = Jwt.withTokenValue("t").header("alg", "RS256").subject("user-1").claim("azp", "app").build();
+        Jwt client = Jwt.withTokenValue("t").header("alg", "RS256").claim("azp", "app").build();
+
+        assertThat(SubjectRateLimiter.subjectOf(new JwtAuthenticationToken(user, List.of()))).isEqualTo("user-1");
+        assertThat(SubjectRateLimiter.subjectOf(new JwtAuthenticationToken(client, List.of()))).isEqualTo("app");
+        assertThat(SubjectRateLimiter.subjectOf(null)).isNull();
+    }
+
+    private double requests(String outcome) {
+        return meterRegistry.get(SubjectRateLimiter.REQUESTS).tag("outcome", outcome).counter().count();
+    }
+}
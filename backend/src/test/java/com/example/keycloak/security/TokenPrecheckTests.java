@@ -0,0 +1,49 @@
+package com.example.keycloak.security;
+
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenPrecheckTests {
+
+    private static final String ISSUER = "https://issuer.example/realms/test";
+    private static final String HEADER = "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"k1\"}";
+
+    private final TokenPrecheck precheck = new TokenPrecheck(Set.of("RS256"), ISSUER, Duration.ofSeconds(60),
+            Clock.fixed(Instant.ofEpochSecond(1_700_000_000L), ZoneOffset.UTC));
+
+    @Test
+    void readsOnlyTheTopLevelFieldsItChecks() {
+        // Nested iss and exp fields are skipped with the objects around them
+        assertThat(precheck.check(token(HEADER, "{\"resource_access\":{\"app\":{\"iss\":\"other\",\"exp\":1}},"
+                + "\"roles\":[{\"exp\":1}],\"iss\":\"" + ISSUER + "\",\"exp\":1700000100}"))).isNull();
+
+        assertThat(precheck.check(token("{\"alg\":\"none\"}", "{\"iss\":\"" + ISSUER + "\"}")))
+                .isEqualTo(RejectionReason.UNSUPPORTED_ALGORITHM);
+        assertThat(precheck.check(token(HEADER, "{\"iss\":{\"url\":\"" + ISSUER + "\"}}")))
+                .isEqualTo(RejectionReason.INVALID_ISSUER);
+        assertThat(precheck.check(token(HEADER, "{\"iss\":\"" + ISSUER + "\",\"exp\":\"soon\"}")))
+                .isEqualTo(RejectionReason.INVALID_CLAIMS);
+        assertThat(precheck.check(token(HEADER, "{\"exp\":1699999000,\"iss\":\"" + ISSUER + "\"}")))
+                .isEqualTo(RejectionReason.EXPIRED);
+        assertThat(precheck.check(token(HEADER, "[\"iss\"]"))).isEqualTo(RejectionReason.MALFORMED);
+        assertThat(precheck.check(token(HEADER, "{\"sub\":"))).isEqualTo(RejectionReason.MALFORMED);
+    }
+
+    private static String token(String header, String claims) {
+        return encode(header) + "." + encode(claims) + ".c2lnbmF0dXJl";
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
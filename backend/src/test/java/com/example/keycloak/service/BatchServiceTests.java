@@ -0,0 +1,156 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.BatchItemResponse;
+import com.example.keycloak.dto.BatchRequest;
+import com.example.keycloak.security.AdaptiveConcurrencyLimiter;
+import com.example.keycloak.security.AuditEvent;
+import com.example.keycloak.security.AuditJournal;
+import com.example.keycloak.security.AuditLog;
+import com.example.keycloak.security.KeycloakAuthorityExtractor;
+import com.example.keycloak.security.SubjectRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.web.access.WebInvocationPrivilegeEvaluator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BatchServiceTests {
+
+    // Stands in for the security chain: everything but the admin area is allowed
+    private final WebInvocationPrivilegeEvaluator privilegeEvaluator = new WebInvocationPrivilegeEvaluator() {
+        @Override
+        public boolean isAllowed(String uri, Authentication authentication) {
+            return isAllowed("", uri, "GET", authentication);
+        }
+
+        @Override
+        public boolean isAllowed(String contextPath, String uri, String method, Authentication authentication) {
+            return !uri.startsWith("/api/protected/time");
+        }
+    };
+
+    private final Queue<AuditEvent> audited = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean auditFails;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("/api/**", "/api/health",
+            new AdaptiveConcurrencyLimiter.Limits(10, 10, 10, 0, 1, 1), new SimpleMeterRegistry());
+
+    @TempDir
+    Path directory;
+
+    private AuditLog auditLog;
+
+    private BatchService batchService;
+
+    private final Authentication authentication = new JwtAuthenticationToken(Jwt.withTokenValue("token")
+            .header("alg", "RS256")
+            .subject("user-1")
+            .claim("preferred_username", "user")
+            .build(), List.of(), "user-1");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        auditLog = new AuditLog(new AuditJournal(directory, 4096, 1), List.of("/api/user/profile", "/api/protected/**"),
+                100, 10, Duration.ofSeconds(1), new SimpleMeterRegistry()) {
+            @Override
+            public boolean record(AuditEvent event) {
+                if (auditFails) {
+                    throw new IllegalStateException("Audit journal unavailable");
+                }
+                return audited.add(event);
+            }
+        };
+        batchService = new BatchService(
+                new UserService(new KeycloakAuthorityExtractor("demo-app"), null, new SimpleMeterRegistry()),
+                new ProtectedDataService(new ResponseFragmentCache(new ObjectMapper())),
+                privilegeEvaluator,
+                new SubjectRateLimiter(List.of(new SubjectRateLimiter.Rule("/api/user/**", 1, 1)),
+                        Duration.ofMinutes(5), 100, new SimpleMeterRegistry()),
+                concurrencyLimiter,
+                auditLog,
+                30);
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        batchService.close();
+        auditLog.close();
+    }
+
+    @Test
+    void eachSubRequestGetsItsOwnStatus() {
+        List<BatchItemResponse> results = batchService.execute(List.of(
+                        new BatchRequest.Item("profile", null, "/api/user/profile"),
+                        new BatchRequest.Item(null, "GET", "/api/protected/data"),
+                        new BatchRequest.Item("time", "GET", "/api/protected/time"),
+                        new BatchRequest.Item("missing", "GET", "/api/unknown"),
+                        new BatchRequest.Item("post", "POST", "/api/protected/data"),
+                        new BatchRequest.Item("again", "GET", "/api/user/profile")),
+                "", authentication).stream().map(CompletableFuture::join).toList();
+
+        assertThat(results).extracting(BatchItemResponse::id)
+                .containsExactly("profile", "1", "time", "missing", "post", "again");
+        assertThat(results).extracting(BatchItemResponse::status).containsExactly(200, 200, 403, 404, 405, 429);
+        assertThat(results.get(0).body().isSuccess()).isTrue();
+        assertThat(results.get(2).body().isSuccess()).isFalse();
+
+        // Sub-requests to audited routes are recorded like separate calls
+        assertThat(audited).extracting(AuditEvent::method, AuditEvent::path, AuditEvent::status, AuditEvent::subject)
+                .containsExactlyInAnyOrder(
+                        tuple("GET", "/api/user/profile", 200, "user-1"),
+                        tuple("GET", "/api/protected/data", 200, "user-1"),
+                        tuple("GET", "/api/protected/time", 403, "user-1"),
+                        tuple("POST", "/api/protected/data", 405, "user-1"),
+                        tuple("GET", "/api/user/profile", 429, "user-1"));
+    }
+
+    @Test
+    void subRequestIsAnsweredEvenIfAuditingItFails() throws Exception {
+        auditFails = true;
+
+        List<CompletableFuture<BatchItemResponse>> results = batchService.execute(
+                List.of(new BatchRequest.Item("data", "GET", "/api/protected/data")), "", authentication);
+
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS).status()).isEqualTo(200);
+    }
+
+    @Test
+    void subRequestsAreShedAtTheConcurrencyLimit() {
+        // Other requests hold every slot
+        int held = 0;
+        while (concurrencyLimiter.tryAcquire(AdaptiveConcurrencyLimiter.Lane.USER)
+                != AdaptiveConcurrencyLimiter.REJECTED) {
+            held++;
+        }
+        List<BatchRequest.Item> items = List.of(
+                new BatchRequest.Item("first", "GET", "/api/protected/data"),
+                new BatchRequest.Item("second", "GET", "/api/protected/data"));
+
+        assertThat(batchService.execute(items, "", authentication).stream().map(CompletableFuture::join).toList())
+                .extracting(BatchItemResponse::status).containsExactly(503, 503);
+
+        for (int i = 0; i < held; i++) {
+            concurrencyLimiter.release(AdaptiveConcurrencyLimiter.Lane.USER);
+        }
+        assertThat(batchService.execute(items, "", authentication).stream().map(CompletableFuture::join).toList())
+                .extracting(BatchItemResponse::status).containsExactly(200, 200);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtectedDataServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final ProtectedDataService service = new ProtectedDataService(new ResponseFragmentCache(objectMapper));
+
+    private final Authentication authentication = new TestingAuthenticationToken("user-1", null, "ROLE_USER");
+
+    @Test
+    void cachedPayloadSerializesLikeAPlainMap() throws Exception {
+        Map<String, Object> data = service.getProtectedData(authentication);
+
+        JsonNode spliced = objectMapper.readTree(objectMapper.writeValueAsString(ApiResponse.success("ok", data)));
+        JsonNode plain = objectMapper.readTree(
+                objectMapper.writeValueAsString(ApiResponse.success("ok", new HashMap<>(data))));
+
+        assertThat(spliced.get("data")).isEqualTo(plain.get("data"));
+        assertThat(spliced.at("/data/user").asText()).isEqualTo("user-1");
+        assertThat(spliced.at("/data/sampleData/dashboardStats/totalUsers").asInt()).isEqualTo(1250);
+    }
+
+    @Test
+    void updatingSourceDataInvalidatesFragment() throws Exception {
+        objectMapper.writeValueAsString(service.getProtectedData(authentication));
+
+        service.updateNotifications(List.of("Maintenance tonight"));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(service.getProtectedData(authentication)));
+        assertThat(json.at("/sampleData/notifications/0").asText()).isEqualTo("Maintenance tonight");
+        assertThat(json.at("/sampleData/notifications")).hasSize(1);
+    }
+}
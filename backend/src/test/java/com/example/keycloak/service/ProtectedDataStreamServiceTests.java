@@ -0,0 +1,124 @@
+package com.example.keycloak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtectedDataStreamServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ProtectedDataService protectedDataService =
+            new ProtectedDataService(new ResponseFragmentCache(new ObjectMapper()));
+
+    @Test
+    void streamStartsWithSnapshotAndEndsWhenTokenExpires() {
+        ProtectedDataStreamService streamService = streamService(Duration.ofMillis(50));
+
+        List<ServerSentEvent<String>> events = streamService.stream(authentication(Duration.ofMillis(300)))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(events).extracting(ServerSentEvent::event).startsWith("snapshot", "time").endsWith("expired");
+        assertThat(events.get(0).data()).contains("\"user\":\"user-1\"", "\"sampleData\"");
+        assertThat(events).filteredOn(event -> "time".equals(event.event())).hasSizeGreaterThan(2);
+        assertThat(meterRegistry.get(ProtectedDataStreamService.SUBSCRIBERS).gauge().value()).isZero();
+    }
+
+    @Test
+    void streamCappedBeforeTheTokenExpiresEndsWithoutReportingExpiry() throws Exception {
+        ProtectedDataStreamService streamService = streamService(Duration.ofMillis(50), Duration.ofMillis(300));
+
+        List<ServerSentEvent<String>> events = streamService.stream(authentication(Duration.ofMinutes(5)))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(events).extracting(ServerSentEvent::event).endsWith("end").doesNotContain("expired");
+        // The first time event and the shared ticks carry the same fields
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<ServerSentEvent<String>> timeEvents = events.stream()
+                .filter(event -> "time".equals(event.event()))
+                .toList();
+        assertThat(timeEvents).hasSizeGreaterThan(1);
+        for (ServerSentEvent<String> event : timeEvents) {
+            assertThat(objectMapper.readTree(event.data()).fieldNames()).toIterable()
+                    .containsExactlyInAnyOrder("serverTime", "timezone");
+        }
+    }
+
+    @Test
+    void sharedDataChangesArePushedToOpenStreams() throws Exception {
+        ProtectedDataStreamService streamService = streamService(Duration.ofHours(1));
+
+        CompletableFuture<ServerSentEvent<String>> dataEvent = streamService.stream(authentication(Duration.ofMinutes(5)))
+                .filter(event -> "data".equals(event.event()))
+                .next()
+                .toFuture();
+        assertThat(meterRegistry.get(ProtectedDataStreamService.SUBSCRIBERS).gauge().value()).isEqualTo(1);
+
+        protectedDataService.updateNotifications(List.of("Maintenance tonight"));
+
+        assertThat(dataEvent.get(5, TimeUnit.SECONDS).data()).contains("Maintenance tonight").doesNotContain("user-1");
+    }
+
+    @Test
+    void slowSubscriberOnlyReceivesTheLatestPendingUpdate() throws Exception {
+        ProtectedDataStreamService streamService = streamService(Duration.ofMillis(10));
+        List<ServerSentEvent<String>> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<ServerSentEvent<String>> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(2);
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<String> event) {
+                received.add(event);
+            }
+        };
+
+        streamService.stream(authentication(Duration.ofMinutes(5))).subscribe(slowSubscriber);
+        Thread.sleep(300);
+        slowSubscriber.request(10);
+        Thread.sleep(5);
+        slowSubscriber.dispose();
+
+        // Snapshot and first time event, then a handful of ticks rather than the ~30 that passed
+        assertThat(received).extracting(ServerSentEvent::event).startsWith("snapshot", "time");
+        assertThat(received.size()).isLessThan(10);
+    }
+
+    private ProtectedDataStreamService streamService(Duration tickInterval) {
+        return streamService(tickInterval, Duration.ofHours(1));
+    }
+
+    private ProtectedDataStreamService streamService(Duration tickInterval, Duration maxDuration) {
+        return new ProtectedDataStreamService(protectedDataService, new ObjectMapper(), meterRegistry, tickInterval,
+                maxDuration, Clock.systemUTC());
+    }
+
+    private static JwtAuthenticationToken authentication(Duration lifetime) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plus(lifetime))
+                .build();
+        return new JwtAuthenticationToken(jwt, List.of(), "user-1");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.SubjectActivityPage;
+import com.example.keycloak.security.SubjectActivityIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubjectActivityServiceTests {
+
+    private final SubjectActivityIndex index = new SubjectActivityIndex(Duration.ofHours(1), 1000, Clock.systemUTC(),
+            new SimpleMeterRegistry());
+    private final SubjectActivityService service = new SubjectActivityService(index,
+            new ObjectMapper().registerModule(new JavaTimeModule()).enable(SerializationFeature.INDENT_OUTPUT));
+
+    @Test
+    void pagesCoverEverySubjectOnceInOrder() {
+        for (int i = 0; i < 25; i++) {
+            record(String.format("user-%02d", i));
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            SubjectActivityPage page = service.page(cursor, 10);
+            page.items().forEach(item -> seen.add(item.subject()));
+            cursor = page.nextCursor();
+            pages++;
+            // A subject added behind the cursor does not shift later pages
+            record("user-00a");
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(25).isSorted().doesNotHaveDuplicates();
+        assertThat(service.ndjson().map(line -> new String(line, StandardCharsets.UTF_8)))
+                .hasSize(26)
+                .allMatch(line -> line.startsWith("{\"subject\":\"user-") && line.indexOf('\n') == line.length() - 1);
+    }
+
+    @Test
+    void invalidCursorsAndLimitsAreRejected() {
+        assertThatThrownBy(() -> service.page("not base64!", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.page(null, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.page(null, null).nextCursor()).isNull();
+    }
+
+    private void record(String subject) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject(subject).build();
+        index.record(new JwtAuthenticationToken(jwt, List.of()));
+    }
+}
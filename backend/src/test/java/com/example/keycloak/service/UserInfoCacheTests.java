@@ -0,0 +1,110 @@
+package com.example.keycloak.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserInfoCacheTests {
+
+    private static final UserInfo ALICE = new UserInfo("alice", "alice@example.com", "Alice", "Smith");
+
+    private static final UserInfo ALICE_RENAMED = new UserInfo("alice", "alice@example.com", "Alice", "Jones");
+
+    private final List<CompletableFuture<UserInfo>> fetches = new CopyOnWriteArrayList<>();
+
+    private final MutableClock clock = new MutableClock();
+
+    private final UserInfoCache cache = new UserInfoCache((subject, token) -> {
+        CompletableFuture<UserInfo> fetch = new CompletableFuture<>();
+        fetches.add(fetch);
+        return fetch;
+    }, 100, Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofSeconds(10), Duration.ofMillis(200), null, clock);
+
+    @Test
+    void concurrentRequestsForOneSubjectShareOneFetch() {
+        List<CompletableFuture<UserInfo>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(cache.get("alice", "token-" + i));
+        }
+
+        assertThat(fetches).hasSize(1);
+        fetches.get(0).complete(ALICE);
+
+        assertThat(results).allSatisfy(result -> assertThat(result.join()).isEqualTo(ALICE));
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+        assertThat(fetches).hasSize(1);
+    }
+
+    @Test
+    void staleEntryIsServedWhileItRefreshes() {
+        cache.get("alice", "token");
+        fetches.get(0).complete(ALICE);
+
+        clock.advance(Duration.ofMinutes(6));
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+        assertThat(fetches).hasSize(2);
+
+        fetches.get(1).complete(ALICE_RENAMED);
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE_RENAMED);
+    }
+
+    @Test
+    void failedRefreshKeepsTheStaleEntryUntilTheRetry() {
+        cache.get("alice", "token");
+        fetches.get(0).complete(ALICE);
+
+        clock.advance(Duration.ofMinutes(6));
+        cache.get("alice", "token");
+        fetches.get(1).completeExceptionally(new IllegalStateException("Userinfo endpoint returned 503"));
+
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+        assertThat(fetches).hasSize(2);
+        clock.advance(Duration.ofSeconds(11));
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+        assertThat(fetches).hasSize(3);
+    }
+
+    @Test
+    void slowFirstFetchTimesOutWithoutClaimsAndStillFillsTheCache() {
+        UserInfo first = cache.get("alice", "token").join();
+
+        assertThat(first).isEqualTo(UserInfo.EMPTY);
+        fetches.get(0).complete(ALICE);
+        assertThat(cache.get("alice", "token").join()).isEqualTo(ALICE);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
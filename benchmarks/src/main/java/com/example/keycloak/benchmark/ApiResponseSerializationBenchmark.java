@@ -0,0 +1,143 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.dto.ApiResponse;
+import com.example.keycloak.dto.ImmutableApiResponse;
+import com.example.keycloak.service.ProtectedDataService;
+import com.example.keycloak.service.ResponseFragmentCache;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the protected data payload with and without
+ * {@code spring.jackson.serialization.indent-output}, as a plain map and as a
+ * pre-encoded cached payload.
+ *
+ * Also compares the streaming {@code ApiResponse} serializer with bean introspection,
+ * the immutable record variant and the Smile binary format. Payload sizes are printed
+ * once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean indentOutput;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper beanObjectMapper;
+    private ObjectMapper smileMapper;
+    private ApiResponse<Map<String, Object>> response;
+    private ImmutableApiResponse<Map<String, Object>> immutableResponse;
+    private ProtectedDataService protectedDataService;
+    private Authentication authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Mirrors the spring.jackson.* settings in application.properties
+        objectMapper = new ObjectMapper()
+                .configure(SerializationFeature.INDENT_OUTPUT, indentOutput)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("message", "This is protected data from the backend!");
+        data.put("user", "7f1c2a9e-benchmark-user");
+        data.put("timestamp", LocalDateTime.now().toString());
+        data.put("authorities", List.of("ROLE_USER", "ROLE_offline_access", "ROLE_uma_authorization"));
+        data.put("accessLevel", "AUTHENTICATED_USER");
+
+        Map<String, Object> sampleData = new HashMap<>();
+        sampleData.put("dashboardStats", Map.of(
+            "totalUsers", 1250,
+            "activeUsers", 850,
+            "systemHealth", "Excellent"
+        ));
+        sampleData.put("notifications", Arrays.asList(
+            "Welcome to the Keycloak Demo Application",
+            "Your authentication was successful",
+            "All systems are operational"
+        ));
+        data.put("sampleData", sampleData);
+
+        response = ApiResponse.success("Protected data retrieved successfully", data);
+        immutableResponse = ImmutableApiResponse.success("Protected data retrieved successfully", data);
+
+        // Same settings, but ApiResponse goes through Jackson's bean serializer
+        beanObjectMapper = objectMapper.copy().addMixIn(ApiResponse.class, BeanSerialization.class);
+        smileMapper = new SmileMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+        protectedDataService = new ProtectedDataService(new ResponseFragmentCache(objectMapper));
+        authentication = new TestingAuthenticationToken("7f1c2a9e-benchmark-user", null,
+                "ROLE_USER", "ROLE_offline_access", "ROLE_uma_authorization");
+
+        try {
+            System.out.printf("%nPayload bytes (indentOutput=%s): json=%d, smile=%d%n", indentOutput,
+                    objectMapper.writeValueAsBytes(response).length, smileMapper.writeValueAsBytes(response).length);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeWithBeanSerializer() throws JsonProcessingException {
+        return beanObjectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeImmutable() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(immutableResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeSmile() throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Builds the payload through ProtectedDataService, which splices the per-request
+     * fields into a pre-encoded fragment, and serializes it.
+     */
+    @Benchmark
+    public byte[] buildAndSerializeCachedPayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success("Protected data retrieved successfully",
+                protectedDataService.getProtectedData(authentication)));
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface BeanSerialization {
+    }
+}
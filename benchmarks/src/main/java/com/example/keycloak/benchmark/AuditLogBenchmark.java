@@ -0,0 +1,78 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.security.AuditJournal;
+import com.example.keycloak.security.AuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Request-thread cost of the access audit with eight threads: matching the audited
+ * routes and queueing an event, with the writer thread appending to a journal in a
+ * temporary directory. Events dropped because the writer fell behind are printed per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AuditLogBenchmark {
+
+    private static final String PATH = "/api/protected/data";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Path directory;
+    private AuditLog auditLog;
+    private Authentication authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-benchmark");
+        auditLog = new AuditLog(new AuditJournal(directory, 64 * 1024 * 1024, 4),
+                List.of("/api/user/profile", "/api/protected/**", "/api/admin/**"),
+                65536, 256, Duration.ofSeconds(1), meterRegistry);
+        auditLog.start();
+        authentication = new AuthenticationConfig().jwtAuthenticationConverter().convert(new BenchmarkTokens().jwt(2, 3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        auditLog.close();
+        System.out.println("Audit events dropped: "
+                + meterRegistry.get("keycloak.audit.events").tag("outcome", "dropped").counter().count());
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean record() {
+        return auditLog.audits(PathContainer.parsePath(PATH))
+                && auditLog.record("GET", PATH, 200, authentication, 1000);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.security.KeycloakAuthorityExtractor;
+import com.example.keycloak.security.KeycloakJwtAuthenticationConverter;
+import com.example.keycloak.security.RoleSet;
+import com.example.keycloak.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Role extraction, authentication conversion and user profile building for tokens
+ * with small and very large {@code resource_access} claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationConversionBenchmark {
+
+    /**
+     * Shape of the {@code resource_access} claim as clients x roles per client.
+     */
+    @Param({"2x3", "200x25"})
+    public String resourceAccess;
+
+    private KeycloakJwtAuthenticationConverter converter;
+    private KeycloakAuthorityExtractor extractor;
+    private UserService userService;
+    private Jwt jwt;
+    private AbstractAuthenticationToken authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] shape = resourceAccess.split("x");
+        jwt = new BenchmarkTokens().jwt(Integer.parseInt(shape[0]), Integer.parseInt(shape[1]));
+
+        AuthenticationConfig authenticationConfig = new AuthenticationConfig();
+        converter = authenticationConfig.jwtAuthenticationConverter();
+        extractor = authenticationConfig.keycloakAuthorityExtractor();
+        userService = new UserService(extractor, null, new SimpleMeterRegistry());
+        authentication = converter.convert(jwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convert() {
+        return converter.convert(jwt);
+    }
+
+    @Benchmark
+    public RoleSet extractRoles() {
+        return extractor.extract(jwt);
+    }
+
+    @Benchmark
+    public UserProfileDto getUserProfile() {
+        return userService.getUserProfile(authentication);
+    }
+
+    @Benchmark
+    public boolean hasRole() {
+        return userService.hasRole(authentication, "USER");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.keycloak.benchmark;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locally generated RSA key and Keycloak-shaped tokens used by the benchmarks.
+ */
+public final class BenchmarkTokens {
+
+    public static final String ISSUER = "http://localhost/realms/benchmark";
+    public static final String KEY_ID = "benchmark-key";
+
+    private final RSAKey rsaKey;
+
+    public BenchmarkTokens() {
+        try {
+            this.rsaKey = new RSAKeyGenerator(2048).keyID(KEY_ID).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the public key set as a JWKS JSON document.
+     */
+    public String jwks() {
+        return new JWKSet(rsaKey.toPublicJWK()).toString();
+    }
+
+    /**
+     * Mints a signed access token.
+     *
+     * @param clients Number of {@code resource_access} clients
+     * @param rolesPerClient Number of roles per client
+     * @return The serialized JWT
+     */
+    public String token(int clients, int rolesPerClient) {
+        try {
+            SignedJWT jwt = new SignedJWT(
+                    new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(KEY_ID).type(JOSEObjectType.JWT).build(),
+                    claims(clients, rolesPerClient));
+            jwt.sign(new RSASSASigner(rsaKey));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds an already decoded {@link Jwt} with the same claims as {@link #token(int, int)}.
+     */
+    public Jwt jwt(int clients, int rolesPerClient) {
+        JWTClaimsSet claims = claims(clients, rolesPerClient);
+        return Jwt.withTokenValue("benchmark")
+                .header("alg", "RS256")
+                .header("kid", KEY_ID)
+                .claims(existing -> existing.putAll(claims.toJSONObject()))
+                .issuedAt(claims.getIssueTime().toInstant())
+                .expiresAt(claims.getExpirationTime().toInstant())
+                .build();
+    }
+
+    private static JWTClaimsSet claims(int clients, int rolesPerClient) {
+        Map<String, Object> resourceAccess = new LinkedHashMap<>();
+        for (int c = 0; c < clients; c++) {
+            List<String> roles = new ArrayList<>(rolesPerClient);
+            for (int r = 0; r < rolesPerClient; r++) {
+                roles.add("client-" + c + "-role-" + r);
+            }
+            resourceAccess.put("client-" + c, Map.of("roles", roles));
+        }
+
+        Instant now = Instant.now();
+        return new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("7f1c2a9e-benchmark-user")
+                .audience("account")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .claim("azp", "springKeycloakOauth2APP")
+                .claim("preferred_username", "benchmark")
+                .claim("email", "benchmark@example.com")
+                .claim("given_name", "Bench")
+                .claim("family_name", "Mark")
+                .claim("roles", List.of("USER"))
+                .claim("realm_access", Map.of("roles", List.of("USER", "offline_access", "uma_authorization")))
+                .claim("resource_access", resourceAccess)
+                .build();
+    }
+}
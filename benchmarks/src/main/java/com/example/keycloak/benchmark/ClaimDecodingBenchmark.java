@@ -0,0 +1,100 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.security.JwksKeyStore;
+import com.example.keycloak.security.KeycloakJwtAuthenticationConverter;
+import com.example.keycloak.security.KeycloakJwtDecoders;
+import com.example.keycloak.security.TokenPrecheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full versus projected claim decoding of a new token, alone, after the structural
+ * precheck that the authentication managers run first, and followed by the authentication
+ * conversion that reads its roles. Run with {@code -prof gc} to compare the allocation
+ * per token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimDecodingBenchmark {
+
+    /**
+     * Value of {@code app.security.jwt.decoding}.
+     */
+    @Param({"full", "projected"})
+    public String decoding;
+
+    /**
+     * Shape of the {@code resource_access} claim as clients x roles per client.
+     */
+    @Param({"2x3", "200x25"})
+    public String resourceAccess;
+
+    private JwksKeyStore keyStore;
+    private JwtDecoder decoder;
+    private TokenPrecheck precheck;
+    private KeycloakJwtAuthenticationConverter converter;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkTokens tokens = new BenchmarkTokens();
+        String jwks = tokens.jwks();
+        keyStore = new JwksKeyStore(() -> jwks, "benchmark", Duration.ofHours(1), Duration.ofMinutes(1),
+                Duration.ofSeconds(5), Duration.ofSeconds(10));
+        keyStore.refreshAsync().get();
+
+        decoder = decoding.equals("projected")
+                ? KeycloakJwtDecoders.projected(keyStore, BenchmarkTokens.ISSUER, KeycloakJwtDecoders.APPLICATION_CLAIMS)
+                : KeycloakJwtDecoders.withKeyStore(keyStore, BenchmarkTokens.ISSUER);
+        precheck = new TokenPrecheck(Set.of("RS256"), BenchmarkTokens.ISSUER, Duration.ofSeconds(60));
+        converter = new AuthenticationConfig().jwtAuthenticationConverter();
+        String[] shape = resourceAccess.split("x");
+        token = tokens.token(Integer.parseInt(shape[0]), Integer.parseInt(shape[1]));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keyStore.close();
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt precheckAndDecode() {
+        if (precheck.check(token) != null) {
+            throw new IllegalStateException("Benchmark token rejected by the precheck");
+        }
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken decodeAndConvert() {
+        return converter.convert(decoder.decode(token));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.security.AuthenticationMetrics;
+import com.example.keycloak.security.AuthenticationMetrics.RejectionReason;
+import com.example.keycloak.security.CachingJwtAuthenticationManager;
+import com.example.keycloak.security.ClusterBus;
+import com.example.keycloak.security.ClusterSync;
+import com.example.keycloak.security.InvalidTokenGuard;
+import com.example.keycloak.security.JwksKeyStore;
+import com.example.keycloak.security.KeycloakJwtDecoders;
+import com.example.keycloak.security.TokenPrecheck;
+import com.example.keycloak.security.TokenRevocations;
+import com.example.keycloak.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT decoding and validation against a locally generated RSA key, with and without
+ * the verified token cache in front, and the cost of rejecting invalid tokens with and
+ * without the fast-reject path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecodingBenchmark {
+
+    private JwksKeyStore keyStore;
+    private JwtDecoder decoder;
+    private CachingJwtAuthenticationManager cachingManager;
+    private TokenPrecheck precheck;
+    private String token;
+    private String badSignatureToken;
+    private String expiredToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkTokens tokens = new BenchmarkTokens();
+        String jwks = tokens.jwks();
+        keyStore = new JwksKeyStore(() -> jwks, "benchmark", Duration.ofHours(1), Duration.ofMinutes(1),
+                Duration.ofSeconds(5), Duration.ofSeconds(10));
+        keyStore.refreshAsync().get();
+
+        decoder = KeycloakJwtDecoders.withKeyStore(keyStore, BenchmarkTokens.ISSUER);
+        AuthenticationMetrics metrics = new AuthenticationMetrics(new SimpleMeterRegistry());
+        precheck = new TokenPrecheck(Set.of("RS256"), BenchmarkTokens.ISSUER, Duration.ofSeconds(60));
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(10_000, Duration.ofMinutes(5), null);
+        cachingManager = new CachingJwtAuthenticationManager(decoder,
+                new AuthenticationConfig().jwtAuthenticationConverter(),
+                tokenCache,
+                new InvalidTokenGuard(precheck, 10_000, Duration.ofMinutes(1), metrics, null),
+                metrics,
+                new ClusterSync(ClusterBus.standalone(), tokenCache, new TokenRevocations(Duration.ofHours(1), null),
+                        null, Duration.ofMillis(20), false),
+                null);
+        token = tokens.token(2, 3);
+
+        // Same header and claims, signature of another token
+        String otherToken = tokens.token(1, 1);
+        badSignatureToken = token.substring(0, token.lastIndexOf('.')) + otherToken.substring(otherToken.lastIndexOf('.'));
+        // Properly shaped but expired an hour ago; the signature is never looked at
+        String claims = "{\"iss\":\"" + BenchmarkTokens.ISSUER + "\",\"sub\":\"benchmark\",\"exp\":"
+                + Instant.now().minusSeconds(3600).getEpochSecond() + "}";
+        expiredToken = token.substring(0, token.indexOf('.') + 1)
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.lastIndexOf('.'));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keyStore.close();
+    }
+
+    @Benchmark
+    public Jwt decodeAndValidate() {
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    public Authentication authenticateCached() {
+        return cachingManager.authenticate(new BearerTokenAuthenticationToken(token));
+    }
+
+    @Benchmark
+    public Object rejectBadSignatureWithDecoder() {
+        try {
+            return decoder.decode(badSignatureToken);
+        } catch (JwtException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object rejectBadSignatureCached() {
+        try {
+            return cachingManager.authenticate(new BearerTokenAuthenticationToken(badSignatureToken));
+        } catch (AuthenticationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public RejectionReason precheckExpired() {
+        return precheck.check(expiredToken);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.keycloak.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.config.SamplingTurboFilter;
+import com.example.keycloak.controller.UserController;
+import com.example.keycloak.dto.UserProfileDto;
+import com.example.keycloak.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The user profile request path (controller log line and {@code UserService.getUserProfile})
+ * with application logging at INFO, and at DEBUG written synchronously, through the
+ * asynchronous appender, and through the asynchronous appender with one in 100 events sampled.
+ *
+ * Events go to a temporary file with the Spring Boot console pattern; the number of lines
+ * written is printed per trial, since the asynchronous appender drops events it cannot
+ * keep up with rather than slowing the caller.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+
+    @Param({"info", "debug-sync", "debug-async", "debug-async-sampled"})
+    public String logging;
+
+    private final Logger controllerLogger = LoggerFactory.getLogger(UserController.class);
+    private LoggerContext context;
+    private Path logFile;
+    private UserService userService;
+    private AbstractAuthenticationToken authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("logging-benchmark", ".log");
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setName("FILE");
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> appender = file;
+        if (logging.startsWith("debug-async")) {
+            // Same settings as logback-spring.xml
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+        if (logging.equals("debug-async-sampled")) {
+            SamplingTurboFilter sampling = new SamplingTurboFilter();
+            sampling.setContext(context);
+            sampling.setLoggers("com.example.keycloak");
+            sampling.setRate(100);
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(ch.qos.logback.classic.Level.WARN);
+        root.addAppender(appender);
+        context.getLogger("com.example.keycloak").setLevel(logging.equals("info")
+                ? ch.qos.logback.classic.Level.INFO
+                : ch.qos.logback.classic.Level.DEBUG);
+
+        AuthenticationConfig authenticationConfig = new AuthenticationConfig();
+        userService = new UserService(authenticationConfig.keycloakAuthorityExtractor(), null,
+                new SimpleMeterRegistry());
+        authentication = authenticationConfig.jwtAuthenticationConverter().convert(new BenchmarkTokens().jwt(2, 3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // Stopping the context drains the asynchronous queue before the lines are counted
+        context.stop();
+        try (var lines = Files.lines(logFile)) {
+            System.out.println("Log lines written: " + lines.count());
+        }
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public UserProfileDto getUserProfile() {
+        controllerLogger.debug("User profile requested for: {}", authentication.getName());
+        return userService.getUserProfile(authentication);
+    }
+}
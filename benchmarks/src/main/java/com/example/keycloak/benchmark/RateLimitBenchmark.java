@@ -0,0 +1,98 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.security.SubjectRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.server.PathContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request cost of the subject rate limiter, including path parsing as done by the
+ * servlet filter: allowed and limited requests, and eight threads hitting one subject
+ * or one subject each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final String PATH = "/api/protected/data";
+
+    private static final int SUBJECTS = 10_000;
+
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    private SubjectRateLimiter unlimited;
+    private SubjectRateLimiter limited;
+    private String[] subjects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // High enough that no subject ever runs out, so every call takes the allowed path
+        unlimited = new SubjectRateLimiter(List.of(new SubjectRateLimiter.Rule("/api/protected/**", 1e9, 1_000_000)),
+                Duration.ofMinutes(5), 100_000, new SimpleMeterRegistry());
+        limited = new SubjectRateLimiter(List.of(new SubjectRateLimiter.Rule("/api/protected/**", 1, 1)),
+                Duration.ofMinutes(5), 100_000, new SimpleMeterRegistry());
+
+        subjects = new String[SUBJECTS];
+        for (int i = 0; i < SUBJECTS; i++) {
+            subjects[i] = "subject-" + i;
+        }
+    }
+
+    /**
+     * Subject of one benchmark thread, and a cursor over all subjects.
+     */
+    @State(Scope.Thread)
+    public static class ThreadSubject {
+
+        String subject;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(RateLimitBenchmark benchmark) {
+            subject = "thread-" + benchmark.threadIds.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public long allowedAcrossSubjects(ThreadSubject thread) {
+        String subject = subjects[thread.next++ % SUBJECTS];
+        return unlimited.acquire(PathContainer.parsePath(PATH), subject);
+    }
+
+    @Benchmark
+    public long limitedSubject() {
+        return limited.acquire(PathContainer.parsePath(PATH), "subject-0");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long contendedSameSubject() {
+        return unlimited.acquire(PathContainer.parsePath(PATH), "subject-0");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long parallelDistinctSubjects(ThreadSubject thread) {
+        return unlimited.acquire(PathContainer.parsePath(PATH), thread.subject);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.keycloak.benchmark;
+
+import com.example.keycloak.config.AuthenticationConfig;
+import com.example.keycloak.security.RouteAuthorizationManager;
+import com.example.keycloak.security.RouteAuthorizationTable;
+import com.example.keycloak.security.RouteRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * URL authorization decisions with 10, 100 and 1000 rules: the compiled
+ * {@link RouteAuthorizationTable} against Spring Security's ordered request matchers
+ * ({@code AntPathRequestMatcher}, as {@code requestMatchers(...)} without Spring MVC).
+ *
+ * Every operation decides 16 requests spread evenly over the rules, the last one
+ * hitting the final rule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteAuthorizationBenchmark {
+
+    private static final int REQUESTS = 16;
+    private static final int ROLES = 32;
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    private RouteAuthorizationManager table;
+    private RequestMatcherDelegatingAuthorizationManager matchers;
+    private RequestAuthorizationContext[] contexts;
+    private MockHttpServletRequest[] requests;
+    private Supplier<Authentication> authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<RouteRule> routeRules = new ArrayList<>(rules);
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder();
+        for (int i = 0; i < rules; i++) {
+            String role = "ROLE" + (i % ROLES);
+            if (i % 2 == 0) {
+                String pattern = "/api/service" + i + "/items/{id}";
+                routeRules.add(RouteRule.hasAnyRole(HttpMethod.GET, pattern, role));
+                builder.add(new AntPathRequestMatcher(pattern, HttpMethod.GET.name()),
+                        AuthorityAuthorizationManager.hasAnyRole(role));
+            } else {
+                String pattern = "/api/service" + i + "/**";
+                routeRules.add(RouteRule.authenticated(pattern));
+                builder.add(new AntPathRequestMatcher(pattern), AuthenticatedAuthorizationManager.authenticated());
+            }
+        }
+        table = new RouteAuthorizationManager(new RouteAuthorizationTable(routeRules, RouteRule.authenticated("/**")));
+        matchers = builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated()).build();
+
+        requests = new MockHttpServletRequest[REQUESTS];
+        contexts = new RequestAuthorizationContext[REQUESTS];
+        for (int r = 0; r < REQUESTS; r++) {
+            int rule = (r + 1) * rules / REQUESTS - 1;
+            String path = rule % 2 == 0 ? "/api/service" + rule + "/items/42" : "/api/service" + rule + "/status";
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            request.setServletPath(path);
+            requests[r] = request;
+            contexts[r] = new RequestAuthorizationContext(request);
+        }
+
+        // Holds half of the roles named by the rules
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("benchmark-user")
+                .claim("realm_access", Map.of("roles",
+                        IntStream.range(0, ROLES / 2).mapToObj(i -> "ROLE" + (i * 2)).toList()))
+                .build();
+        Authentication caller = new AuthenticationConfig().jwtAuthenticationConverter().convert(jwt);
+        authentication = () -> caller;
+    }
+
+    @Benchmark
+    public int routeTable() {
+        int granted = 0;
+        for (RequestAuthorizationContext context : contexts) {
+            AuthorizationDecision decision = table.check(authentication, context);
+            granted += decision.isGranted() ? 1 : 0;
+        }
+        return granted;
+    }
+
+    @Benchmark
+    public int requestMatchers() {
+        int granted = 0;
+        for (MockHttpServletRequest request : requests) {
+            AuthorizationDecision decision = matchers.check(authentication, request);
+            granted += decision != null && decision.isGranted() ? 1 : 0;
+        }
+        return granted;
+    }
+}